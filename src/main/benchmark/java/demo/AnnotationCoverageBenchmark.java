@@ -0,0 +1,140 @@
+package demo;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.biojava.nbio.structure.io.mmcif.ChemCompGroupFactory;
+import org.biojava.nbio.structure.io.mmcif.ReducedChemCompProvider;
+import org.rcsb.sequence.annotations.SecondaryStructureType;
+import org.rcsb.sequence.annotations.SecondaryStructureValue;
+import org.rcsb.sequence.biojavadao.BioJavaChainProxy;
+import org.rcsb.sequence.biojavadao.BioJavaResidueInfoFactory;
+import org.rcsb.sequence.biojavadao.SyntheticStructures;
+import org.rcsb.sequence.conf.AnnotationClassification;
+import org.rcsb.sequence.conf.AnnotationName;
+import org.rcsb.sequence.core.AbstractAnnotationGroup;
+import org.rcsb.sequence.core.ResidueProvider;
+import org.rcsb.sequence.model.PolymerType;
+import org.rcsb.sequence.model.Reference;
+import org.rcsb.sequence.model.ResidueId;
+import org.rcsb.sequence.model.ResidueNumberScheme;
+import org.rcsb.sequence.model.Sequence;
+
+/**
+ * Measures how long it takes to construct an annotation group that covers a synthetic chain with short secondary
+ * structure elements, as the DSSP and secondary structure groups do, and to ask it whether each residue is annotated.
+ * <p>
+ * Usage: AnnotationCoverageBenchmark [residues] [rounds]
+ * </p>
+ */
+public class AnnotationCoverageBenchmark {
+
+    private static final SecondaryStructureType[] TYPES = {SecondaryStructureType.H, SecondaryStructureType.E,
+            SecondaryStructureType.empty};
+
+    public static void main(String[] args) throws Exception {
+        int length = args.length > 0 ? Integer.parseInt(args[0]) : 10000;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+
+        ChemCompGroupFactory.setChemCompProvider(new ReducedChemCompProvider());
+        ResidueProvider.setResidueInfoFactory(new BioJavaResidueInfoFactory());
+
+        PrintStream out = System.out;
+        PrintStream err = System.err;
+        BioJavaChainProxy proxy;
+        try {
+            // the proxy logs every chain and every residue without coordinates
+            PrintStream quiet = new PrintStream(new OutputStream() {
+                public void write(int b) {
+                }
+            });
+            System.setOut(quiet);
+            System.setErr(quiet);
+
+            proxy = new BioJavaChainProxy(SyntheticStructures.createChain("A", length, 1));
+            proxy.getResidueIds(ResidueNumberScheme.ATOM);
+        } finally {
+            System.setOut(out);
+            System.setErr(err);
+        }
+
+        List<Reference> references = new ArrayList<Reference>();
+        references.add(new Reference(-1L));
+        AnnotationName name = new AnnotationName(AnnotationClassification.secstr, "coverage", "coverage",
+                references, ElementGroup.class, PolymerType.PROTEIN_ONLY);
+        List<ResidueId> residues = new ArrayList<ResidueId>(proxy.getResidueIds(ResidueNumberScheme.SEQRES));
+
+        // warm up
+        construct(proxy, name, rounds);
+        annotates(construct(proxy, name, 1), residues, rounds);
+
+        ElementGroup group = construct(proxy, name, 1);
+        out.println(length + " residues, " + group.getAnnotationCount() + " annotations");
+        out.println("construct the group (ms)\t" + String.format("%.3f", timeConstruct(proxy, name, rounds)));
+        out.println("annotatesResidue of every residue (ms)\t" + String.format("%.3f", annotates(group, residues, rounds)));
+    }
+
+    private static ElementGroup construct(Sequence chain, AnnotationName name, int rounds) throws Exception {
+        ElementGroup group = null;
+        for (int i = 0; i < rounds; i++) {
+            group = new ElementGroup(chain, name);
+            group.constructAnnotations();
+            if (group.getMaxAnnotationsPerResidue() != 1)
+                System.err.println("AnnotationCoverageBenchmark: elements overlap");
+        }
+        return group;
+    }
+
+    /**
+     * @return the average time in ms to construct the group and get the largest number of annotations per residue
+     */
+    private static double timeConstruct(Sequence chain, AnnotationName name, int rounds) throws Exception {
+        long start = System.nanoTime();
+        construct(chain, name, rounds);
+        return (System.nanoTime() - start) / 1e6 / rounds;
+    }
+
+    /**
+     * @return the average time in ms to ask the group whether it annotates each residue
+     */
+    private static double annotates(ElementGroup group, List<ResidueId> residues, int rounds) {
+        int annotated = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < rounds; i++) {
+            for (ResidueId rid : residues) {
+                if (group.annotatesResidue(rid))
+                    annotated++;
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        if (annotated != rounds * residues.size())
+            System.err.println("AnnotationCoverageBenchmark: " + annotated + " residues annotated");
+        return elapsed / 1e6 / rounds;
+    }
+
+    /**
+     * Covers the SEQRES residues of a chain with elements of 1 to 12 residues.
+     */
+    public static class ElementGroup extends AbstractAnnotationGroup<String> {
+
+        private static final long serialVersionUID = 1L;
+
+        public ElementGroup(Sequence chain, AnnotationName name) {
+            super(AnnotationClassification.secstr, name, ResidueNumberScheme.SEQRES, chain);
+        }
+
+        @Override
+        protected void constructAnnotationsImpl() {
+            List<ResidueId> residues = new ArrayList<ResidueId>(chain.getResidueIds(ResidueNumberScheme.SEQRES));
+            Random random = new Random(1);
+            for (int from = 0, i = 0; from < residues.size(); i++) {
+                int to = Math.min(from + 1 + random.nextInt(12), residues.size()) - 1;
+                addAnnotation(new SecondaryStructureValue(TYPES[i % TYPES.length]), residues.get(from), residues.get(to));
+                from = to + 1;
+            }
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package demo;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.biojava.nbio.structure.Site;
+import org.biojava.nbio.structure.Structure;
+import org.biojava.nbio.structure.io.mmcif.ChemCompGroupFactory;
+import org.biojava.nbio.structure.io.mmcif.ReducedChemCompProvider;
+import org.rcsb.sequence.biojavadao.BioJavaChainProxy;
+import org.rcsb.sequence.biojavadao.BioJavaDsspAnnotationGroup;
+import org.rcsb.sequence.biojavadao.BioJavaResidueInfoFactory;
+import org.rcsb.sequence.biojavadao.SyntheticStructures;
+import org.rcsb.sequence.conf.AnnotationClassification;
+import org.rcsb.sequence.conf.AnnotationName;
+import org.rcsb.sequence.conf.AnnotationRegistry;
+import org.rcsb.sequence.core.ResidueProvider;
+import org.rcsb.sequence.core.SegmentedSequenceImpl;
+import org.rcsb.sequence.model.AnnotationGroup;
+import org.rcsb.sequence.model.PolymerType;
+import org.rcsb.sequence.model.Reference;
+import org.rcsb.sequence.model.ResidueNumberScheme;
+import org.rcsb.sequence.model.SegmentedSequence;
+import org.rcsb.sequence.model.Sequence;
+import org.rcsb.sequence.model.SequenceSegment;
+import org.rcsb.sequence.util.AnnotationConstants;
+
+/**
+ * Measures the heap taken by the annotations of synthetic chains: the default annotation groups plus DSSP, with
+ * {@link #SITES_PER_CHAIN} SITE records on every chain, and then the annotations of the segments the chains are cut
+ * into for drawing.
+ * <p>
+ * Usage: AnnotationHeapBenchmark [residuesPerChain] [chains]
+ * </p>
+ */
+public class AnnotationHeapBenchmark {
+
+    private static final int SITES_PER_CHAIN = 100;
+
+    public static void main(String[] args) throws Exception {
+        int length = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        int chains = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+
+        ChemCompGroupFactory.setChemCompProvider(new ReducedChemCompProvider());
+        ResidueProvider.setResidueInfoFactory(new BioJavaResidueInfoFactory());
+
+        List<Reference> references = new ArrayList<Reference>();
+        references.add(new Reference(-1L));
+        AnnotationName dssp = new AnnotationName(AnnotationClassification.secstr, AnnotationConstants.DSSP, "DSSP",
+                references, BioJavaDsspAnnotationGroup.class, PolymerType.PROTEIN_ONLY);
+        AnnotationRegistry.registerAnnotation(dssp);
+
+        PrintStream out = System.out;
+        PrintStream err = System.err;
+        List<BioJavaChainProxy> proxies = new ArrayList<BioJavaChainProxy>(chains);
+        List<SegmentedSequence> segmented = new ArrayList<SegmentedSequence>(chains);
+        long residues, annotated, segments;
+        int annotations = 0;
+        try {
+            // the proxies log every chain and every residue without coordinates
+            PrintStream quiet = new PrintStream(new OutputStream() {
+                public void write(int b) {
+                }
+            });
+            System.setOut(quiet);
+            System.setErr(quiet);
+
+            Structure structure = SyntheticStructures.createStructure("1SYN", chains, length);
+            List<Site> sites = new ArrayList<Site>();
+            for (org.biojava.nbio.structure.Chain c : structure.getChains()) {
+                sites.addAll(AnnotationLookupBenchmark.createSites(c, SITES_PER_CHAIN));
+            }
+            structure.setSites(sites);
+
+            for (org.biojava.nbio.structure.Chain c : structure.getChains()) {
+                BioJavaChainProxy proxy = new BioJavaChainProxy(c);
+                proxy.getResidueIds(ResidueNumberScheme.ATOM);
+                proxies.add(proxy);
+            }
+            residues = usedMemory();
+
+            for (BioJavaChainProxy proxy : proxies) {
+                proxy.ensureAnnotated();
+                proxy.addAnnotationGroup(new BioJavaDsspAnnotationGroup(proxy, AnnotationClassification.secstr, dssp));
+                for (AnnotationGroup<?> group : proxy.getAvailableAnnotationGroups()) {
+                    annotations += group.getAnnotations().size();
+                }
+            }
+            annotated = usedMemory();
+
+            for (Sequence proxy : proxies) {
+                SegmentedSequence s = new SegmentedSequenceImpl(proxy, ResidueNumberScheme.SEQRES, SegmentedSequenceImpl.DEFAULT_FRAGMENT_LENGTH);
+                // the segments copy their annotations from the chain when they are first asked for them
+                for (SequenceSegment segment : s.getSequenceSegments()) {
+                    for (AnnotationGroup<?> group : segment.getAvailableAnnotationGroups()) {
+                        group.getAnnotations();
+                    }
+                }
+                segmented.add(s);
+            }
+            segments = usedMemory();
+        } finally {
+            System.setOut(out);
+            System.setErr(err);
+        }
+
+        out.println(chains + " chains of " + length + " residues, " + annotations / chains + " annotations per chain");
+        out.println("annotations (KB per chain)\t" + String.format("%.1f", (annotated - residues) / 1024.0 / chains));
+        out.println("annotations of segments (KB per chain)\t" + String.format("%.1f", (segments - annotated) / 1024.0 / chains));
+        // keep them reachable until here
+        if (proxies.size() != segmented.size())
+            err.println("AnnotationHeapBenchmark: chains missing");
+    }
+
+    private static long usedMemory() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 4; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
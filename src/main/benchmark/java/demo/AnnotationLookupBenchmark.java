@@ -0,0 +1,114 @@
+package demo;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.biojava.nbio.structure.Chain;
+import org.biojava.nbio.structure.Group;
+import org.biojava.nbio.structure.Site;
+import org.biojava.nbio.structure.Structure;
+import org.biojava.nbio.structure.io.mmcif.ChemCompGroupFactory;
+import org.biojava.nbio.structure.io.mmcif.ReducedChemCompProvider;
+import org.rcsb.sequence.biojavadao.BioJavaChainProxy;
+import org.rcsb.sequence.biojavadao.BioJavaResidueInfoFactory;
+import org.rcsb.sequence.biojavadao.SiteAnnotation;
+import org.rcsb.sequence.biojavadao.SyntheticStructures;
+import org.rcsb.sequence.core.ResidueProvider;
+import org.rcsb.sequence.model.ResidueId;
+import org.rcsb.sequence.model.ResidueNumberScheme;
+
+/**
+ * Measures looking up the SITE annotations of the residues of a synthetic chain with <tt>getAnnotation(ResidueId)</tt>,
+ * for every SEQRES and every ATOM residue, as the one line drawer does for disulphide bonds. Every site covers
+ * {@link #RESIDUES_PER_SITE} residues.
+ * <p>
+ * Usage: AnnotationLookupBenchmark [residues] [sites] [rounds]
+ * </p>
+ */
+public class AnnotationLookupBenchmark {
+
+    private static final int RESIDUES_PER_SITE = 3;
+
+    public static void main(String[] args) {
+        int length = args.length > 0 ? Integer.parseInt(args[0]) : 3000;
+        int siteCount = args.length > 1 ? Integer.parseInt(args[1]) : 300;
+        int rounds = args.length > 2 ? Integer.parseInt(args[2]) : 100;
+
+        ChemCompGroupFactory.setChemCompProvider(new ReducedChemCompProvider());
+        ResidueProvider.setResidueInfoFactory(new BioJavaResidueInfoFactory());
+
+        PrintStream out = System.out;
+        PrintStream err = System.err;
+        SiteAnnotation group;
+        List<ResidueId> seqres, atom;
+        try {
+            // the proxy logs every chain and every residue without coordinates
+            PrintStream quiet = new PrintStream(new OutputStream() {
+                public void write(int b) {
+                }
+            });
+            System.setOut(quiet);
+            System.setErr(quiet);
+
+            Structure structure = SyntheticStructures.createStructure("1SYN", 1, length);
+            Chain chain = structure.getChain(0);
+            structure.setSites(createSites(chain, siteCount));
+
+            BioJavaChainProxy proxy = new BioJavaChainProxy(chain);
+            group = proxy.getAnnotationGroup(SiteAnnotation.class);
+            group.getAnnotations();
+            seqres = new ArrayList<ResidueId>(proxy.getResidueIds(ResidueNumberScheme.SEQRES));
+            atom = new ArrayList<ResidueId>(proxy.getResidueIds(ResidueNumberScheme.ATOM));
+        } finally {
+            System.setOut(out);
+            System.setErr(err);
+        }
+
+        // warm up
+        lookup(group, seqres, rounds);
+        lookup(group, atom, rounds);
+
+        out.println(length + " residues, " + group.getAnnotationCount() + " annotations");
+        out.println("getAnnotation of every SEQRES residue (ms)\t" + String.format("%.3f", lookup(group, seqres, rounds)));
+        out.println("getAnnotation of every ATOM residue (ms)\t" + String.format("%.3f", lookup(group, atom, rounds)));
+    }
+
+    /**
+     * @return sites of random residues, each residue in at most one site
+     */
+    static List<Site> createSites(Chain chain, int count) {
+        List<Group> groups = new ArrayList<Group>(chain.getAtomGroups());
+        Collections.shuffle(groups, new Random(1));
+        List<Site> sites = new ArrayList<Site>(count);
+        for (int i = 0; i < count && (i + 1) * RESIDUES_PER_SITE <= groups.size(); i++) {
+            Site site = new Site();
+            site.setSiteID("AC" + i);
+            site.setDescription("BINDING SITE FOR RESIDUE " + i);
+            site.setGroups(new ArrayList<Group>(groups.subList(i * RESIDUES_PER_SITE, (i + 1) * RESIDUES_PER_SITE)));
+            sites.add(site);
+        }
+        return sites;
+    }
+
+    /**
+     * @return the average time in ms to look up the annotation of every residue
+     */
+    private static double lookup(SiteAnnotation group, List<ResidueId> residues, int rounds) {
+        int found = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < rounds; i++) {
+            for (ResidueId r : residues) {
+                if (group.getAnnotation(r) != null)
+                    found++;
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        if (found == 0)
+            System.err.println("AnnotationLookupBenchmark: no annotated residues");
+        return elapsed / 1e6 / rounds;
+    }
+}
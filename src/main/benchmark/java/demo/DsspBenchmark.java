@@ -0,0 +1,104 @@
+package demo;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.biojava.nbio.structure.Structure;
+import org.biojava.nbio.structure.io.mmcif.ChemCompGroupFactory;
+import org.biojava.nbio.structure.io.mmcif.ReducedChemCompProvider;
+import org.rcsb.sequence.biojavadao.BioJavaChainProxy;
+import org.rcsb.sequence.biojavadao.BioJavaDsspAnnotationGroup;
+import org.rcsb.sequence.biojavadao.BioJavaResidueInfoFactory;
+import org.rcsb.sequence.biojavadao.BioJavaSequenceCollection;
+import org.rcsb.sequence.biojavadao.SyntheticStructures;
+import org.rcsb.sequence.conf.AnnotationClassification;
+import org.rcsb.sequence.conf.AnnotationName;
+import org.rcsb.sequence.conf.AnnotationRegistry;
+import org.rcsb.sequence.core.ResidueProvider;
+import org.rcsb.sequence.model.Chain;
+import org.rcsb.sequence.model.PolymerType;
+import org.rcsb.sequence.model.Reference;
+import org.rcsb.sequence.util.AnnotationConstants;
+
+/**
+ * Compares the time to build the DSSP annotations of all chains of synthetic multi-chain structures, when DSSP
+ * is calculated for every chain (chains that do not belong to a collection) and when it is calculated once per
+ * structure by the {@link BioJavaSequenceCollection}.
+ * <p>
+ * Usage: DsspBenchmark [residuesPerChain] [rounds]
+ * </p>
+ */
+public class DsspBenchmark {
+
+    private static final int[] CHAINS = {1, 4, 15, 30, 60};
+
+    public static void main(String[] args) throws Exception {
+        int length = args.length > 0 ? Integer.parseInt(args[0]) : 150;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+
+        ChemCompGroupFactory.setChemCompProvider(new ReducedChemCompProvider());
+        ResidueProvider.setResidueInfoFactory(new BioJavaResidueInfoFactory());
+
+        List<Reference> references = new ArrayList<Reference>();
+        references.add(new Reference(-1L));
+        AnnotationName dssp = new AnnotationName(AnnotationClassification.secstr, AnnotationConstants.DSSP, "DSSP",
+                references, BioJavaDsspAnnotationGroup.class, PolymerType.PROTEIN_ONLY);
+        AnnotationRegistry.registerAnnotation(dssp);
+
+        PrintStream out = System.out;
+        PrintStream err = System.err;
+        out.println("chains\tDSSP per chain (ms)\tDSSP per structure (ms)");
+        try {
+            // the chain proxies log every chain and every residue without coordinates
+            PrintStream quiet = new PrintStream(new OutputStream() {
+                public void write(int b) {
+                }
+            });
+            System.setOut(quiet);
+            System.setErr(quiet);
+
+            // warm up
+            perChain(SyntheticStructures.createStructure("WARM", 4, length), dssp);
+            perStructure(SyntheticStructures.createStructure("WARM", 4, length), dssp);
+
+            for (int chains : CHAINS) {
+                long perChain = 0;
+                long perStructure = 0;
+                for (int i = 0; i < rounds; i++) {
+                    perChain += perChain(SyntheticStructures.createStructure("SYNT", chains, length), dssp);
+                    perStructure += perStructure(SyntheticStructures.createStructure("SYNT", chains, length), dssp);
+                }
+                out.println(chains + "\t" + String.format("%.1f\t%.1f", perChain / 1e6 / rounds, perStructure / 1e6 / rounds));
+            }
+        } finally {
+            System.setOut(out);
+            System.setErr(err);
+        }
+    }
+
+    private static long perChain(Structure s, AnnotationName dssp) throws Exception {
+        long start = System.nanoTime();
+        for (org.biojava.nbio.structure.Chain c : s.getChains()) {
+            annotate(new BioJavaChainProxy(c), dssp);
+        }
+        return System.nanoTime() - start;
+    }
+
+    private static long perStructure(Structure s, AnnotationName dssp) throws Exception {
+        long start = System.nanoTime();
+        BioJavaSequenceCollection collection = new BioJavaSequenceCollection();
+        collection.setStructure(s);
+        Collection<Chain> chains = collection.getChains().values();
+        for (Chain c : chains) {
+            annotate((BioJavaChainProxy) c, dssp);
+        }
+        return System.nanoTime() - start;
+    }
+
+    private static void annotate(BioJavaChainProxy proxy, AnnotationName dssp) throws Exception {
+        new BioJavaDsspAnnotationGroup(proxy, AnnotationClassification.secstr, dssp).constructAnnotations();
+    }
+}
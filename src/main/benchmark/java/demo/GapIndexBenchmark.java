@@ -0,0 +1,91 @@
+package demo;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.List;
+
+import org.biojava.nbio.structure.Chain;
+import org.biojava.nbio.structure.Group;
+import org.biojava.nbio.structure.io.mmcif.ChemCompGroupFactory;
+import org.biojava.nbio.structure.io.mmcif.ReducedChemCompProvider;
+import org.rcsb.sequence.biojavadao.BioJavaChainProxy;
+import org.rcsb.sequence.biojavadao.BioJavaResidueInfoFactory;
+import org.rcsb.sequence.biojavadao.SyntheticStructures;
+import org.rcsb.sequence.core.ResidueProvider;
+import org.rcsb.sequence.core.SegmentedSequenceImpl;
+import org.rcsb.sequence.model.ResidueNumberScheme;
+import org.rcsb.sequence.model.SequenceSegment;
+
+/**
+ * Measures <tt>getNonContiguousResidueIds</tt> for every segment of a synthetic chain, as the annotation drawers of a
+ * sequence image call it. A stretch of 50 residues every 500 residues of the chain has no coordinates.
+ * <p>
+ * Usage: GapIndexBenchmark [residues] [rounds]
+ * </p>
+ */
+public class GapIndexBenchmark {
+
+    private static final int GAP_EVERY = 500;
+    private static final int GAP_LENGTH = 50;
+
+    public static void main(String[] args) {
+        int length = args.length > 0 ? Integer.parseInt(args[0]) : 10000;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 500;
+
+        ChemCompGroupFactory.setChemCompProvider(new ReducedChemCompProvider());
+        ResidueProvider.setResidueInfoFactory(new BioJavaResidueInfoFactory());
+
+        PrintStream out = System.out;
+        PrintStream err = System.err;
+        List<SequenceSegment> seqresSegments, atomSegments;
+        try {
+            // the proxy logs every chain and every residue without coordinates
+            PrintStream quiet = new PrintStream(new OutputStream() {
+                public void write(int b) {
+                }
+            });
+            System.setOut(quiet);
+            System.setErr(quiet);
+
+            Chain chain = SyntheticStructures.createChain("A", length, 1);
+            List<Group> atomGroups = chain.getAtomGroups();
+            for (int start = atomGroups.size() - GAP_EVERY; start > 0; start -= GAP_EVERY) {
+                for (int i = 0; i < GAP_LENGTH && start < atomGroups.size(); i++) {
+                    atomGroups.remove(start);
+                }
+            }
+            BioJavaChainProxy proxy = new BioJavaChainProxy(chain);
+            seqresSegments = new SegmentedSequenceImpl(proxy, ResidueNumberScheme.SEQRES, SegmentedSequenceImpl.DEFAULT_FRAGMENT_LENGTH).getSequenceSegments();
+            atomSegments = new SegmentedSequenceImpl(proxy, ResidueNumberScheme.ATOM, SegmentedSequenceImpl.DEFAULT_FRAGMENT_LENGTH).getSequenceSegments();
+        } finally {
+            System.setOut(out);
+            System.setErr(err);
+        }
+
+        // warm up
+        gaps(seqresSegments, rounds);
+        gaps(atomSegments, rounds);
+
+        out.println(length + " residues");
+        out.println("SEQRES segments\t" + seqresSegments.size() + "\tgaps of all segments (ms)\t" + String.format("%.3f", gaps(seqresSegments, rounds)));
+        out.println("ATOM segments\t" + atomSegments.size() + "\tgaps of all segments (ms)\t" + String.format("%.3f", gaps(atomSegments, rounds)));
+    }
+
+    /**
+     * @return the average time in ms to get the gaps between SEQRES and ATOM residues, both ways, of all segments
+     */
+    private static double gaps(List<SequenceSegment> segments, int rounds) {
+        long found = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < rounds; i++) {
+            for (SequenceSegment segment : segments) {
+                found += segment.getNonContiguousResidueIds(ResidueNumberScheme.ATOM, ResidueNumberScheme.SEQRES).size();
+                found += segment.getNonContiguousResidueIds(ResidueNumberScheme.SEQRES, ResidueNumberScheme.ATOM).size();
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        if (found == 0)
+            System.err.println("GapIndexBenchmark: no gaps found");
+        return elapsed / 1e6 / rounds;
+    }
+}
@@ -0,0 +1,102 @@
+package demo;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.rcsb.sequence.core.AbstractSequenceCollectionFactory;
+import org.rcsb.sequence.core.SequenceCollectionProvider;
+import org.rcsb.sequence.model.SequenceCollection;
+
+/**
+ * Measures the throughput of SequenceCollectionProvider.get() with an increasing number of threads.
+ * <p>
+ * The factory simulates a download (sleep) followed by parsing (busy loop), so no network or PDB files are needed.
+ * For comparison the same workload is run through a single global lock, which is how the provider used to work.
+ * </p>
+ * Usage: ProviderContentionBenchmark [maxThreads] [requestsPerThread]
+ */
+public class ProviderContentionBenchmark {
+
+    private static final int IO_MILLIS = 20;
+    private static final long PARSE_NANOS = 5 * 1000 * 1000L;
+
+    private static final Object GLOBAL_LOCK = new Object();
+
+    public static void main(String[] args) throws Exception {
+        int maxThreads = args.length > 0 ? Integer.parseInt(args[0]) : 2 * Runtime.getRuntime().availableProcessors();
+        int requestsPerThread = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+
+        SequenceCollectionProvider.setSequenceCollectionFactory(new SlowFactory());
+
+        System.out.println("threads\tglobal lock (loads/s)\tsingle-flight (loads/s)");
+        for (int threads = 1; threads <= maxThreads; threads *= 2) {
+            double locked = run(threads, requestsPerThread, true);
+            double singleFlight = run(threads, requestsPerThread, false);
+            System.out.println(threads + "\t" + String.format("%.1f", locked) + "\t" + String.format("%.1f", singleFlight));
+        }
+    }
+
+    private static double run(int threads, final int requestsPerThread, final boolean globalLock) throws InterruptedException {
+        final CountDownLatch start = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(threads);
+        final AtomicInteger counter = new AtomicInteger();
+
+        List<Thread> workers = new ArrayList<Thread>(threads);
+        for (int t = 0; t < threads; t++) {
+            final int threadId = t;
+            Thread w = new Thread(new Runnable() {
+                public void run() {
+                    try {
+                        start.await();
+                        for (int i = 0; i < requestsPerThread; i++) {
+                            // every thread asks for different entries
+                            String id = String.format("%d%03d", threadId % 10, i);
+                            if (globalLock) {
+                                synchronized (GLOBAL_LOCK) {
+                                    SequenceCollectionProvider.get(id);
+                                }
+                            } else {
+                                SequenceCollectionProvider.get(id);
+                            }
+                            counter.incrementAndGet();
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    } finally {
+                        done.countDown();
+                    }
+                }
+            });
+            workers.add(w);
+            w.start();
+        }
+
+        long begin = System.nanoTime();
+        start.countDown();
+        done.await();
+        long elapsed = System.nanoTime() - begin;
+
+        return counter.get() / (elapsed / 1e9);
+    }
+
+    private static class SlowFactory extends AbstractSequenceCollectionFactory {
+
+        public SequenceCollection get(String structureId) {
+            try {
+                Thread.sleep(IO_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            long end = System.nanoTime() + PARSE_NANOS;
+            long x = structureId.hashCode();
+            while (System.nanoTime() < end) {
+                x = x * 31 + 7;
+            }
+            if (x == 42)
+                System.out.println();
+            return null;
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package demo;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import org.biojava.nbio.structure.io.mmcif.ChemCompGroupFactory;
+import org.biojava.nbio.structure.io.mmcif.ReducedChemCompProvider;
+import org.rcsb.sequence.biojavadao.BioJavaChainProxy;
+import org.rcsb.sequence.biojavadao.BioJavaResidueInfoFactory;
+import org.rcsb.sequence.biojavadao.SyntheticStructures;
+import org.rcsb.sequence.core.ResidueProvider;
+import org.rcsb.sequence.model.ResidueId;
+import org.rcsb.sequence.model.ResidueNumberScheme;
+
+/**
+ * Measures the comparison of residue ids of a synthetic chain: sorting shuffled SEQRES and ATOM residues, adding
+ * them to a TreeSet, and <tt>isBetween</tt> checks of random residues.
+ * <p>
+ * Usage: ResidueComparisonBenchmark [residues] [rounds]
+ * </p>
+ */
+public class ResidueComparisonBenchmark {
+
+    private static final int RANGE_CHECKS = 2000000;
+
+    public static void main(String[] args) {
+        int length = args.length > 0 ? Integer.parseInt(args[0]) : 5000;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+
+        ChemCompGroupFactory.setChemCompProvider(new ReducedChemCompProvider());
+        ResidueProvider.setResidueInfoFactory(new BioJavaResidueInfoFactory());
+
+        PrintStream out = System.out;
+        PrintStream err = System.err;
+        BioJavaChainProxy proxy;
+        try {
+            // the proxy logs every chain and every residue without coordinates
+            PrintStream quiet = new PrintStream(new OutputStream() {
+                public void write(int b) {
+                }
+            });
+            System.setOut(quiet);
+            System.setErr(quiet);
+
+            proxy = new BioJavaChainProxy(SyntheticStructures.createChain("A", length, 1));
+            proxy.getResidueIds(ResidueNumberScheme.ATOM);
+        } finally {
+            System.setOut(out);
+            System.setErr(err);
+        }
+
+        ResidueNumberScheme[] schemes = {ResidueNumberScheme.SEQRES, ResidueNumberScheme.ATOM};
+
+        // warm up
+        for (ResidueNumberScheme rns : schemes) {
+            List<ResidueId> residues = new ArrayList<ResidueId>(proxy.getResidueIds(rns));
+            sort(residues, rounds);
+            treeSet(residues, rounds);
+            isBetween(residues);
+        }
+
+        out.println("scheme\tresidues\tsort (ms)\tTreeSet (ms)\tisBetween (ns)");
+        for (ResidueNumberScheme rns : schemes) {
+            List<ResidueId> residues = new ArrayList<ResidueId>(proxy.getResidueIds(rns));
+            out.println(rns + "\t" + residues.size() + "\t" + String.format("%.2f\t%.2f\t%.1f",
+                    sort(residues, rounds), treeSet(residues, rounds), isBetween(residues)));
+        }
+    }
+
+    /**
+     * @return the average time in ms to sort the shuffled residues
+     */
+    private static double sort(List<ResidueId> residues, int rounds) {
+        Random random = new Random(1);
+        long elapsed = 0;
+        for (int i = 0; i < rounds; i++) {
+            List<ResidueId> shuffled = new ArrayList<ResidueId>(residues);
+            Collections.shuffle(shuffled, random);
+            long start = System.nanoTime();
+            Collections.sort(shuffled);
+            elapsed += System.nanoTime() - start;
+            if (shuffled.get(0) != residues.get(0))
+                System.err.println("ResidueComparisonBenchmark: sorted residues out of order");
+        }
+        return elapsed / 1e6 / rounds;
+    }
+
+    /**
+     * @return the average time in ms to add the shuffled residues to a TreeSet
+     */
+    private static double treeSet(List<ResidueId> residues, int rounds) {
+        Random random = new Random(2);
+        long elapsed = 0;
+        for (int i = 0; i < rounds; i++) {
+            List<ResidueId> shuffled = new ArrayList<ResidueId>(residues);
+            Collections.shuffle(shuffled, random);
+            long start = System.nanoTime();
+            TreeSet<ResidueId> set = new TreeSet<ResidueId>(shuffled);
+            elapsed += System.nanoTime() - start;
+            if (set.size() != residues.size())
+                System.err.println("ResidueComparisonBenchmark: residues lost in TreeSet");
+        }
+        return elapsed / 1e6 / rounds;
+    }
+
+    /**
+     * @return the average time in ns of isBetween for random residues
+     */
+    private static double isBetween(List<ResidueId> residues) {
+        Random random = new Random(3);
+        int n = residues.size();
+        int[] picks = new int[3 * 1024];
+        for (int i = 0; i < picks.length; i++) {
+            picks[i] = random.nextInt(n);
+        }
+        int between = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < RANGE_CHECKS; i++) {
+            int j = 3 * (i & 1023);
+            int a = Math.min(picks[j], picks[j + 1]), b = Math.max(picks[j], picks[j + 1]);
+            if (residues.get(picks[j + 2]).isBetween(residues.get(a), residues.get(b)))
+                between++;
+        }
+        long elapsed = System.nanoTime() - start;
+        if (between == 0)
+            System.err.println("ResidueComparisonBenchmark: no residue between the bounds");
+        return elapsed / (double) RANGE_CHECKS;
+    }
+}
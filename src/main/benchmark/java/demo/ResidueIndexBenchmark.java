@@ -0,0 +1,150 @@
+package demo;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.biojava.nbio.structure.io.mmcif.ChemCompGroupFactory;
+import org.biojava.nbio.structure.io.mmcif.ReducedChemCompProvider;
+import org.rcsb.sequence.biojavadao.BioJavaChainProxy;
+import org.rcsb.sequence.biojavadao.BioJavaResidueInfoFactory;
+import org.rcsb.sequence.biojavadao.SyntheticStructures;
+import org.rcsb.sequence.core.ResidueIndex;
+import org.rcsb.sequence.core.ResidueProvider;
+import org.rcsb.sequence.model.ResidueId;
+import org.rcsb.sequence.model.ResidueNumberScheme;
+
+/**
+ * Compares the {@link ResidueIndex} of the ATOM residues of synthetic chains with the <tt>LinkedHashMap</tt> keyed by
+ * strings such as <tt>"123A"</tt> that it replaces: the heap taken per residue by the index itself (the residue ids are
+ * shared), and the time to look up a residue by its sequence id.
+ * <p>
+ * Usage: ResidueIndexBenchmark [residuesPerChain] [chains]
+ * </p>
+ */
+public class ResidueIndexBenchmark {
+
+    private static final int LOOKUPS = 5000000;
+
+    public static void main(String[] args) {
+        int length = args.length > 0 ? Integer.parseInt(args[0]) : 400;
+        int chains = args.length > 1 ? Integer.parseInt(args[1]) : 500;
+
+        ChemCompGroupFactory.setChemCompProvider(new ReducedChemCompProvider());
+        ResidueProvider.setResidueInfoFactory(new BioJavaResidueInfoFactory());
+
+        PrintStream out = System.out;
+        PrintStream err = System.err;
+        List<ResidueId> residues;
+        try {
+            // the proxy logs every chain and every residue without coordinates
+            PrintStream quiet = new PrintStream(new OutputStream() {
+                public void write(int b) {
+                }
+            });
+            System.setOut(quiet);
+            System.setErr(quiet);
+
+            BioJavaChainProxy proxy = new BioJavaChainProxy(SyntheticStructures.createChain("A", length, 1));
+            residues = new ArrayList<ResidueId>(proxy.getResidueIds(ResidueNumberScheme.ATOM));
+        } finally {
+            System.setOut(out);
+            System.setErr(err);
+        }
+
+        int total = chains * residues.size();
+        out.println(chains + " chains of " + residues.size() + " residues");
+        out.println("\tbytes per residue\tlookup (ns)");
+
+        long before = usedMemory();
+        Object[] maps = new Object[chains];
+        for (int i = 0; i < chains; i++) {
+            maps[i] = toMap(residues);
+        }
+        double mapBytes = (usedMemory() - before) / (double) total;
+        maps = null;
+
+        before = usedMemory();
+        Object[] indexes = new Object[chains];
+        for (int i = 0; i < chains; i++) {
+            indexes[i] = toIndex(residues);
+        }
+        double indexBytes = (usedMemory() - before) / (double) total;
+        indexes = null;
+
+        Map<String, ResidueId> map = toMap(residues);
+        ResidueIndex index = toIndex(residues);
+        int[] seqIds = new int[residues.size()];
+        for (int i = 0; i < seqIds.length; i++) {
+            seqIds[i] = residues.get(i).getSeqId();
+        }
+
+        // warm up
+        lookUp(map, seqIds);
+        lookUp(index, seqIds);
+
+        out.println("LinkedHashMap\t" + String.format("%.1f\t%.1f", mapBytes, lookUp(map, seqIds)));
+        out.println("ResidueIndex\t" + String.format("%.1f\t%.1f", indexBytes, lookUp(index, seqIds)));
+    }
+
+    private static Map<String, ResidueId> toMap(List<ResidueId> residues) {
+        Map<String, ResidueId> result = new LinkedHashMap<String, ResidueId>();
+        for (ResidueId rid : residues) {
+            // the keys were built from the sequence id and insertion code, not shared with the residue id
+            result.put(new String(rid.getSeqIdWithInsertionCode().toCharArray()), rid);
+        }
+        return result;
+    }
+
+    private static ResidueIndex toIndex(List<ResidueId> residues) {
+        ResidueIndex result = new ResidueIndex();
+        for (ResidueId rid : residues) {
+            result.put(rid);
+        }
+        return result;
+    }
+
+    /**
+     * @return the average time in ns to look up a residue, the way AbstractSequence.getResidueId(rns, Integer) did
+     */
+    private static double lookUp(Map<String, ResidueId> map, int[] seqIds) {
+        int found = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < LOOKUPS; i++) {
+            Integer id = seqIds[i % seqIds.length];
+            if (map.get(id.toString()) != null)
+                found++;
+        }
+        long elapsed = System.nanoTime() - start;
+        if (found != LOOKUPS)
+            System.err.println("ResidueIndexBenchmark: only found " + found + " residues");
+        return elapsed / (double) LOOKUPS;
+    }
+
+    /**
+     * @return the average time in ns to look up a residue, the way AbstractSequence.getResidueId(rns, Integer) does
+     */
+    private static double lookUp(ResidueIndex index, int[] seqIds) {
+        int found = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < LOOKUPS; i++) {
+            if (index.get(seqIds[i % seqIds.length], ResidueIndex.NO_INSERTION_CODE) != null)
+                found++;
+        }
+        long elapsed = System.nanoTime() - start;
+        if (found != LOOKUPS)
+            System.err.println("ResidueIndexBenchmark: only found " + found + " residues");
+        return elapsed / (double) LOOKUPS;
+    }
+
+    private static long usedMemory() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 4; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,99 @@
+package demo;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.List;
+
+import org.biojava.nbio.structure.Chain;
+import org.biojava.nbio.structure.Group;
+import org.biojava.nbio.structure.io.mmcif.ChemCompGroupFactory;
+import org.biojava.nbio.structure.io.mmcif.ReducedChemCompProvider;
+import org.rcsb.sequence.biojavadao.BioJavaChainProxy;
+import org.rcsb.sequence.biojavadao.BioJavaResidueInfoFactory;
+import org.rcsb.sequence.biojavadao.SyntheticStructures;
+import org.rcsb.sequence.core.ResidueProvider;
+import org.rcsb.sequence.model.ResidueNumberScheme;
+
+/**
+ * Measures how long BioJavaChainProxy takes to create the residue ids of synthetic chains of 100 to 40000 residues.
+ * For comparison the linear search of the ATOM groups for every SEQRES group, which is how the atom positions used
+ * to be found, is timed on its own.
+ * <p>
+ * Usage: ResidueInstantiationBenchmark [rounds]
+ * </p>
+ */
+public class ResidueInstantiationBenchmark {
+
+    private static final int[] LENGTHS = {100, 300, 1000, 3000, 10000, 40000};
+
+    public static void main(String[] args) {
+        int rounds = args.length > 0 ? Integer.parseInt(args[0]) : 5;
+
+        ChemCompGroupFactory.setChemCompProvider(new ReducedChemCompProvider());
+        ResidueProvider.setResidueInfoFactory(new BioJavaResidueInfoFactory());
+
+        PrintStream out = System.out;
+        PrintStream err = System.err;
+        out.println("residues\tlinear search (ms)\tindexed instantiation (ms)");
+        try {
+            // the proxy logs every chain and every residue without coordinates
+            PrintStream quiet = new PrintStream(new OutputStream() {
+                public void write(int b) {
+                }
+            });
+            System.setOut(quiet);
+            System.setErr(quiet);
+
+            // warm up
+            instantiate(SyntheticStructures.createChain("A", 1000, 1), 20);
+            linearSearch(SyntheticStructures.createChain("A", 1000, 1), 20);
+
+            for (int length : LENGTHS) {
+                Chain chain = SyntheticStructures.createChain("A", length, length);
+                // the quadratic search gets slow, one round is enough for the big chains
+                double linear = linearSearch(chain, length > 3000 ? 1 : rounds);
+                double indexed = instantiate(chain, rounds);
+                out.println(length + "\t" + String.format("%.2f\t%.2f", linear, indexed));
+            }
+        } finally {
+            System.setOut(out);
+            System.setErr(err);
+        }
+    }
+
+    /**
+     * @return the average time in ms to create a proxy and all of its SEQRES and ATOM residue ids
+     */
+    private static double instantiate(Chain chain, int rounds) {
+        long start = System.nanoTime();
+        for (int i = 0; i < rounds; i++) {
+            BioJavaChainProxy proxy = new BioJavaChainProxy(chain);
+            proxy.getResidueIds(ResidueNumberScheme.ATOM);
+        }
+        return (System.nanoTime() - start) / 1e6 / rounds;
+    }
+
+    /**
+     * @return the average time in ms to find the ATOM position of every SEQRES group by linear search
+     */
+    private static double linearSearch(Chain chain, int rounds) {
+        List<Group> atomGroups = chain.getAtomGroups();
+        long found = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < rounds; i++) {
+            for (Group g : chain.getSeqResGroups()) {
+                int pos = -1;
+                for (Group gr : atomGroups) {
+                    pos++;
+                    if (gr.equals(g))
+                        break;
+                }
+                found += pos;
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        if (found == 42)
+            System.out.println();
+        return elapsed / 1e6 / rounds;
+    }
+}
@@ -0,0 +1,111 @@
+package demo;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.biojava.nbio.structure.Chain;
+import org.biojava.nbio.structure.Group;
+import org.biojava.nbio.structure.io.mmcif.ChemCompGroupFactory;
+import org.biojava.nbio.structure.io.mmcif.ReducedChemCompProvider;
+import org.rcsb.sequence.biojavadao.BioJavaChainProxy;
+import org.rcsb.sequence.biojavadao.BioJavaResidueInfoFactory;
+import org.rcsb.sequence.biojavadao.SyntheticStructures;
+import org.rcsb.sequence.core.ResidueProvider;
+import org.rcsb.sequence.model.ResidueId;
+import org.rcsb.sequence.model.ResidueNumberScheme;
+
+/**
+ * Measures the equivalent residue ids of synthetic chains: the heap taken per SEQRES residue by the residue ids of all
+ * schemes and their mappings, and the time to find the next and previous ATOM residue of every SEQRES residue of a
+ * chain whose middle third has no coordinates.
+ * <p>
+ * Usage: ResidueMappingBenchmark [residuesPerChain] [chains]
+ * </p>
+ */
+public class ResidueMappingBenchmark {
+
+    public static void main(String[] args) {
+        int length = args.length > 0 ? Integer.parseInt(args[0]) : 3000;
+        int chains = args.length > 1 ? Integer.parseInt(args[1]) : 100;
+
+        ChemCompGroupFactory.setChemCompProvider(new ReducedChemCompProvider());
+        ResidueProvider.setResidueInfoFactory(new BioJavaResidueInfoFactory());
+
+        PrintStream out = System.out;
+        PrintStream err = System.err;
+        double bytesPerResidue;
+        BioJavaChainProxy gapped;
+        try {
+            // the proxy logs every chain and every residue without coordinates
+            PrintStream quiet = new PrintStream(new OutputStream() {
+                public void write(int b) {
+                }
+            });
+            System.setOut(quiet);
+            System.setErr(quiet);
+
+            Chain chain = SyntheticStructures.createChain("A", length, 1);
+            // warm up
+            new BioJavaChainProxy(chain).getResidueIds(ResidueNumberScheme.ATOM);
+
+            long before = usedMemory();
+            List<BioJavaChainProxy> proxies = new ArrayList<BioJavaChainProxy>(chains);
+            for (int i = 0; i < chains; i++) {
+                BioJavaChainProxy proxy = new BioJavaChainProxy(chain);
+                proxy.getResidueIds(ResidueNumberScheme.ATOM);
+                proxies.add(proxy);
+            }
+            bytesPerResidue = (usedMemory() - before) / (double) chains / length;
+            proxies.clear();
+
+            Chain withGap = SyntheticStructures.createChain("B", length, 2);
+            List<Group> atomGroups = withGap.getAtomGroups();
+            for (int i = 0; i < length / 3; i++) {
+                atomGroups.remove(length / 3);
+            }
+            gapped = new BioJavaChainProxy(withGap);
+            gapped.getResidueIds(ResidueNumberScheme.ATOM);
+        } finally {
+            System.setOut(out);
+            System.setErr(err);
+        }
+
+        List<ResidueId> seqres = new ArrayList<ResidueId>(gapped.getResidueIds(ResidueNumberScheme.SEQRES));
+        // warm up
+        nextAndPrevious(seqres, 3);
+
+        out.println(chains + " chains of " + length + " residues");
+        out.println("bytes per residue\t" + String.format("%.1f", bytesPerResidue));
+        out.println("next and previous ATOM residue (ns)\t" + String.format("%.1f", nextAndPrevious(seqres, 10)));
+    }
+
+    /**
+     * @return the average time in ns to find the next and the previous ATOM residue of a SEQRES residue
+     */
+    private static double nextAndPrevious(List<ResidueId> seqres, int rounds) {
+        int found = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < rounds; i++) {
+            for (ResidueId rid : seqres) {
+                if (!rid.getNextEquivalentResidueId(ResidueNumberScheme.ATOM).isEndOfChainMarker())
+                    found++;
+                if (!rid.getPreviousEquivalentResidueId(ResidueNumberScheme.ATOM).isBeginningOfChainMarker())
+                    found++;
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        if (found == 0)
+            System.err.println("ResidueMappingBenchmark: no ATOM residues found");
+        return elapsed / (double) rounds / seqres.size();
+    }
+
+    private static long usedMemory() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 4; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
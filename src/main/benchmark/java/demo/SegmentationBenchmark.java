@@ -0,0 +1,103 @@
+package demo;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.biojava.nbio.structure.io.mmcif.ChemCompGroupFactory;
+import org.biojava.nbio.structure.io.mmcif.ReducedChemCompProvider;
+import org.rcsb.sequence.biojavadao.BioJavaChainProxy;
+import org.rcsb.sequence.biojavadao.BioJavaResidueInfoFactory;
+import org.rcsb.sequence.biojavadao.SyntheticStructures;
+import org.rcsb.sequence.core.ResidueProvider;
+import org.rcsb.sequence.core.SegmentedSequenceImpl;
+import org.rcsb.sequence.model.ResidueId;
+import org.rcsb.sequence.model.ResidueNumberScheme;
+
+/**
+ * Measures how long it takes to cut synthetic chains of 1000 to 40000 residues into segments of
+ * {@link SegmentedSequenceImpl#DEFAULT_FRAGMENT_LENGTH} residues, as is done for every line of a sequence image.
+ * The residue ids and annotation groups of the chains are created before timing starts.
+ * <p>
+ * Drawing asks the chain for the residues of every segment, the time that takes is measured as well.
+ * </p>
+ * <p>
+ * Usage: SegmentationBenchmark [rounds]
+ * </p>
+ */
+public class SegmentationBenchmark {
+
+    private static final int[] LENGTHS = {1000, 3000, 10000, 40000};
+
+    public static void main(String[] args) {
+        int rounds = args.length > 0 ? Integer.parseInt(args[0]) : 5;
+
+        ChemCompGroupFactory.setChemCompProvider(new ReducedChemCompProvider());
+        ResidueProvider.setResidueInfoFactory(new BioJavaResidueInfoFactory());
+
+        PrintStream out = System.out;
+        PrintStream err = System.err;
+        out.println("residues\tSEQRES segments (ms)\tATOM segments (ms)\tresidues of all segments (ms)");
+        try {
+            // the proxy logs every chain and every residue without coordinates
+            PrintStream quiet = new PrintStream(new OutputStream() {
+                public void write(int b) {
+                }
+            });
+            System.setOut(quiet);
+            System.setErr(quiet);
+
+            // warm up
+            BioJavaChainProxy warm = new BioJavaChainProxy(SyntheticStructures.createChain("A", 1000, 1));
+            segment(warm, ResidueNumberScheme.SEQRES, 10);
+            segment(warm, ResidueNumberScheme.ATOM, 10);
+            residuesOfSegments(warm, 10);
+
+            for (int length : LENGTHS) {
+                BioJavaChainProxy proxy = new BioJavaChainProxy(SyntheticStructures.createChain("A", length, length));
+                // the first segmentation also builds the annotation groups of the chain, keep that out of the timing
+                segment(proxy, ResidueNumberScheme.SEQRES, 1);
+                double seqres = segment(proxy, ResidueNumberScheme.SEQRES, rounds);
+                double atom = segment(proxy, ResidueNumberScheme.ATOM, rounds);
+                double between = residuesOfSegments(proxy, rounds);
+                out.println(length + "\t" + String.format("%.2f\t%.2f\t%.2f", seqres, atom, between));
+            }
+        } finally {
+            System.setOut(out);
+            System.setErr(err);
+        }
+    }
+
+    /**
+     * @return the average time in ms to segment the chain
+     */
+    private static double segment(BioJavaChainProxy proxy, ResidueNumberScheme rns, int rounds) {
+        long start = System.nanoTime();
+        for (int i = 0; i < rounds; i++) {
+            // not destroyed, that would destroy the chain as well
+            new SegmentedSequenceImpl(proxy, rns, SegmentedSequenceImpl.DEFAULT_FRAGMENT_LENGTH);
+        }
+        return (System.nanoTime() - start) / 1e6 / rounds;
+    }
+
+    /**
+     * @return the average time in ms to get the residues of every SEQRES segment from the chain
+     */
+    private static double residuesOfSegments(BioJavaChainProxy proxy, int rounds) {
+        List<ResidueId> residues = new ArrayList<ResidueId>(proxy.getResidueIds(ResidueNumberScheme.SEQRES));
+        int segmentLength = SegmentedSequenceImpl.DEFAULT_FRAGMENT_LENGTH;
+        long found = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < rounds; i++) {
+            for (int from = 0; from < residues.size(); from += segmentLength) {
+                int to = Math.min(from + segmentLength, residues.size()) - 1;
+                found += proxy.getResidueIdsBetween(residues.get(from), residues.get(to)).size();
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        if (found != (long) rounds * residues.size())
+            System.err.println("SegmentationBenchmark: found " + found + " residues");
+        return elapsed / 1e6 / rounds;
+    }
+}
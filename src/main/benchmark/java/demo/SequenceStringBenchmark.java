@@ -0,0 +1,70 @@
+package demo;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+
+import org.biojava.nbio.structure.io.mmcif.ChemCompGroupFactory;
+import org.biojava.nbio.structure.io.mmcif.ReducedChemCompProvider;
+import org.rcsb.sequence.biojavadao.BioJavaChainProxy;
+import org.rcsb.sequence.biojavadao.BioJavaResidueInfoFactory;
+import org.rcsb.sequence.biojavadao.SyntheticStructures;
+import org.rcsb.sequence.core.ResidueProvider;
+import org.rcsb.sequence.model.ResidueNumberScheme;
+
+/**
+ * Measures repeated requests for the ATOM sequence string of a synthetic chain, as made by exports that write the
+ * sequences of every chain.
+ * <p>
+ * Usage: SequenceStringBenchmark [residues] [calls]
+ * </p>
+ */
+public class SequenceStringBenchmark {
+
+    public static void main(String[] args) {
+        int length = args.length > 0 ? Integer.parseInt(args[0]) : 3000;
+        int calls = args.length > 1 ? Integer.parseInt(args[1]) : 200000;
+
+        ChemCompGroupFactory.setChemCompProvider(new ReducedChemCompProvider());
+        ResidueProvider.setResidueInfoFactory(new BioJavaResidueInfoFactory());
+
+        PrintStream out = System.out;
+        PrintStream err = System.err;
+        BioJavaChainProxy proxy;
+        try {
+            // the proxy logs every chain and every residue without coordinates
+            PrintStream quiet = new PrintStream(new OutputStream() {
+                public void write(int b) {
+                }
+            });
+            System.setOut(quiet);
+            System.setErr(quiet);
+
+            proxy = new BioJavaChainProxy(SyntheticStructures.createChain("A", length, 1));
+            proxy.getResidueIds(ResidueNumberScheme.ATOM);
+        } finally {
+            System.setOut(out);
+            System.setErr(err);
+        }
+
+        // warm up
+        sequenceString(proxy, calls);
+
+        out.println(length + " residues, " + calls + " calls");
+        out.println("ATOM sequence string (ns)\t" + String.format("%.1f", sequenceString(proxy, calls)));
+    }
+
+    /**
+     * @return the average time in ns of a call for the ATOM sequence string
+     */
+    private static double sequenceString(BioJavaChainProxy proxy, int calls) {
+        long characters = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < calls; i++) {
+            characters += proxy.getSequenceString(ResidueNumberScheme.ATOM).length();
+        }
+        long elapsed = System.nanoTime() - start;
+        if (characters == 0)
+            System.err.println("SequenceStringBenchmark: empty ATOM sequence");
+        return elapsed / (double) calls;
+    }
+}
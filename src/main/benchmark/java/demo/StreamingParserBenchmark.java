@@ -0,0 +1,133 @@
+package demo;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.rcsb.sequence.biojavadao.BioJavaResidueInfoFactory;
+import org.rcsb.sequence.biojavadao.BioJavaSequenceCollectionFactory;
+import org.rcsb.sequence.biojavadao.LocalPdbMirror;
+import org.rcsb.sequence.core.LoadProfile;
+import org.rcsb.sequence.core.ResidueProvider;
+import org.rcsb.sequence.filedao.StreamingSequenceCollectionFactory;
+import org.rcsb.sequence.model.Chain;
+import org.rcsb.sequence.model.ResidueNumberScheme;
+import org.rcsb.sequence.model.SequenceCollection;
+
+/**
+ * Compares the time and heap needed to build the residue model of entries of a local PDB mirror through BioJava
+ * ({@link LoadProfile#RESIDUE_MAPPING} and {@link LoadProfile#FULL}) and through the streaming parser.
+ * Large assemblies show the difference best.
+ * <p>
+ * Usage: StreamingParserBenchmark mirrorDirectory [rounds] [structureId ...]
+ * </p>
+ * Without structure ids all entries of the mirror are used.
+ */
+public class StreamingParserBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1) {
+            System.err.println("Usage: StreamingParserBenchmark mirrorDirectory [rounds] [structureId ...]");
+            return;
+        }
+        LocalPdbMirror mirror = new LocalPdbMirror(new File(args[0]));
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+
+        List<String> ids = new ArrayList<String>();
+        if (args.length > 2) {
+            ids.addAll(Arrays.asList(args).subList(2, args.length));
+        } else {
+            ids.addAll(LocalPdbMirror.scan(mirror.getRoot()).keySet());
+        }
+
+        ResidueProvider.setResidueInfoFactory(new BioJavaResidueInfoFactory());
+        // offline, as the mirror
+        BioJavaSequenceCollectionFactory.useBundledChemCompDefinitions();
+        BioJavaSequenceCollectionFactory bioJava = new BioJavaSequenceCollectionFactory(mirror);
+        StreamingSequenceCollectionFactory streaming = new StreamingSequenceCollectionFactory(mirror);
+
+        System.out.println("structure\tresidues\tBioJava full (ms)\tBioJava mapping (ms)\tstreaming (ms)\tBioJava full (KB)\tBioJava mapping (KB)\tstreaming (KB)");
+        for (String id : ids) {
+            if (bioJava.get(id, LoadProfile.FULL) == null) {
+                System.out.println(id + "\tBioJava could not load this entry");
+                continue;
+            }
+            // warm up, and make sure all chemical components are known
+            run(bioJava, streaming, id, LoadProfile.FULL, 2);
+            run(bioJava, streaming, id, null, 2);
+
+            int residues = countResidues(streaming.get(id));
+            double full = run(bioJava, streaming, id, LoadProfile.FULL, rounds);
+            double mapping = run(bioJava, streaming, id, LoadProfile.RESIDUE_MAPPING, rounds);
+            double stream = run(bioJava, streaming, id, null, rounds);
+
+            long fullHeap = retainedHeap(bioJava, streaming, id, LoadProfile.FULL, rounds);
+            long mappingHeap = retainedHeap(bioJava, streaming, id, LoadProfile.RESIDUE_MAPPING, rounds);
+            long streamHeap = retainedHeap(bioJava, streaming, id, null, rounds);
+
+            System.out.println(id + "\t" + residues + "\t" + String.format("%.1f\t%.1f\t%.1f", full, mapping, stream)
+                    + "\t" + fullHeap / 1024 + "\t" + mappingHeap / 1024 + "\t" + streamHeap / 1024);
+        }
+    }
+
+    /**
+     * @return the average time in ms to load an entry and create its SEQRES and ATOM residue ids
+     */
+    private static double run(BioJavaSequenceCollectionFactory bioJava, StreamingSequenceCollectionFactory streaming,
+                              String id, LoadProfile profile, int rounds) {
+        long start = System.nanoTime();
+        for (int i = 0; i < rounds; i++) {
+            SequenceCollection c = load(bioJava, streaming, id, profile);
+            countResidues(c);
+            c.destroy();
+        }
+        return (System.nanoTime() - start) / 1e6 / rounds;
+    }
+
+    private static SequenceCollection load(BioJavaSequenceCollectionFactory bioJava, StreamingSequenceCollectionFactory streaming,
+                                           String id, LoadProfile profile) {
+        if (profile == null)
+            return streaming.get(id);
+        // measure parsing, not the cache
+        BioJavaSequenceCollectionFactory.getCollectionCache().remove(id);
+        return bioJava.get(id, profile);
+    }
+
+    private static int countResidues(SequenceCollection c) {
+        int residues = 0;
+        for (Chain chain : c.getChains().values()) {
+            residues += chain.getResidueIds(ResidueNumberScheme.SEQRES).size();
+            chain.getResidueIds(ResidueNumberScheme.ATOM);
+        }
+        return residues;
+    }
+
+    private static long usedHeap() {
+        Runtime rt = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return rt.totalMemory() - rt.freeMemory();
+    }
+
+    /**
+     * @return the heap used by a loaded entry with its residue ids, averaged over several copies
+     */
+    private static long retainedHeap(BioJavaSequenceCollectionFactory bioJava, StreamingSequenceCollectionFactory streaming,
+                                     String id, LoadProfile profile, int copies) {
+        List<SequenceCollection> loaded = new ArrayList<SequenceCollection>(copies);
+        long before = usedHeap();
+        for (int i = 0; i < copies; i++) {
+            SequenceCollection c = load(bioJava, streaming, id, profile);
+            countResidues(c);
+            loaded.add(c);
+        }
+        BioJavaSequenceCollectionFactory.getCollectionCache().remove(id);
+        long after = usedHeap();
+        for (SequenceCollection c : loaded) {
+            c.destroy();
+        }
+        return (after - before) / copies;
+    }
+}
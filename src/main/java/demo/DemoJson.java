@@ -36,11 +36,6 @@ public class DemoJson {
 
     public String viewMultiLine(String pdbId, String chainId) {
 
-        SequenceCollection coll = SequenceCollectionProvider.get(pdbId);
-
-        Sequence s = coll.getChainByPDBID(chainId);
-        s.ensureAnnotated();
-
         ViewParameters params = new ViewParameters();
         Collection<AnnotationName> annos = params.getAnnotations();
 
@@ -52,6 +47,11 @@ public class DemoJson {
         newAnnos.add(AnnotationRegistry.getAnnotationByName(AnnotationConstants.siteRecord));
         params.setAnnotations(newAnnos);
 
+        SequenceCollection coll = SequenceCollectionProvider.get(pdbId, params.getLoadProfile());
+
+        Sequence s = coll.getChainByPDBID(chainId);
+        s.ensureAnnotated();
+
         PageView pv = new PageView(0, params);
 
 
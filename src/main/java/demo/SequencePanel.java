@@ -89,17 +89,17 @@ public class SequencePanel {
 
     public BufferedImage viewOneLine(String pdbId, String chainId) {
 
-        SequenceCollection coll = SequenceCollectionProvider.get(pdbId);
-
-        Sequence s = coll.getChainByPDBID(chainId);
-        s.ensureAnnotated();
-
         ViewParameters params = new ViewParameters();
 
         //params.setAnnotations(AnnotationRegistry.getAllAnnotations());
         params.setDesiredTopRulerRns(ResidueNumberScheme.ATOM);
         params.setDesiredBottomRulerRns(ResidueNumberScheme.SEQRES);
 
+        SequenceCollection coll = SequenceCollectionProvider.get(pdbId, params.getLoadProfile());
+
+        Sequence s = coll.getChainByPDBID(chainId);
+        s.ensureAnnotated();
+
 
         //ChainView view = new ChainView(s, params);
         params.setFontSize(1);
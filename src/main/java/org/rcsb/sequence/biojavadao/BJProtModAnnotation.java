@@ -4,7 +4,9 @@ import static org.rcsb.sequence.conf.AnnotationClassification.structuralFeature;
 import static org.rcsb.sequence.model.ResidueNumberScheme.ATOM;
 import static org.rcsb.sequence.model.ResidueNumberScheme.SEQRES;
 
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.Set;
 
 import org.biojava.nbio.protmod.ProteinModification;
@@ -30,6 +32,7 @@ public class BJProtModAnnotation extends AbstractAnnotationGroup<ModifiedCompoun
     private static final long serialVersionUID = -7395869127810790810L;
     private BioJavaChainProxy proxy;
     private Set<ProteinModification> protMods;
+    private transient Set<ModifiedCompound> crossChainModComps = Collections.emptySet();
 
     public BJProtModAnnotation(BioJavaChainProxy chain, AnnotationClassification ac,
                                AnnotationName name) {
@@ -55,18 +58,26 @@ public class BJProtModAnnotation extends AbstractAnnotationGroup<ModifiedCompoun
 
         Chain bj = proxy.getBJChain();
 
+        // the modifications of all chains are identified together and shared through the collection,
+        // a custom set of modifications is only looked for on this chain
+        BioJavaSequenceCollection collection = proxy.getBioJavaSequenceCollection();
+        Set<ModifiedCompound> modComps;
+        if (collection != null && protMods == null) {
+            modComps = collection.getModifiedCompounds(bj.getChainID());
+        } else {
+            final ProteinModificationIdentifier ptmIdentifier = new ProteinModificationIdentifier();
 
-        final ProteinModificationIdentifier ptmIdentifier = new ProteinModificationIdentifier();
+            ptmIdentifier.setRecordAdditionalAttachments(false);
 
-        ptmIdentifier.setRecordAdditionalAttachments(false);
+            ptmIdentifier.identify(bj, protMods != null ? protMods : ProteinModificationRegistry.allModifications());
 
-        ptmIdentifier.identify(bj, protMods != null ? protMods : ProteinModificationRegistry.allModifications());
-
-
-        Set<ModifiedCompound> modComps = ptmIdentifier.getIdentifiedModifiedCompound();
+            modComps = ptmIdentifier.getIdentifiedModifiedCompound();
+        }
 
         System.out.println("We identified " + modComps.size() + " modifications on chain " + bj.getChainID());
 
+        Set<ModifiedCompound> crossChains = new LinkedHashSet<ModifiedCompound>();
+
         for (ModifiedCompound mc : modComps) {
             System.out.println("====");
             System.out.println("Modified compound: ");
@@ -74,8 +85,10 @@ public class BJProtModAnnotation extends AbstractAnnotationGroup<ModifiedCompoun
             System.out.println("    " + mc.getModification().toString());
             //String xml = ModifiedCompoundXMLConverter.toXML(mc);
             //System.out.println(xml);
-            if (mc.crossChains())
+            if (mc.crossChains()) {
+                crossChains.add(mc);
                 continue; // skip cross-chain modifications
+            }
 
             ProtModValue cv = new ProtModValue(mc);
             Set<StructureGroup> groups = mc.getGroups(true);
@@ -87,6 +100,13 @@ public class BJProtModAnnotation extends AbstractAnnotationGroup<ModifiedCompoun
                 }
             }
         }
+        crossChainModComps = Collections.unmodifiableSet(crossChains);
+    }
+
+    @Override
+    public void destroy() {
+        super.destroy();
+        crossChainModComps = Collections.emptySet();
     }
 
     @Override
@@ -103,4 +123,13 @@ public class BJProtModAnnotation extends AbstractAnnotationGroup<ModifiedCompoun
         return ptms;
     }
 
+    /**
+     * @return the modifications that link this chain to other chains. These are not annotations of the group,
+     * since the view draws one chain at a time.
+     */
+    public Set<ModifiedCompound> getCrossChainModCompounds() {
+        ensureAnnotationsConstructed();
+        return crossChainModComps;
+    }
+
 }
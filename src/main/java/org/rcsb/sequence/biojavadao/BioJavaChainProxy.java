@@ -5,9 +5,15 @@ import static org.rcsb.sequence.model.PolymerType.PROTEIN_ONLY;
 
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Iterator;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 
@@ -29,11 +35,12 @@ import org.rcsb.sequence.conf.AnnotationRegistry;
 import org.rcsb.sequence.core.AbstractSequence;
 import org.rcsb.sequence.core.ProtModAnnotationGroup;
 import org.rcsb.sequence.core.ResidueIdImpl;
+import org.rcsb.sequence.core.ResidueIndex;
 import org.rcsb.sequence.core.ResidueProvider;
+import org.rcsb.sequence.model.AnnotationGroup;
 import org.rcsb.sequence.model.Chain;
 import org.rcsb.sequence.model.PolymerType;
 import org.rcsb.sequence.model.Reference;
-import org.rcsb.sequence.model.ResidueId;
 import org.rcsb.sequence.model.ResidueInfo;
 import org.rcsb.sequence.model.ResidueNumberScheme;
 import org.rcsb.sequence.model.SequenceCollection;
@@ -53,8 +60,30 @@ public class BioJavaChainProxy extends AbstractSequence implements Chain {
     org.biojava.nbio.structure.Chain bj = null;
     private PolymerType polymerType;
 
+    private static volatile ExecutorService annotationExecutor = null;
+
+    // keyed by annotation name, in registration order
+    private final Map<String, Long> annotationTimings = Collections.synchronizedMap(new LinkedHashMap<String, Long>());
+
+    // not returned by getSequenceCollection(), to avoid circular references
+    private transient BioJavaSequenceCollection collection;
+
+    // group positions in the BioJava chain, built on first use
+    private transient Map<Group, Integer> atomPositions;
+    private transient Map<String, Integer> seqResPositions;
+
     public BioJavaChainProxy(org.biojava.nbio.structure.Chain bj) {
+        this(bj, null);
+    }
+
+    /**
+     * @param bj
+     * @param collection the collection this chain belongs to, which holds data that is shared by all chains
+     *                   of the structure. May be null.
+     */
+    public BioJavaChainProxy(org.biojava.nbio.structure.Chain bj, BioJavaSequenceCollection collection) {
         super(bj.getSeqResSequence());
+        this.collection = collection;
         System.out.println("created new BiojavaChainProxy for " + bj.getSeqResSequence());
 
         instantiated = new AtomicBoolean();
@@ -63,55 +92,88 @@ public class BioJavaChainProxy extends AbstractSequence implements Chain {
         annotated.set(false);
 
         this.bj = bj;
-        for (int i = 0; i < bj.getAtomGroups().size(); i++) {
+        polymerType = findPolymerType(bj.getAtomGroups());
+        if (polymerType == null) {
+            // structures that were loaded without coordinates only have SEQRES groups
+            polymerType = findPolymerType(bj.getSeqResGroups());
+        }
 
-            Group g = bj.getAtomGroup(i);
+    }
 
+    private static PolymerType findPolymerType(List<Group> groups) {
+        for (Group g : groups) {
             ChemComp cc = g.getChemComp();
-            if (cc.getPolymerType() == null)
+            if (cc == null || cc.getPolymerType() == null)
                 continue;
-            polymerType = PolymerType.polymerTypeFromString(cc.getPolymerType().name());
-            break;
+            return PolymerType.polymerTypeFromString(cc.getPolymerType().name());
         }
-
+        return null;
     }
 
     protected BioJavaChainProxy(String sequence) {
         super(sequence);
     }
 
-    public Integer getSeqPosition(String pdbResNum, String insCode) {
-        List<Group> groups = bj.getSeqResGroups();
-        int i = -1;
-        String code = pdbResNum + insCode;
+    /**
+     * Index the positions of the groups of the BioJava chain, in one pass over the SEQRES and ATOM groups.
+     */
+    private synchronized void ensurePositionsIndexed() {
+        if (atomPositions != null)
+            return;
 
-        for (Group g : groups) {
-            i++;
+        // groups do not override equals(), so they are keyed by identity
+        Map<Group, Integer> atoms = new IdentityHashMap<Group, Integer>();
+        int pos = 0;
+        for (Group g : bj.getAtomGroups()) {
+            if (!atoms.containsKey(g))
+                atoms.put(g, pos);
+            pos++;
+        }
+
+        Map<String, Integer> seqRes = new HashMap<String, Integer>();
+        pos = 0;
+        for (Group g : bj.getSeqResGroups()) {
             if (g.getResidueNumber() != null) {
-                if (g.getResidueNumber().toString().equals(code)) {
-                    return i;
-                }
+                String code = g.getResidueNumber().toString();
+                if (!seqRes.containsKey(code))
+                    seqRes.put(code, pos);
             }
+            pos++;
         }
-        return -1;
+
+        seqResPositions = seqRes;
+        atomPositions = atoms;
+    }
+
+    public Integer getSeqPosition(String pdbResNum, String insCode) {
+        ensurePositionsIndexed();
+        Integer pos = seqResPositions.get(pdbResNum + insCode);
+        return pos == null ? -1 : pos;
     }
 
     public Integer getAtomPosition(Group g) {
-        int pos = -1;
-        for (Group gr : bj.getAtomGroups()) {
-            pos++;
-            if (gr.equals(g))
-                return pos;
-        }
-        return -1;
+        ensurePositionsIndexed();
+        Integer pos = atomPositions.get(g);
+        return pos == null ? -1 : pos;
     }
 
     public org.biojava.nbio.structure.Chain getBJChain() {
         return bj;
     }
 
+    /**
+     * @return the collection that created this chain, or null
+     */
+    BioJavaSequenceCollection getBioJavaSequenceCollection() {
+        return collection;
+    }
+
     public void setBJChain(org.biojava.nbio.structure.Chain bj) {
         this.bj = bj;
+        synchronized (this) {
+            atomPositions = null;
+            seqResPositions = null;
+        }
     }
 
     @Override
@@ -122,19 +184,15 @@ public class BioJavaChainProxy extends AbstractSequence implements Chain {
         instantiated.set(true);
 
         // build up the SEQRES and ATOM mappings...
-        Map<ResidueNumberScheme, Map<String, ResidueId>> residueIdMaps = getResidueIdMaps();
-
         ResidueIdImpl equivResId;
 
         Character insertionCode;
         ResidueInfo theResidue;
 
 
-        String pdbkey;
-
-        Map<String, ResidueId> ARRAYMAP = residueIdMaps.get(ResidueNumberScheme._ARRAY_IDX);
-        Map<String, ResidueId> ATOMMAP = residueIdMaps.get(ResidueNumberScheme.ATOM);
-        Map<String, ResidueId> SEQRESMAP = residueIdMaps.get(ResidueNumberScheme.SEQRES);
+        ResidueIndex ARRAYMAP = getResidueIndex(ResidueNumberScheme._ARRAY_IDX);
+        ResidueIndex ATOMMAP = getResidueIndex(ResidueNumberScheme.ATOM);
+        ResidueIndex SEQRESMAP = getResidueIndex(ResidueNumberScheme.SEQRES);
 
 
         int index = -1;
@@ -158,15 +216,14 @@ public class BioJavaChainProxy extends AbstractSequence implements Chain {
 
             equivResId = new ResidueIdImpl(ResidueNumberScheme._ARRAY_IDX, this, index, theResidue);
 
-            ARRAYMAP.put(String.valueOf(index), equivResId);
-            SEQRESMAP.put((index + 1) + "", new ResidueIdImpl(ResidueNumberScheme.SEQRES, this, index + 1, theResidue, equivResId));
+            ARRAYMAP.put(equivResId);
+            SEQRESMAP.put(new ResidueIdImpl(ResidueNumberScheme.SEQRES, this, index + 1, theResidue, equivResId));
 
             // if no pdb id, that's ok
             int atomPos = getAtomPosition(g);
             if (atomPos >= 0) {
                 int authSeqNum = pdbResNum.getSeqNum();
-                pdbkey = authSeqNum + "" + (insertionCode == null ? "" : insertionCode);
-                ATOMMAP.put(pdbkey, new ResidueIdImpl(ResidueNumberScheme.ATOM, this,
+                ATOMMAP.put(new ResidueIdImpl(ResidueNumberScheme.ATOM, this,
                         authSeqNum,
                         insertionCode, theResidue, equivResId));
                 //System.out.println("mapped " + atomPos + " " + g );
@@ -179,53 +236,6 @@ public class BioJavaChainProxy extends AbstractSequence implements Chain {
         linkResidues();
     }
 
-    private void linkResidues() {
-        //    for each collection of residueIds
-        for (ResidueNumberScheme rns : getResidueIdMaps().keySet()) {
-            linkResidues(rns);
-        }
-    }
-
-    private void linkResidues(ResidueNumberScheme rns) {
-
-        //PdbLogger.info("ChainImpl: linking " +rns);
-        Map<String, ResidueId> ridMap = getResidueIdMaps().get(rns);
-        if (ridMap != null) {
-            // for each residueId..
-            Iterator<ResidueId> resIt = ridMap.values().iterator();
-
-            ;
-            /*
-			 * Take the first residue and put it into 'prev'. we don't
-			 * need to set it up with a previous residue because it's the
-			 * first in teh chain and the default previous residue is
-			 * BEGINNING_OF_CHAIN
-			 */
-            if (resIt.hasNext()) {
-                ResidueIdImpl prev = (ResidueIdImpl) resIt.next();
-                //PdbLogger.info("ChainImpl: first residue: " + prev);
-
-                ResidueIdImpl cur = null;
-
-                while (resIt.hasNext()) {
-                    cur = (ResidueIdImpl) resIt.next();
-                    cur.setPrevious(prev);
-                    prev.setNext(cur);
-                    prev = cur;
-                }
-                //.info("last residue: " + cur);
-            }
-
-			/*
-			 * Now that we are at the end, we don't need to do anything
-			 * for the last residue because the default next residue is
-			 * END_OF_CHAIN
-			 */
-        }
-
-    }
-
-
     public Integer getEntityId() {
         Structure s = bj.getParent();
         List<Compound> compounds = s.getCompounds();
@@ -248,7 +258,8 @@ public class BioJavaChainProxy extends AbstractSequence implements Chain {
 
         annotated.set(true);
 
-        // build up annotation groups for
+        // the groups are only registered here. Each one is constructed when its annotations are first requested,
+        // or together with the other groups a view needs by ensureAnnotated(Collection<AnnotationName>)
 
 
 
@@ -273,11 +284,6 @@ public class BioJavaChainProxy extends AbstractSequence implements Chain {
         );
         AnnotationRegistry.registerAnnotation(scop);
         BjSCOPAnnotation test = new BjSCOPAnnotation(this, AnnotationClassification.strdom, scop);
-        try {
-            test.constructAnnotations();
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
         addAnnotationGroup(test);
 
         // protein modifications
@@ -306,11 +312,6 @@ public class BioJavaChainProxy extends AbstractSequence implements Chain {
                         structuralFeature,
                         mrName);
 
-        try {
-            mrag.constructAnnotations();
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
         addAnnotationGroup(mrag);
 
 
@@ -332,11 +333,6 @@ public class BioJavaChainProxy extends AbstractSequence implements Chain {
                         structuralFeature,
                         siteName);
 
-        try {
-            siteG.constructAnnotations();
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
         addAnnotationGroup(siteG);
 
 //		// DSSP as assigned by BioJava
@@ -358,12 +354,6 @@ public class BioJavaChainProxy extends AbstractSequence implements Chain {
         AnnotationRegistry.registerAnnotation(secStrucDssp);
 
         BioJavaDsspAnnotationGroup secdsspanno = new BioJavaDsspAnnotationGroup(this, dsscac, secStrucDssp);
-        try {
-            secdsspanno.constructAnnotations();
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
-
         addAnnotationGroup(secdsspanno);
 
         // author assigned secondary structure
@@ -384,11 +374,6 @@ public class BioJavaChainProxy extends AbstractSequence implements Chain {
 
         AnnotationRegistry.registerAnnotation(secName);
         BioJavaSecStrucAnnotationGroup secanno = new BioJavaSecStrucAnnotationGroup(this, cla, secName);
-        try {
-            secanno.constructAnnotations();
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
         addAnnotationGroup(secanno);
         }
 
@@ -418,12 +403,91 @@ public class BioJavaChainProxy extends AbstractSequence implements Chain {
 //			e.printStackTrace();
 //		}
 //		addAnnotationGroup(disulfg);
+    }
+
+    /**
+     * Construct the annotations of the groups, one after another or in parallel on the annotation executor.
+     *
+     * @param groups
+     */
+    @Override
+    protected void constructAnnotationGroups(List<AnnotationGroup<?>> groups) {
+        ExecutorService executor = annotationExecutor;
+
+        // keeps the timings in request order when the groups finish in a different order
+        for (AnnotationGroup<?> group : groups) {
+            annotationTimings.put(group.getName().getName(), -1L);
+        }
 
+        if (executor == null) {
+            for (AnnotationGroup<?> group : groups) {
+                constructAnnotationGroup(group);
+            }
+        } else {
+            // shared state that the groups would otherwise create concurrently
+            ensureResiduesInstantiated();
+            ensurePositionsIndexed();
+
+            List<Future<?>> futures = new ArrayList<Future<?>>(groups.size());
+            for (final AnnotationGroup<?> group : groups) {
+                futures.add(executor.submit(new Runnable() {
+                    public void run() {
+                        constructAnnotationGroup(group);
+                    }
+                }));
+            }
+            for (Future<?> f : futures) {
+                try {
+                    f.get();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                } catch (ExecutionException e) {
+                    e.getCause().printStackTrace();
+                }
+            }
+        }
+    }
+
+    private void constructAnnotationGroup(AnnotationGroup<?> group) {
+        long start = System.nanoTime();
+        // waits for the group if another thread is already constructing it
+        group.getAnnotations();
+        annotationTimings.put(group.getName().getName(), (System.nanoTime() - start) / 1000000);
+    }
+
+    /**
+     * @return the time in ms it took to construct each annotation group of this chain that was requested through
+     * {@link #ensureAnnotated(java.util.Collection)}, in request order.
+     * Groups that are still being constructed have a time of -1.
+     */
+    public Map<String, Long> getAnnotationTimings() {
+        synchronized (annotationTimings) {
+            return new LinkedHashMap<String, Long>(annotationTimings);
+        }
+    }
+
+    /**
+     * @return the executor on which the annotation groups of a chain are constructed, or null if they are constructed
+     * one after another by the calling thread
+     */
+    public static ExecutorService getAnnotationExecutor() {
+        return annotationExecutor;
+    }
+
+    /**
+     * Construct the annotation groups requested for a chain concurrently. The calling thread waits for all of them,
+     * and the groups keep their registration order.
+     *
+     * @param executor the executor to use, or null to construct them one after another (the default)
+     */
+    public static void setAnnotationExecutor(ExecutorService executor) {
+        annotationExecutor = executor;
     }
 
     public Collection<ResidueNumberScheme> getAvailableResidueNumberSchemes() {
         ensureAnnotated();
-        return getResidueIdMaps().keySet();
+        return getResidueIndexes().keySet();
     }
 
     public Chain getChain() {
@@ -46,11 +46,14 @@ public class BioJavaDsspAnnotationGroup extends AbstractAnnotationGroup<String>
     @Override
     protected void constructAnnotationsImpl() throws Exception {
 
-        Structure structure  = proxy.getBJChain().getStructure();
-
-        SecStrucCalc calc = new SecStrucCalc();
-
-        calc.calculate(structure,true);
+        BioJavaSequenceCollection collection = proxy.getBioJavaSequenceCollection();
+        if (collection != null) {
+            // shared by all chains of the structure
+            collection.ensureSecondaryStructureCalculated();
+        } else {
+            Structure structure = proxy.getBJChain().getStructure();
+            new SecStrucCalc().calculate(structure, true);
+        }
 
         SecStrucType prevSecStr = null;
         int prevStart = -1;
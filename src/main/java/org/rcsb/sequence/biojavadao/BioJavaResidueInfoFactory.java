@@ -2,8 +2,10 @@ package org.rcsb.sequence.biojavadao;
 
 import java.util.Collections;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
 
-import org.biojava.nbio.core.util.SoftHashMap;
 import org.biojava.nbio.structure.io.mmcif.ChemCompGroupFactory;
 import org.biojava.nbio.structure.io.mmcif.model.ChemComp;
 import org.rcsb.sequence.core.ResidueProvider;
@@ -13,12 +15,37 @@ import org.rcsb.sequence.model.ResidueInfoFactory;
 import org.rcsb.sequence.util.ResidueTools;
 
 
+/**
+ * Provides one shared {@link ResidueInfo} per chemical component. The residues are looked up once per residue of
+ * every chain that is loaded, so they are cached without locking. Residues are only loaded when they are first
+ * looked up, unless {@link #preloadStandardResidues()} is called.
+ */
 public class BioJavaResidueInfoFactory implements ResidueInfoFactory {
 
-    static SoftHashMap cache;
+    private static final String[] STANDARD_MON_IDS = {
+            "ALA", "ARG", "ASN", "ASP", "CYS", "GLN", "GLU", "GLY", "HIS", "ILE",
+            "LEU", "LYS", "MET", "PHE", "PRO", "SER", "THR", "TRP", "TYR", "VAL",
+            "A", "C", "G", "U", "DA", "DC", "DG", "DT"};
 
-    static {
-        cache = new SoftHashMap(0);
+    private final ConcurrentMap<String, ResidueInfo> cache = new ConcurrentHashMap<String, ResidueInfo>(256);
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * Uses the chemical component provider of the {@link ChemCompGroupFactory}, which should be configured
+     * before the first residue is looked up.
+     */
+    public BioJavaResidueInfoFactory() {
+    }
+
+    /**
+     * Loads the standard amino acids and nucleotides, which may download or parse their chemical components.
+     */
+    public void preloadStandardResidues() {
+        for (String monId : STANDARD_MON_IDS) {
+            if (!cache.containsKey(monId))
+                cache.putIfAbsent(monId, createResidue(monId));
+        }
     }
 
     /**
@@ -26,18 +53,50 @@ public class BioJavaResidueInfoFactory implements ResidueInfoFactory {
      */
     public ResidueInfo getResidue(String monId) {
 
-        BioJavaResidueInfo ri = (BioJavaResidueInfo) cache.get(monId);
-        if (ri != null)
+        ResidueInfo ri = cache.get(monId);
+        if (ri != null) {
+            hits.incrementAndGet();
             return ri;
+        }
+
+        misses.incrementAndGet();
+        ri = createResidue(monId);
+
+        // another thread may have created the same residue in the mean time
+        ResidueInfo existing = cache.putIfAbsent(monId, ri);
+        return existing != null ? existing : ri;
+    }
 
+    private static ResidueInfo createResidue(String monId) {
         ChemComp cc = ChemCompGroupFactory.getChemComp(monId);
 
-        ri = new BioJavaResidueInfo();
+        BioJavaResidueInfo ri = new BioJavaResidueInfo();
         ri.setChemComp(cc);
 
         return ri;
     }
 
+    /**
+     * @return the number of lookups that were answered from the cache
+     */
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    /**
+     * @return the number of lookups that had to create a residue
+     */
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    /**
+     * @return the number of residues in the cache
+     */
+    public int getCachedResidueCount() {
+        return cache.size();
+    }
+
 
     public ResidueInfo getResidue(PolymerType pt, Character oneLetterCode) {
 
@@ -51,15 +110,14 @@ public class BioJavaResidueInfoFactory implements ResidueInfoFactory {
                 theMapToUse = ResidueTools.DNA_LOOKUP_1TO2;
                 break;
             case rna:
-                return ResidueProvider.getResidue(oneLetterCode.toString().toUpperCase());
+                return ResidueProvider.getResidue(String.valueOf(Character.toUpperCase(oneLetterCode.charValue())));
             default:
                 theMapToUse = Collections.emptyMap();
                 break;
         }
         if ((monId = theMapToUse.get(oneLetterCode)) != null) {
             return ResidueProvider.getResidue(monId);
-        } else if ((monId = theMapToUse.get(oneLetterCode.toString().toUpperCase().charAt(0))) != null) // TODO find an efficient way to convert Character to upper-case equiv
-        {
+        } else if ((monId = theMapToUse.get(Character.toUpperCase(oneLetterCode.charValue()))) != null) {
             return ResidueProvider.getResidue(monId);
         } else {
             throw new RuntimeException("Could not find " + pt.toString() + " with code " + oneLetterCode);
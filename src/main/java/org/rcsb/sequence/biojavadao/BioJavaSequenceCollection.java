@@ -2,13 +2,29 @@ package org.rcsb.sequence.biojavadao;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
-
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+import org.biojava.nbio.protmod.ProteinModification;
+import org.biojava.nbio.protmod.ProteinModificationRegistry;
+import org.biojava.nbio.protmod.structure.ModifiedCompound;
+import org.biojava.nbio.protmod.structure.ProteinModificationIdentifier;
+import org.biojava.nbio.protmod.structure.StructureGroup;
+import org.biojava.nbio.structure.Atom;
 import org.biojava.nbio.structure.Compound;
+import org.biojava.nbio.structure.Group;
+import org.biojava.nbio.structure.Site;
 import org.biojava.nbio.structure.Structure;
 import org.biojava.nbio.structure.StructureException;
+import org.biojava.nbio.structure.secstruc.SecStrucCalc;
 import org.rcsb.sequence.model.Chain;
 import org.rcsb.sequence.model.PolymerType;
 import org.rcsb.sequence.model.ResidueNumberScheme;
@@ -18,6 +34,17 @@ import org.rcsb.sequence.model.SequenceCollection;
 public class BioJavaSequenceCollection implements SequenceCollection {
     Structure s;
 
+    private static final String SECONDARY_STRUCTURE = "DSSP";
+    private static final String MODIFIED_COMPOUNDS = "protein modifications";
+    private static final String CHAIN_CLUSTERS = "chain clusters";
+    private static final String SITES = "SITE records";
+
+    // chains further apart than this (in Angstrom) can not be linked by a modification
+    private static final double MAX_CROSSLINK_DISTANCE = 5.0;
+
+    // calculations over the whole structure whose results are shared by the chains, by name
+    private final Map<String, FutureTask<?>> calculations = new HashMap<String, FutureTask<?>>();
+
     public BioJavaSequenceCollection() {
         s = null;
     }
@@ -26,6 +53,10 @@ public class BioJavaSequenceCollection implements SequenceCollection {
         this.s = s;
     }
 
+    public Structure getStructure() {
+        return s;
+    }
+
     public int chainCount() {
         return s.size();
     }
@@ -34,8 +65,259 @@ public class BioJavaSequenceCollection implements SequenceCollection {
         return s.hasChain(chainId);
     }
 
+    /**
+     * Assign the DSSP secondary structure to all groups of the structure. This is done at most once,
+     * concurrent callers wait for the first one. The result is stored in the {@link Group#SEC_STRUC}
+     * property of the groups.
+     *
+     * @throws StructureException if the calculation failed
+     */
+    public void ensureSecondaryStructureCalculated() throws StructureException {
+        final Structure structure = s;
+        calculateOnce(SECONDARY_STRUCTURE, new Callable<Structure>() {
+            public Structure call() throws StructureException {
+                new SecStrucCalc().calculate(structure, true);
+                return structure;
+            }
+        });
+    }
+
+    /**
+     * The protein modifications of one chain. The chains are identified together with the chains they come close to,
+     * see {@link #getChainClusters(Structure)}, in a single pass the first time one of them is asked for. Concurrent
+     * callers wait for it.
+     *
+     * @param chainId
+     * @return the modified compounds with a group on the chain, including those that cross to other chains
+     * @throws StructureException if the identification failed
+     */
+    public Set<ModifiedCompound> getModifiedCompounds(String chainId) throws StructureException {
+        final Structure structure = s;
+        List<List<org.biojava.nbio.structure.Chain>> clusters = calculateOnce(CHAIN_CLUSTERS, new Callable<List<List<org.biojava.nbio.structure.Chain>>>() {
+            public List<List<org.biojava.nbio.structure.Chain>> call() {
+                return getChainClusters(structure);
+            }
+        });
+
+        for (int i = 0; i < clusters.size(); i++) {
+            final List<org.biojava.nbio.structure.Chain> cluster = clusters.get(i);
+            if (!containsChain(cluster, chainId))
+                continue;
+            Map<String, Set<ModifiedCompound>> byChain = calculateOnce(MODIFIED_COMPOUNDS + " " + i, new Callable<Map<String, Set<ModifiedCompound>>>() {
+                public Map<String, Set<ModifiedCompound>> call() {
+                    return partitionByChain(identify(cluster, ProteinModificationRegistry.allModifications()));
+                }
+            });
+            Set<ModifiedCompound> result = byChain.get(chainId);
+            return result == null ? Collections.<ModifiedCompound>emptySet() : result;
+        }
+        return Collections.emptySet();
+    }
+
+    private static boolean containsChain(List<org.biojava.nbio.structure.Chain> chains, String chainId) {
+        for (org.biojava.nbio.structure.Chain c : chains) {
+            if (c.getChainID().equals(chainId))
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Groups the chains of the first model that can be linked by a modification: two chains are in the same cluster if
+     * their bounding boxes come within {@link #MAX_CROSSLINK_DISTANCE} of each other, directly or through other chains
+     * of the cluster. Identifying the clusters one by one gives the same compounds as identifying the whole structure,
+     * but does not compare the residues of chains that are far apart.
+     *
+     * @param structure
+     * @return the clusters, in the order of their first chain
+     */
+    static List<List<org.biojava.nbio.structure.Chain>> getChainClusters(Structure structure) {
+        List<org.biojava.nbio.structure.Chain> chains = structure.getChains();
+        double[][] bounds = new double[chains.size()][];
+        for (int i = 0; i < chains.size(); i++) {
+            bounds[i] = getBounds(chains.get(i));
+        }
+
+        // the first chain of the cluster of each chain
+        int[] root = new int[chains.size()];
+        for (int i = 0; i < chains.size(); i++) {
+            root[i] = i;
+        }
+        for (int i = 0; i < chains.size(); i++) {
+            for (int j = i + 1; j < chains.size(); j++) {
+                if (root[i] != root[j] && boundsTouch(bounds[i], bounds[j])) {
+                    int from = Math.max(root[i], root[j]), to = Math.min(root[i], root[j]);
+                    for (int k = 0; k < chains.size(); k++) {
+                        if (root[k] == from)
+                            root[k] = to;
+                    }
+                }
+            }
+        }
+
+        Map<Integer, List<org.biojava.nbio.structure.Chain>> clusters = new LinkedHashMap<Integer, List<org.biojava.nbio.structure.Chain>>();
+        for (int i = 0; i < chains.size(); i++) {
+            List<org.biojava.nbio.structure.Chain> cluster = clusters.get(root[i]);
+            if (cluster == null) {
+                cluster = new ArrayList<org.biojava.nbio.structure.Chain>();
+                clusters.put(root[i], cluster);
+            }
+            cluster.add(chains.get(i));
+        }
+        return new ArrayList<List<org.biojava.nbio.structure.Chain>>(clusters.values());
+    }
+
+    static Set<ModifiedCompound> identify(List<org.biojava.nbio.structure.Chain> chains, Set<ProteinModification> protMods) {
+        ProteinModificationIdentifier ptmIdentifier = new ProteinModificationIdentifier();
+        ptmIdentifier.setRecordAdditionalAttachments(false);
+        ptmIdentifier.identify(chains, protMods);
+        return ptmIdentifier.getIdentifiedModifiedCompound();
+    }
+
+    /**
+     * @return the minimum and maximum x, y and z of the atoms of the chain, or null if it has no atoms
+     */
+    private static double[] getBounds(org.biojava.nbio.structure.Chain c) {
+        double[] bounds = null;
+        for (Group g : c.getAtomGroups()) {
+            for (Atom a : g.getAtoms()) {
+                double[] xyz = {a.getX(), a.getY(), a.getZ()};
+                if (bounds == null) {
+                    bounds = new double[]{xyz[0], xyz[1], xyz[2], xyz[0], xyz[1], xyz[2]};
+                }
+                for (int d = 0; d < 3; d++) {
+                    bounds[d] = Math.min(bounds[d], xyz[d]);
+                    bounds[d + 3] = Math.max(bounds[d + 3], xyz[d]);
+                }
+            }
+        }
+        return bounds;
+    }
+
+    private static boolean boundsTouch(double[] a, double[] b) {
+        if (a == null || b == null)
+            return false;
+        for (int d = 0; d < 3; d++) {
+            if (a[d] > b[d + 3] + MAX_CROSSLINK_DISTANCE || b[d] > a[d + 3] + MAX_CROSSLINK_DISTANCE)
+                return false;
+        }
+        return true;
+    }
+
+    private static Map<String, Set<ModifiedCompound>> partitionByChain(Set<ModifiedCompound> modComps) {
+        Map<String, Set<ModifiedCompound>> byChain = new HashMap<String, Set<ModifiedCompound>>();
+        for (ModifiedCompound mc : modComps) {
+            for (StructureGroup group : mc.getGroups(true)) {
+                Set<ModifiedCompound> chainModComps = byChain.get(group.getChainId());
+                if (chainModComps == null) {
+                    chainModComps = new LinkedHashSet<ModifiedCompound>();
+                    byChain.put(group.getChainId(), chainModComps);
+                }
+                chainModComps.add(mc);
+            }
+        }
+        for (Map.Entry<String, Set<ModifiedCompound>> e : byChain.entrySet()) {
+            e.setValue(Collections.unmodifiableSet(e.getValue()));
+        }
+        return byChain;
+    }
+
+    /**
+     * The SITE records with a group on one chain. The sites of all chains are sorted by chain in one pass
+     * the first time this is called.
+     *
+     * @param chainId
+     * @return the sites, in the order of the structure
+     * @throws StructureException
+     */
+    public List<Site> getSites(String chainId) throws StructureException {
+        final Structure structure = s;
+        Map<String, List<Site>> byChain = calculateOnce(SITES, new Callable<Map<String, List<Site>>>() {
+            public Map<String, List<Site>> call() {
+                return partitionSitesByChain(structure.getSites());
+            }
+        });
+        List<Site> result = byChain.get(chainId);
+        return result == null ? Collections.<Site>emptyList() : result;
+    }
+
+    /**
+     * @param sites
+     * @return the sites by the id of each chain they have a group on
+     */
+    static Map<String, List<Site>> partitionSitesByChain(List<Site> sites) {
+        Map<String, List<Site>> byChain = new HashMap<String, List<Site>>();
+        if (sites == null)
+            return byChain;
+        for (Site site : sites) {
+            Set<String> chainIds = new LinkedHashSet<String>();
+            for (Group g : site.getGroups()) {
+                chainIds.add(g.getChain().getChainID());
+            }
+            for (String chainId : chainIds) {
+                addToChain(byChain, chainId, site);
+            }
+        }
+        return byChain;
+    }
+
+    private static <V> void addToChain(Map<String, List<V>> byChain, String chainId, V value) {
+        List<V> values = byChain.get(chainId);
+        if (values == null) {
+            values = new ArrayList<V>();
+            byChain.put(chainId, values);
+        }
+        values.add(value);
+    }
+
+    /**
+     * Runs a calculation over the whole structure at most once. Concurrent callers wait for the first one,
+     * a failed calculation is tried again by the next caller.
+     *
+     * @param name        identifies the calculation
+     * @param calculation
+     * @return the result of the calculation
+     * @throws StructureException if the calculation failed
+     */
+    @SuppressWarnings("unchecked")
+    private <V> V calculateOnce(String name, Callable<V> calculation) throws StructureException {
+        FutureTask<V> task;
+        boolean owner = false;
+        synchronized (calculations) {
+            task = (FutureTask<V>) calculations.get(name);
+            if (task == null) {
+                task = new FutureTask<V>(calculation);
+                calculations.put(name, task);
+                owner = true;
+            }
+        }
+
+        if (owner)
+            task.run();
+
+        try {
+            return task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new StructureException("Interrupted while waiting for " + name, e);
+        } catch (ExecutionException e) {
+            synchronized (calculations) {
+                // allow a later retry
+                if (calculations.get(name) == task)
+                    calculations.remove(name);
+            }
+            Throwable cause = e.getCause();
+            if (cause instanceof StructureException)
+                throw (StructureException) cause;
+            throw new StructureException(cause);
+        }
+    }
+
     public void destroy() {
         s = null;
+        synchronized (calculations) {
+            calculations.clear();
+        }
 
     }
 
@@ -43,7 +325,7 @@ public class BioJavaSequenceCollection implements SequenceCollection {
         try {
             org.biojava.nbio.structure.Chain c = s.getChainByPDB(chainId);
 
-            Chain bjc = new BioJavaChainProxy(c);
+            Chain bjc = new BioJavaChainProxy(c, this);
             return bjc;
         } catch (StructureException e) {
             e.printStackTrace();
@@ -55,7 +337,7 @@ public class BioJavaSequenceCollection implements SequenceCollection {
         try {
             org.biojava.nbio.structure.Chain c = s.getChainByPDB(chainId);
 
-            Chain bjc = new BioJavaChainProxy(c);
+            Chain bjc = new BioJavaChainProxy(c, this);
             return bjc;
         } catch (StructureException e) {
             e.printStackTrace();
@@ -68,7 +350,7 @@ public class BioJavaSequenceCollection implements SequenceCollection {
         Map<String, Chain> m = new HashMap<String, Chain>();
 
         for (org.biojava.nbio.structure.Chain c : s.getChains()) {
-            Chain bjc = new BioJavaChainProxy(c);
+            Chain bjc = new BioJavaChainProxy(c, this);
             m.put(c.getChainID(), bjc);
         }
 
@@ -86,7 +368,7 @@ public class BioJavaSequenceCollection implements SequenceCollection {
         List<org.biojava.nbio.structure.Chain> bjchains = comp.getChains();
 
         for (org.biojava.nbio.structure.Chain bjchain : bjchains) {
-            Chain proxiedC = new BioJavaChainProxy(bjchain);
+            Chain proxiedC = new BioJavaChainProxy(bjchain, this);
             chains.add(proxiedC);
         }
 
@@ -99,7 +381,7 @@ public class BioJavaSequenceCollection implements SequenceCollection {
         for (Compound c : s.getCompounds()) {
             List<org.biojava.nbio.structure.Chain> bjchains = c.getChains();
             if (bjchains.size() > 0) {
-                Chain bjc = new BioJavaChainProxy(bjchains.get(0));
+                Chain bjc = new BioJavaChainProxy(bjchains.get(0), this);
                 chains.put(bjchains.get(0).getChainID(), bjc);
             }
         }
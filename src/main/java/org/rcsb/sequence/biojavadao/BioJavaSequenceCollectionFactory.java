@@ -1,41 +1,141 @@
 package org.rcsb.sequence.biojavadao;
 
+import java.util.EnumMap;
+import java.util.Map;
+
 import org.biojava.nbio.structure.Structure;
 import org.biojava.nbio.structure.align.util.AtomCache;
 import org.biojava.nbio.structure.io.FileParsingParameters;
-import org.rcsb.sequence.core.SequenceCollectionFactory;
+import org.biojava.nbio.structure.io.mmcif.ChemCompGroupFactory;
+import org.biojava.nbio.structure.io.mmcif.DownloadChemCompProvider;
+import org.biojava.nbio.structure.io.mmcif.ReducedChemCompProvider;
+import org.rcsb.sequence.core.AbstractSequenceCollectionFactory;
+import org.rcsb.sequence.core.LoadProfile;
 import org.rcsb.sequence.model.SequenceCollection;
 
 
-public class BioJavaSequenceCollectionFactory implements
-        SequenceCollectionFactory {
+public class BioJavaSequenceCollectionFactory extends
+        AbstractSequenceCollectionFactory {
 
-    public SequenceCollection get(String structureId) {
+    // shared by all factories, so that popular entries are only parsed once per process
+    private static final SequenceCollectionCache collectionCache = new SequenceCollectionCache();
+
+    // the parsing parameters are a property of the AtomCache, so there is one per profile
+    private static final Map<LoadProfile, AtomCache> atomCaches = new EnumMap<LoadProfile, AtomCache>(LoadProfile.class);
+
+    private final LocalPdbMirror localMirror;
+
+    /**
+     * Load structures through the BioJava AtomCache, fetching files that are not available locally.
+     */
+    public BioJavaSequenceCollectionFactory() {
+        this(null);
+    }
+
+    /**
+     * Load structures only from a local PDB mirror. Entries that are not in the mirror can not be loaded
+     * and the network is not accessed for them. BioJava may still download chemical component definitions,
+     * see {@link #useBundledChemCompDefinitions()}.
+     *
+     * @param localMirror the mirror to read from, or null to use the AtomCache
+     */
+    public BioJavaSequenceCollectionFactory(LocalPdbMirror localMirror) {
+        this.localMirror = localMirror;
+    }
 
-        AtomCache cache = new AtomCache();
+    /**
+     * If BioJava is configured to download chemical component definitions, switch it to the definitions of the
+     * standard residues that are bundled with BioJava, so that nothing is downloaded while parsing.
+     * <p>
+     * The chemical component provider is global, this changes the residue information seen by every BioJava user
+     * in the process.
+     * </p>
+     */
+    public static void useBundledChemCompDefinitions() {
+        if (ChemCompGroupFactory.getChemCompProvider() instanceof DownloadChemCompProvider) {
+            ChemCompGroupFactory.setChemCompProvider(new ReducedChemCompProvider());
+        }
+    }
 
+    public static SequenceCollectionCache getCollectionCache() {
+        return collectionCache;
+    }
+
+    /**
+     * @param profile
+     * @return the cheapest parsing parameters that provide what the profile needs
+     */
+    public static FileParsingParameters getFileParsingParameters(LoadProfile profile) {
         FileParsingParameters params = new FileParsingParameters();
-        params.setAlignSeqRes(true);
         //params.setLoadChemCompInfo(true);
-        params.setHeaderOnly(false);
-        params.setParseSecStruc(true);
-        params.setUpdateRemediatedFiles(true);
+        switch (profile) {
+            case SEQUENCE:
+                // SEQRES records only, stop before the coordinates
+                params.setHeaderOnly(true);
+                params.setAlignSeqRes(false);
+                params.setParseSecStruc(false);
+                params.setCreateAtomBonds(false);
+                break;
+            case RESIDUE_MAPPING:
+                params.setHeaderOnly(false);
+                params.setAlignSeqRes(true);
+                params.setParseSecStruc(false);
+                params.setCreateAtomBonds(false);
+                break;
+            default:
+                params.setHeaderOnly(false);
+                params.setAlignSeqRes(true);
+                params.setParseSecStruc(true);
+                break;
+        }
+        return params;
+    }
+
+    private static synchronized AtomCache getAtomCache(LoadProfile profile) {
+        AtomCache cache = atomCaches.get(profile);
+        if (cache != null)
+            return cache;
+
+        cache = new AtomCache();
 
         cache.setUseMmCif(false);
 
+        FileParsingParameters params = getFileParsingParameters(profile);
+        params.setUpdateRemediatedFiles(true);
+        cache.setFileParsingParams(params);
+        cache.setAutoFetch(true);
+
+        atomCaches.put(profile, cache);
+        return cache;
+    }
 
+    public LocalPdbMirror getLocalMirror() {
+        return localMirror;
+    }
 
+    public SequenceCollection get(String structureId) {
+        return get(structureId, LoadProfile.FULL);
+    }
 
+    @Override
+    public SequenceCollection get(String structureId, LoadProfile profile) {
 
-        cache.setFileParsingParams(params);
-        cache.setAutoFetch(true);
+        BioJavaSequenceCollection collection = collectionCache.get(structureId, profile);
+        if (collection != null)
+            return collection;
 
         try {
-            Structure structure = cache.getStructure(structureId);
+            Structure structure;
+            if (localMirror != null) {
+                structure = localMirror.getStructure(structureId, getFileParsingParameters(profile));
+            } else {
+                structure = getAtomCache(profile).getStructure(structureId);
+            }
             System.out.println("structure sites: " + structure.getSites());
-            BioJavaSequenceCollection collection = new BioJavaSequenceCollection();
+            collection = new BioJavaSequenceCollection();
             collection.setStructure(structure);
 
+            collectionCache.put(structureId, collection, profile);
             return collection;
         } catch (Exception e) {
             e.printStackTrace();
@@ -10,7 +10,6 @@ import java.util.List;
 import java.util.Map;
 
 import org.biojava.nbio.structure.scop.ScopDomain;
-import org.biojava.nbio.structure.scop.ScopInstallation;
 import org.rcsb.sequence.annotations.DomainDefinitionValue;
 import org.rcsb.sequence.conf.AnnotationClassification;
 import org.rcsb.sequence.conf.AnnotationName;
@@ -56,23 +55,17 @@ public class BjSCOPAnnotation extends AbstractAnnotationGroup<String> implements
 
 
     public void getScopNodes(Sequence chain) {
-        // we do two queries and then loop through both lists of results because the hbm files haven't
-        // mapped the association between scop_protein_domain and scop_node.
+        // the index is read once from the local SCOP files and shared by all chains
+        List<ScopDomain> domains = ScopDomainIndex.getDefault().getDomains(chain.getStructureId(), chain.getChainId());
 
-        ScopInstallation install = new ScopInstallation();
-
-        List<ScopDomain> domains = install.getDomainsForPDB(chain.getStructureId());
-
-        System.out.println("found " + domains.size() + " domains  for " + chain.getStructureId());
+        System.out.println("found " + domains.size() + " domains  for " + chain.getStructureId() + ":" + chain.getChainId());
         for (ScopDomain d : domains) {
 
-            System.out.println(d);
             DomainDefinitionValue def = new DomainDefinitionValue(d.getClassificationId(), "SCOP");
 
             List<String> ranges = d.getRanges();
 
             for (String r : ranges) {
-                System.out.println(r);
                 String[] coords = r.split(":");
                 if (coords.length > 1) {
                     // if length 1, only provided a Chain id...
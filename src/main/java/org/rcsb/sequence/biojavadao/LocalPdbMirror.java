@@ -0,0 +1,313 @@
+package org.rcsb.sequence.biojavadao;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintWriter;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+import org.biojava.nbio.structure.Structure;
+import org.biojava.nbio.structure.io.FileParsingParameters;
+import org.biojava.nbio.structure.io.PDBFileParser;
+import org.biojava.nbio.structure.io.mmcif.SimpleMMcifConsumer;
+import org.biojava.nbio.structure.io.mmcif.SimpleMMcifParser;
+
+/**
+ * Read-only access to a local copy of the PDB archive. This never touches the network.
+ * <p>
+ * The mirror may use the divided layout of the wwPDB ftp site (<tt>hh/pdb1hhb.ent.gz</tt>,
+ * <tt>hh/1hhb.cif.gz</tt>) or be a flat directory of <tt>1hhb.pdb</tt>, <tt>1hhb.pdb.gz</tt>, <tt>1hhb.cif</tt>
+ * or <tt>1hhb.cif.gz</tt> files. An index of structure id to file is read from {@link #INDEX_FILE_NAME}
+ * in the mirror directory, or built by scanning the directory and then written there, so that all
+ * lookups at request time are plain map accesses. The directory is scanned again when the mirror directory or one of
+ * its sub directories has been modified after the index was written, i.e. when files have been added or removed.
+ * </p>
+ * <p>
+ * Files are memory-mapped and decompressed while they are being parsed.
+ * </p>
+ */
+public class LocalPdbMirror {
+
+    public static final String INDEX_FILE_NAME = "sequenceviewer-mirror.idx";
+
+    private static final String[] SUFFIXES = {".ent.gz", ".ent", ".pdb.gz", ".pdb", ".cif.gz", ".cif"};
+
+    private final File root;
+    private final Map<String, File> index;
+
+    /**
+     * Open a mirror, reading its index file if there is one that is up to date or scanning the directory otherwise.
+     *
+     * @param root the top directory of the mirror
+     * @throws IOException if the directory can not be read
+     */
+    public LocalPdbMirror(File root) throws IOException {
+        if (!root.isDirectory()) {
+            throw new IOException("PDB mirror directory " + root + " does not exist");
+        }
+        this.root = root;
+
+        File indexFile = new File(root, INDEX_FILE_NAME);
+        Map<String, File> idx;
+        if (indexFile.exists() && !isStale(root, indexFile)) {
+            idx = readIndex(indexFile);
+        } else {
+            if (indexFile.exists())
+                System.out.println("LocalPdbMirror: " + root + " has changed since " + indexFile + " was written, scanning again");
+            idx = scan(root);
+            try {
+                writeIndex(idx, indexFile);
+            } catch (IOException e) {
+                System.err.println("LocalPdbMirror: could not write index " + indexFile + " " + e.getMessage());
+            }
+        }
+        this.index = Collections.unmodifiableMap(idx);
+        System.out.println("LocalPdbMirror: " + index.size() + " entries in " + root);
+    }
+
+    /**
+     * Adding or removing a file changes the modification time of its directory, so the index is stale if the mirror
+     * directory or one of its sub directories has been modified after the index file.
+     *
+     * @param root
+     * @param indexFile
+     * @return true if the index may not list all files of the mirror
+     */
+    static boolean isStale(File root, File indexFile) {
+        long written = indexFile.lastModified();
+        if (root.lastModified() > written)
+            return true;
+        File[] files = root.listFiles();
+        if (files == null)
+            return true;
+        for (File f : files) {
+            if (f.isDirectory() && f.lastModified() > written)
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * @param fileName
+     * @return the upper case structure id for a file name of the mirror, or null if this is not a structure file
+     */
+    static String getStructureId(String fileName) {
+        String name = fileName.toLowerCase();
+        for (String suffix : SUFFIXES) {
+            if (name.endsWith(suffix)) {
+                String id = name.substring(0, name.length() - suffix.length());
+                if (id.startsWith("pdb") && id.length() == 7)
+                    id = id.substring(3);
+                return id.length() == 4 ? id.toUpperCase() : null;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Scan the mirror directory and its sub directories (one level deep) for structure files.
+     * If an entry is available in PDB and mmCIF format, the PDB format file is used.
+     *
+     * @param root
+     * @return
+     */
+    public static Map<String, File> scan(File root) {
+        Map<String, File> result = new HashMap<String, File>();
+        File[] files = root.listFiles();
+        if (files == null)
+            return result;
+
+        for (File f : files) {
+            if (f.isDirectory()) {
+                File[] divided = f.listFiles();
+                if (divided == null)
+                    continue;
+                for (File df : divided) {
+                    addToIndex(result, df);
+                }
+            } else {
+                addToIndex(result, f);
+            }
+        }
+        return result;
+    }
+
+    private static void addToIndex(Map<String, File> idx, File f) {
+        String id = getStructureId(f.getName());
+        if (id == null)
+            return;
+        File previous = idx.get(id);
+        if (previous == null || (isMmCif(previous) && !isMmCif(f))) {
+            idx.put(id, f);
+        }
+    }
+
+    /**
+     * @param f
+     * @return true if this is an mmCIF file, false for PDB format
+     */
+    public static boolean isMmCif(File f) {
+        String name = f.getName().toLowerCase();
+        return name.endsWith(".cif") || name.endsWith(".cif.gz");
+    }
+
+    private Map<String, File> readIndex(File indexFile) throws IOException {
+        Map<String, File> result = new HashMap<String, File>();
+        BufferedReader reader = new BufferedReader(new FileReader(indexFile));
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                int tab = line.indexOf('\t');
+                if (tab < 0)
+                    continue;
+                result.put(line.substring(0, tab), new File(root, line.substring(tab + 1)));
+            }
+        } finally {
+            reader.close();
+        }
+        return result;
+    }
+
+    private void writeIndex(Map<String, File> idx, File indexFile) throws IOException {
+        String rootPath = root.getAbsolutePath();
+        PrintWriter writer = new PrintWriter(new FileWriter(indexFile));
+        try {
+            for (Map.Entry<String, File> e : idx.entrySet()) {
+                String path = e.getValue().getAbsolutePath();
+                if (path.startsWith(rootPath))
+                    path = path.substring(rootPath.length() + 1);
+                writer.print(e.getKey());
+                writer.print('\t');
+                writer.println(path);
+            }
+        } finally {
+            writer.close();
+        }
+    }
+
+    public File getRoot() {
+        return root;
+    }
+
+    public boolean contains(String structureId) {
+        return index.containsKey(structureId.toUpperCase());
+    }
+
+    /**
+     * @param structureId
+     * @return the file of this entry, or null if it is not in the mirror
+     */
+    public File getFile(String structureId) {
+        return index.get(structureId.toUpperCase());
+    }
+
+    public int size() {
+        return index.size();
+    }
+
+    /**
+     * Open a file of the mirror for reading. The file is memory-mapped and decompressed on the fly if required.
+     *
+     * @param structureId
+     * @return
+     * @throws IOException if the entry is not in the mirror or can not be read
+     */
+    public InputStream openStream(String structureId) throws IOException {
+        File f = getFile(structureId);
+        if (f == null) {
+            throw new IOException(structureId + " is not available in local PDB mirror " + root);
+        }
+
+        FileInputStream fis = new FileInputStream(f);
+        MappedByteBuffer buffer;
+        try {
+            FileChannel channel = fis.getChannel();
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } finally {
+            // the mapping stays valid after the channel has been closed
+            fis.close();
+        }
+
+        InputStream in = new ByteBufferInputStream(buffer);
+        if (f.getName().toLowerCase().endsWith(".gz")) {
+            in = new GZIPInputStream(in, 64 * 1024);
+        }
+        return new BufferedInputStream(in, 64 * 1024);
+    }
+
+    /**
+     * Parse an entry of the mirror.
+     *
+     * @param structureId
+     * @param params
+     * @return
+     * @throws IOException if the entry is not in the mirror or can not be read
+     */
+    public Structure getStructure(String structureId, FileParsingParameters params) throws IOException {
+        File f = getFile(structureId);
+        InputStream in = openStream(structureId);
+        try {
+            if (isMmCif(f)) {
+                SimpleMMcifParser parser = new SimpleMMcifParser();
+                SimpleMMcifConsumer consumer = new SimpleMMcifConsumer();
+                consumer.setFileParsingParameters(params);
+                parser.addMMcifConsumer(consumer);
+                parser.parse(in);
+                return consumer.getStructure();
+            } else {
+                PDBFileParser parser = new PDBFileParser();
+                parser.setFileParsingParameters(params);
+                return parser.parsePDBFile(in);
+            }
+        } finally {
+            in.close();
+        }
+    }
+
+    private static class ByteBufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
+
+        ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (len == 0)
+                return 0;
+            if (!buffer.hasRemaining())
+                return -1;
+            int n = Math.min(len, buffer.remaining());
+            buffer.get(b, off, n);
+            return n;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+
+        @Override
+        public long skip(long n) {
+            int k = (int) Math.min(n, buffer.remaining());
+            buffer.position(buffer.position() + k);
+            return k;
+        }
+    }
+}
@@ -0,0 +1,256 @@
+package org.rcsb.sequence.biojavadao;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.biojava.nbio.structure.align.util.UserConfiguration;
+import org.biojava.nbio.structure.scop.ScopDomain;
+import org.biojava.nbio.structure.scop.ScopInstallation;
+
+/**
+ * Read-only lookup of SCOP domains by structure id, from a local SCOP classification file (<tt>dir.cla.scop.txt</tt>).
+ * This never touches the network.
+ * <p>
+ * The file is memory-mapped and scanned once. Only the offsets of the lines of each structure are kept, and a line is
+ * parsed when its structure is requested, so one index can be shared by all chains and threads.
+ * </p>
+ */
+public class ScopDomainIndex {
+
+    private static final int[] NO_LINES = new int[0];
+
+    private static volatile ScopDomainIndex defaultIndex = null;
+
+    private final File claFile;
+    private final MappedByteBuffer buffer;
+    private final Map<String, int[]> lineOffsets;
+
+    /**
+     * An index that knows no domains.
+     */
+    private ScopDomainIndex() {
+        this.claFile = null;
+        this.buffer = null;
+        this.lineOffsets = Collections.emptyMap();
+    }
+
+    /**
+     * Map and index a SCOP classification file.
+     *
+     * @param claFile a <tt>dir.cla.scop.txt</tt> file
+     * @throws IOException if the file can not be read
+     */
+    public ScopDomainIndex(File claFile) throws IOException {
+        this.claFile = claFile;
+
+        FileInputStream fis = new FileInputStream(claFile);
+        try {
+            FileChannel channel = fis.getChannel();
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } finally {
+            // the mapping stays valid after the channel has been closed
+            fis.close();
+        }
+
+        lineOffsets = Collections.unmodifiableMap(index(buffer));
+        System.out.println("ScopDomainIndex: " + lineOffsets.size() + " structures in " + claFile);
+    }
+
+    /**
+     * @return the index shared by all chains. Unless one has been set, this is read from the SCOP file in the BioJava
+     * cache directory, or knows no domains if that file is not there.
+     */
+    public static ScopDomainIndex getDefault() {
+        ScopDomainIndex index = defaultIndex;
+        if (index == null) {
+            synchronized (ScopDomainIndex.class) {
+                index = defaultIndex;
+                if (index == null) {
+                    index = load(new File(new UserConfiguration().getCacheFilePath(),
+                            ScopInstallation.claFileName + ScopInstallation.DEFAULT_VERSION));
+                    defaultIndex = index;
+                }
+            }
+        }
+        return index;
+    }
+
+    /**
+     * @param index the index to share, or null to load the default one again on next use
+     */
+    public static void setDefault(ScopDomainIndex index) {
+        defaultIndex = index;
+    }
+
+    /**
+     * @param claFile
+     * @return the index of the file, or an index without domains if the file can not be read
+     */
+    public static ScopDomainIndex load(File claFile) {
+        if (!claFile.exists()) {
+            System.err.println("ScopDomainIndex: no SCOP classification at " + claFile + ", SCOP domains will not be shown");
+            return new ScopDomainIndex();
+        }
+        try {
+            return new ScopDomainIndex(claFile);
+        } catch (IOException e) {
+            System.err.println("ScopDomainIndex: could not read " + claFile + " " + e.getMessage());
+            return new ScopDomainIndex();
+        }
+    }
+
+    private static Map<String, int[]> index(MappedByteBuffer buffer) {
+        Map<String, int[]> result = new HashMap<String, int[]>();
+        int limit = buffer.limit();
+        int lineStart = 0;
+        while (lineStart < limit) {
+            int lineEnd = lineStart;
+            while (lineEnd < limit && buffer.get(lineEnd) != '\n') {
+                lineEnd++;
+            }
+
+            if (buffer.get(lineStart) != '#') {
+                // the second column is the PDB id
+                int idStart = lineStart;
+                while (idStart < lineEnd && buffer.get(idStart) != '\t') {
+                    idStart++;
+                }
+                idStart++;
+                if (idStart + 4 <= lineEnd) {
+                    String pdbId = new String(new char[]{(char) buffer.get(idStart), (char) buffer.get(idStart + 1),
+                            (char) buffer.get(idStart + 2), (char) buffer.get(idStart + 3)}).toUpperCase();
+                    int[] offsets = result.get(pdbId);
+                    if (offsets == null) {
+                        offsets = new int[]{lineStart};
+                    } else {
+                        offsets = Arrays.copyOf(offsets, offsets.length + 1);
+                        offsets[offsets.length - 1] = lineStart;
+                    }
+                    result.put(pdbId, offsets);
+                }
+            }
+            lineStart = lineEnd + 1;
+        }
+        return result;
+    }
+
+    public File getClaFile() {
+        return claFile;
+    }
+
+    /**
+     * @return the number of structures with SCOP domains
+     */
+    public int size() {
+        return lineOffsets.size();
+    }
+
+    /**
+     * @param structureId
+     * @return the domains of the structure, an empty list if it has none
+     */
+    public List<ScopDomain> getDomains(String structureId) {
+        int[] offsets = lineOffsets.get(structureId.toUpperCase());
+        if (offsets == null)
+            offsets = NO_LINES;
+
+        List<ScopDomain> result = new ArrayList<ScopDomain>(offsets.length);
+        for (int offset : offsets) {
+            ScopDomain d = parse(readLine(offset));
+            if (d != null)
+                result.add(d);
+        }
+        return result;
+    }
+
+    /**
+     * @param structureId
+     * @param chainId
+     * @return the domains on one chain, with only the ranges of that chain
+     */
+    public List<ScopDomain> getDomains(String structureId, String chainId) {
+        List<ScopDomain> result = new ArrayList<ScopDomain>();
+        for (ScopDomain d : getDomains(structureId)) {
+            List<String> ranges = new ArrayList<String>();
+            for (String r : d.getRanges()) {
+                int colon = r.indexOf(':');
+                // a range without a chain id covers the only chain of the structure
+                if (colon < 0 || r.substring(0, colon).equals(chainId))
+                    ranges.add(r);
+            }
+            if (ranges.size() > 0) {
+                d.setRanges(ranges);
+                result.add(d);
+            }
+        }
+        return result;
+    }
+
+    private String readLine(int offset) {
+        int end = offset;
+        int limit = buffer.limit();
+        while (end < limit && buffer.get(end) != '\n' && buffer.get(end) != '\r') {
+            end++;
+        }
+        char[] chars = new char[end - offset];
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = (char) buffer.get(offset + i);
+        }
+        return new String(chars);
+    }
+
+    /**
+     * Parse a line of the classification file, e.g.
+     * <tt>d1dlwa_ 1dlw A: a.1.1.1 14982 cl=46456,cf=46457,sf=46458,fa=46459,dm=46460,sp=46461,px=14982</tt>
+     *
+     * @param line
+     * @return the domain, or null if the line can not be parsed
+     */
+    private static ScopDomain parse(String line) {
+        String[] fields = line.split("\t");
+        if (fields.length < 6)
+            return null;
+
+        ScopDomain d = new ScopDomain();
+        d.setScopId(fields[0]);
+        d.setPdbId(fields[1]);
+        d.setRanges(Arrays.asList(fields[2].split(",")));
+        d.setClassificationId(fields[3]);
+        try {
+            d.setSunid(Integer.valueOf(fields[4]));
+            for (String node : fields[5].split(",")) {
+                String[] kv = node.split("=");
+                if (kv.length != 2)
+                    continue;
+                int id = Integer.parseInt(kv[1]);
+                if (kv[0].equals("cl"))
+                    d.setClassId(id);
+                else if (kv[0].equals("cf"))
+                    d.setFoldId(id);
+                else if (kv[0].equals("sf"))
+                    d.setSuperfamilyId(id);
+                else if (kv[0].equals("fa"))
+                    d.setFamilyId(id);
+                else if (kv[0].equals("dm"))
+                    d.setDomainId(id);
+                else if (kv[0].equals("sp"))
+                    d.setSpeciesId(id);
+                else if (kv[0].equals("px"))
+                    d.setPx(id);
+            }
+        } catch (NumberFormatException e) {
+            System.err.println("ScopDomainIndex: could not parse " + line);
+            return null;
+        }
+        return d;
+    }
+}
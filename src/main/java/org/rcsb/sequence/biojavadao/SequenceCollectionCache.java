@@ -0,0 +1,224 @@
+package org.rcsb.sequence.biojavadao;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.biojava.nbio.structure.Chain;
+import org.biojava.nbio.structure.Group;
+import org.biojava.nbio.structure.Structure;
+import org.rcsb.sequence.core.LoadProfile;
+
+/**
+ * A memory-bounded, least-recently-used cache of {@link BioJavaSequenceCollection}s keyed by structure id.
+ * <p>
+ * Every entry is weighed by an estimate of the heap used by its parsed {@link Structure}. When the total weight
+ * exceeds the configured maximum the least recently used entries are evicted.
+ * </p>
+ * <p>
+ * The cache is shared, so callers may still hold a collection when it is evicted. Evicted collections are therefore
+ * never destroyed, they are dropped and reclaimed once nobody uses them anymore.
+ * </p>
+ * <p>
+ * Each entry remembers the {@link LoadProfile} it was parsed with. A request for a more expensive profile
+ * is a miss, and the reloaded collection replaces the cheaper one.
+ * </p>
+ */
+public class SequenceCollectionCache {
+
+    /**
+     * estimated heap bytes per atom (AtomImpl, coordinates, name and element)
+     */
+    public static final long ATOM_WEIGHT = 160L;
+
+    /**
+     * estimated heap bytes per group (GroupImpl, ResidueNumber, atom list and properties)
+     */
+    public static final long GROUP_WEIGHT = 256L;
+
+    /**
+     * estimated heap bytes for the structure header, compounds, sites etc.
+     */
+    public static final long STRUCTURE_WEIGHT = 16 * 1024L;
+
+    private final Map<String, Entry> entries;
+    private long maxWeight;
+    private long weight;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * Create a cache that holds up to a quarter of the maximum heap size.
+     */
+    public SequenceCollectionCache() {
+        this(Runtime.getRuntime().maxMemory() / 4);
+    }
+
+    /**
+     * @param maxWeight the maximum estimated heap size in bytes of all cached structures
+     */
+    public SequenceCollectionCache(long maxWeight) {
+        this.maxWeight = maxWeight;
+        this.weight = 0;
+        // access ordered, so iteration starts at the least recently used entry
+        this.entries = new LinkedHashMap<String, Entry>(64, 0.75f, true);
+    }
+
+    /**
+     * Estimate the heap used by a parsed structure.
+     *
+     * @param s
+     * @return the estimated size in bytes
+     */
+    public static long estimateWeight(Structure s) {
+        long result = STRUCTURE_WEIGHT;
+        if (s == null)
+            return result;
+
+        for (int model = 0; model < s.nrModels(); model++) {
+            for (Chain c : s.getModel(model)) {
+                for (Group g : c.getAtomGroups()) {
+                    result += GROUP_WEIGHT + ATOM_WEIGHT * g.size();
+                }
+                // SEQRES groups without coordinates
+                result += GROUP_WEIGHT * Math.max(0, c.getSeqResLength() - c.getAtomLength());
+            }
+        }
+        return result;
+    }
+
+    private static String getKey(String structureId) {
+        return structureId.toUpperCase();
+    }
+
+    /**
+     * @param structureId
+     * @param profile     the profile the collection needs to satisfy
+     * @return the cached collection, or null if it is not in the cache or was loaded with a cheaper profile
+     */
+    public synchronized BioJavaSequenceCollection get(String structureId, LoadProfile profile) {
+        Entry e = entries.get(getKey(structureId));
+        if (e == null || !e.profile.satisfies(profile)) {
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        return e.collection;
+    }
+
+    /**
+     * Add a collection to the cache, evicting least recently used entries if the cache is full.
+     * Collections that on their own are heavier than the maximum weight are not cached.
+     *
+     * If the cache already holds a collection for this entry that was loaded with the same or a more expensive profile,
+     * that one is kept.
+     *
+     * @param structureId
+     * @param collection
+     * @param profile     the profile the collection was loaded with
+     */
+    public synchronized void put(String structureId, BioJavaSequenceCollection collection, LoadProfile profile) {
+        String key = getKey(structureId);
+        Entry current = entries.get(key);
+        if (current != null && current.collection != collection && current.profile.satisfies(profile))
+            return;
+
+        long w = estimateWeight(collection.getStructure());
+        if (w > maxWeight) {
+            System.err.println("SequenceCollectionCache: not caching " + structureId + ", estimated size " + w + " exceeds " + maxWeight);
+            return;
+        }
+
+        Entry previous = entries.put(key, new Entry(collection, profile, w));
+        if (previous != null)
+            weight -= previous.weight;
+        weight += w;
+
+        evict();
+    }
+
+    /**
+     * Remove a collection from the cache. The removed collection is not destroyed.
+     *
+     * @param structureId
+     * @return the removed collection or null
+     */
+    public synchronized BioJavaSequenceCollection remove(String structureId) {
+        Entry e = entries.remove(getKey(structureId));
+        if (e == null)
+            return null;
+        weight -= e.weight;
+        return e.collection;
+    }
+
+    /**
+     * Empty the cache. The removed collections are not destroyed.
+     */
+    public synchronized void clear() {
+        entries.clear();
+        weight = 0;
+    }
+
+    private void evict() {
+        Iterator<Entry> it = entries.values().iterator();
+        while (weight > maxWeight && it.hasNext()) {
+            Entry e = it.next();
+            it.remove();
+            weight -= e.weight;
+            evictions.incrementAndGet();
+        }
+    }
+
+    public synchronized long getMaxWeight() {
+        return maxWeight;
+    }
+
+    public synchronized void setMaxWeight(long maxWeight) {
+        this.maxWeight = maxWeight;
+        evict();
+    }
+
+    /**
+     * @return the estimated heap size in bytes of all cached structures
+     */
+    public synchronized long getWeight() {
+        return weight;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    public long getEvictionCount() {
+        return evictions.get();
+    }
+
+    @Override
+    public String toString() {
+        return "SequenceCollectionCache ( size = " + size() + " weight = " + getWeight() + "/" + getMaxWeight()
+                + " hits = " + getHitCount() + " misses = " + getMissCount() + " evictions = " + getEvictionCount() + " )";
+    }
+
+    private static class Entry {
+        private final BioJavaSequenceCollection collection;
+        private final LoadProfile profile;
+        private final long weight;
+
+        Entry(BioJavaSequenceCollection collection, LoadProfile profile, long weight) {
+            this.collection = collection;
+            this.profile = profile;
+            this.weight = weight;
+        }
+    }
+}
@@ -58,64 +58,59 @@ public class SiteAnnotation extends AbstractAnnotationGroup<ModifiedCompound> im
 
         Chain bj = proxy.getBJChain();
 
-
-        List<Site> sites = bj.getParent().getSites();
+        // the sites of all chains are sorted by chain once per structure
+        BioJavaSequenceCollection collection = proxy.getBioJavaSequenceCollection();
+        List<Site> sites;
+        if (collection != null) {
+            sites = collection.getSites(proxy.getChainId());
+        } else {
+            sites = BioJavaSequenceCollection.partitionSitesByChain(bj.getParent().getSites()).get(proxy.getChainId());
+            if (sites == null)
+                sites = Collections.emptyList();
+        }
 
         for (Site s : sites) {
             List<Group> groups = s.getGroups();
 
-            boolean matchingSite = false;
-            for (Group g : groups) {
-
-                if (g.getChain().getChainID().equals(proxy.getChainId())) {
-                    matchingSite = true;
-                    // SITE on correct chain...
-                    break;
-                }
-            }
-
-            if (matchingSite) {
-                //System.out.println("found a site: " + s);
+            //System.out.println("found a site: " + s);
 
 
-                Set<StructureGroup> sgroups = new TreeSet<StructureGroup>();
-                for (Group g : groups) {
-                    if (g instanceof AminoAcid) {
-                        StructureGroup sg = new StructureGroup();
-                        sg.setChainId(g.getChainId());
-                        sg.setPDBResidueNumber(g.getResidueNumber());
-                        sg.setInsCode(g.getResidueNumber().getInsCode());
-                        sg.setResidueNumber(g.getResidueNumber().getSeqNum());
-                        sg.setPDBName(g.getPDBName());
-                        sg.setIsAminoAcid(true);
-                        sgroups.add(sg);
-                    }
+            Set<StructureGroup> sgroups = new TreeSet<StructureGroup>();
+            for (Group g : groups) {
+                if (g instanceof AminoAcid) {
+                    StructureGroup sg = new StructureGroup();
+                    sg.setChainId(g.getChainId());
+                    sg.setPDBResidueNumber(g.getResidueNumber());
+                    sg.setInsCode(g.getResidueNumber().getInsCode());
+                    sg.setResidueNumber(g.getResidueNumber().getSeqNum());
+                    sg.setPDBName(g.getPDBName());
+                    sg.setIsAminoAcid(true);
+                    sgroups.add(sg);
+                }
 
 
-                }
+            }
 
 
-                ModifiedCompound mc = new ModifiedCompoundImpl();
+            ModifiedCompound mc = new ModifiedCompoundImpl();
 
-                ProteinModification modi = getProteinModification(bj.getParent().getPDBCode(), bj.getChainID(), s, groups);
+            ProteinModification modi = getProteinModification(bj.getParent().getPDBCode(), bj.getChainID(), s, groups);
 
-                mc.setDescription("SITE " + s.getDescription());
-                mc.setGroups(sgroups);
-                //System.out.println("modification:" + modi);
-                mc.setModification(modi);
+            mc.setDescription("SITE " + s.getDescription());
+            mc.setGroups(sgroups);
+            //System.out.println("modification:" + modi);
+            mc.setModification(modi);
 
 
-                ProtModValue cv = new ProtModValue(mc);
+            ProtModValue cv = new ProtModValue(mc);
 
 
-                for (StructureGroup group : sgroups) {
-                    if (group.isAminoAcid()) {
-                        ResidueId resId = chain.getResidueId(ATOM, group.getResidueNumber());
-                        addAnnotation(cv, resId);
-                        //System.out.println("Adding annotation : " + cv + " " + resId);
-                    }
+            for (StructureGroup group : sgroups) {
+                if (group.isAminoAcid()) {
+                    ResidueId resId = chain.getResidueId(ATOM, group.getResidueNumber());
+                    addAnnotation(cv, resId);
+                    //System.out.println("Adding annotation : " + cv + " " + resId);
                 }
-
             }
 
         }
@@ -17,7 +17,6 @@ import java.util.TreeMap;
 import java.util.TreeSet;
 
 import org.apache.commons.collections.Bag;
-import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.collections.bag.HashBag;
 import org.rcsb.sequence.conf.AnnotationClassification;
 import org.rcsb.sequence.conf.AnnotationName;
@@ -37,11 +36,14 @@ public abstract class AbstractAnnotationGroup<T>
     private static final long serialVersionUID = 1L;
     public static SortAnnotationsComparator SORT_ANNOTATIONS_COMPARATOR = new SortAnnotationsComparator();
     protected final TreeSet<Annotation<T>> annotations;
-    private final Bag annotatedResidues;
-    protected AnnotationStatus status = instantiated;
+    // how many annotations cover each residue
+    private final ResidueCoverage annotatedResidues;
+    protected volatile AnnotationStatus status = instantiated;
     protected Sequence chain;
     protected transient Map<AnnotationValue<T>, Integer> residuesPerAnnotationValue = null;
     protected transient Map<AnnotationValue<T>, Integer> annotationValueCount = null;
+    // the annotations by the positions of their residues, built when they are first looked up by residue
+    private transient volatile AnnotationIndex<T> annotationIndex = null;
 
     /**
      * <p>
@@ -59,26 +61,17 @@ public abstract class AbstractAnnotationGroup<T>
     public AbstractAnnotationGroup(AnnotationClassification classification, AnnotationName name, ResidueNumberScheme rns, Sequence chain) {
         super(classification, name, rns);
         this.chain = chain;
-        this.annotatedResidues = new HashBag();
+        this.annotatedResidues = new ResidueCoverage();
 
         // if this sequence is a fragment, we should get annotation information from the AnnotationGroup
-        // object of the parent sequence
+        // object of the parent sequence. That happens when the annotations of the fragment are first requested,
+        // so cutting a chain into segments does not construct the groups of the chain
         if (chain instanceof SequenceSegment) {
-            SequenceSegment sequenceFragment = (SequenceSegment) chain;
-            AnnotationGroup<T> parent = (AnnotationGroup<T>) sequenceFragment.getFullSequence().getAnnotationGroup(name.getAnnotationClass());
-            this.annotations = new TreeSet<Annotation<T>>(parent.getAnnotations().comparator());
-
-            Annotation<T> toAdd;
-            ResidueId lowerBound = sequenceFragment.getFirstResidue();
-            ResidueId upperBound = sequenceFragment.getLastResidue();
-
-            for (Annotation<T> a : parent.getAnnotations()) {
-                if ((toAdd = checkAnnotation(a, lowerBound, upperBound, sequenceFragment)) != null) {
-                    annotations.add(toAdd);
-                    annotatedResidues.addAll(toAdd.getSequence().getResidueIds());
-                }
-            }
-            status = parent.getStatus();
+            AnnotationGroup<T> parent = getParentGroup();
+            Comparator<? super Annotation<T>> comparator = SORT_ANNOTATIONS_COMPARATOR;
+            if (parent instanceof AbstractAnnotationGroup)
+                comparator = ((AbstractAnnotationGroup<T>) parent).annotations.comparator();
+            this.annotations = new TreeSet<Annotation<T>>(comparator);
         } else {
             // annotations is a tree set ordered by the first residue of the annotation
             this.annotations = new TreeSet<Annotation<T>>(SORT_ANNOTATIONS_COMPARATOR);
@@ -147,6 +140,34 @@ public abstract class AbstractAnnotationGroup<T>
         return result;
     }
 
+    @SuppressWarnings("unchecked")
+    private AnnotationGroup<T> getParentGroup() {
+        SequenceSegment sequenceFragment = (SequenceSegment) chain;
+        return (AnnotationGroup<T>) sequenceFragment.getFullSequence().getAnnotationGroup(name.getAnnotationClass());
+    }
+
+    /**
+     * Copy the annotations of the group of the full sequence that fall within this fragment.
+     *
+     * @return the status of the group of the full sequence
+     */
+    private AnnotationStatus constructFragmentAnnotations() {
+        SequenceSegment sequenceFragment = (SequenceSegment) chain;
+        AnnotationGroup<T> parent = getParentGroup();
+
+        Annotation<T> toAdd;
+        ResidueId lowerBound = sequenceFragment.getFirstResidue();
+        ResidueId upperBound = sequenceFragment.getLastResidue();
+
+        for (Annotation<T> a : parent.getAnnotations()) {
+            if ((toAdd = checkAnnotation(a, lowerBound, upperBound, sequenceFragment)) != null) {
+                annotations.add(toAdd);
+                annotatedResidues.addAll(toAdd.getSequence().getResidueIds());
+            }
+        }
+        return parent.getStatus();
+    }
+
     public static int getMaxCount(Bag b) {
         if (b == null) return 0;
         return getMaxCount(b, b.uniqueSet());
@@ -172,6 +193,7 @@ public abstract class AbstractAnnotationGroup<T>
         chain = null;
         annotatedResidues.clear();
         annotations.clear();
+        annotationIndex = null;
         status = AnnotationStatus.destroyed;
 
         residuesPerAnnotationValue = null;
@@ -201,9 +223,7 @@ public abstract class AbstractAnnotationGroup<T>
             System.err.println("AbstractAnnotationGroup: can't add Annotation >" + value + "< because can't ensure that start is before end or equal (" + start + " , " + end + " )");
             return false;
         }
-        Collection<ResidueId> resForThisAn = ResidueUtils.getResidueIdsBetween(start, end);
-
-        if (!annotationsMayOverlap() && CollectionUtils.containsAny(resForThisAn, annotatedResidues)) {
+        if (!annotationsMayOverlap() && annotatedResidues.coversAny(start, end)) {
 
             String nameS = ">name is not defined<";
             if (name != null) {
@@ -221,7 +241,8 @@ public abstract class AbstractAnnotationGroup<T>
             return false;
         }
 
-        annotatedResidues.addAll(resForThisAn);
+        annotatedResidues.add(start, end);
+        annotationIndex = null;
         return this.annotations.add(new AnnotationImpl<T>(this.classification, this.name, this.residueNumberScheme, value, start, end));
     }
 
@@ -305,9 +326,10 @@ public abstract class AbstractAnnotationGroup<T>
     }
 
     /**
-     * Construct the <tt>Annotation</tt>s for this <tt>AnnotationGroup</tt>
+     * Construct the <tt>Annotation</tt>s for this <tt>AnnotationGroup</tt>. Other threads that need the annotations
+     * wait until they have been constructed.
      */
-    public void constructAnnotations() throws Exception {
+    public synchronized void constructAnnotations() throws Exception {
         //System.err.println("ABSTRACT ANNOTATIONGROUP: CONSTRUCTING ANNOTATIONS " + getName().getName() + " status:" +status);
         if (status == underConstruction) {
             System.out.println("contructAnnotations() has been called circularly!");
@@ -328,8 +350,12 @@ public abstract class AbstractAnnotationGroup<T>
 
         status = underConstruction;
         try {
-            constructAnnotationsImpl();
-            status = annotations.size() > 0 ? populated : noData;
+            if (chain instanceof SequenceSegment) {
+                status = constructFragmentAnnotations();
+            } else {
+                constructAnnotationsImpl();
+                status = annotations.size() > 0 ? populated : noData;
+            }
         } catch (Exception e) {
             System.err.println("Could not create " + name + " annotation for " + getSequence().getStructureId() + ":" + getSequence().getChainId() + " " + e.getMessage());
             e.printStackTrace();
@@ -338,19 +364,34 @@ public abstract class AbstractAnnotationGroup<T>
     }
 
     public SortedSet<Annotation<T>> getAnnotations() {
-        if (status == underConstruction) {
-            throw new RuntimeException("Multithreading not yet supported");
+        if (status == underConstruction && Thread.holdsLock(this)) {
+            throw new RuntimeException("getAnnotations() called while constructing the annotations");
         }
-        if (status == instantiated) {
-            try {
-                constructAnnotations();
-            } catch (Exception e) {
-                System.err.println("AnnotationGroup " + this.getName() + " failed when trying to assemble its annotations " + e.getMessage());
-                e.printStackTrace();
-                status = noData;
+        ensureAnnotationsConstructed();
+        return Collections.unmodifiableSortedSet(annotations);
+    }
+
+    /**
+     * Construct the annotations on first use. Groups are registered as cheap stubs, so this is where the expensive
+     * work happens. Queries made by <tt>constructAnnotationsImpl()</tt> itself see the annotations added so far.
+     */
+    protected void ensureAnnotationsConstructed() {
+        if (status != instantiated && status != underConstruction)
+            return;
+        // constructAnnotations() holds the lock while it runs
+        if (Thread.holdsLock(this))
+            return;
+        synchronized (this) {
+            if (status == instantiated) {
+                try {
+                    constructAnnotations();
+                } catch (Exception e) {
+                    System.err.println("AnnotationGroup " + this.getName() + " failed when trying to assemble its annotations " + e.getMessage());
+                    e.printStackTrace();
+                    status = noData;
+                }
             }
         }
-        return Collections.unmodifiableSortedSet(annotations);
     }
 
     public AnnotationStatus getStatus() {
@@ -358,6 +399,7 @@ public abstract class AbstractAnnotationGroup<T>
     }
 
     public boolean hasData() {
+        ensureAnnotationsConstructed();
         return status == populated;
     }
 
@@ -425,7 +467,8 @@ public abstract class AbstractAnnotationGroup<T>
     }
 
     public boolean annotatesResidue(ResidueId r) {
-        return annotatedResidues.contains(r);
+        ensureAnnotationsConstructed();
+        return annotatedResidues.getCount(r) > 0;
     }
 
     public boolean annotationsMayOverlap() {
@@ -437,6 +480,7 @@ public abstract class AbstractAnnotationGroup<T>
     }
 
     public int getAnnotationCount(ResidueId residueId) {
+        ensureAnnotationsConstructed();
         return annotatedResidues.getCount(residueId);
     }
 
@@ -447,11 +491,20 @@ public abstract class AbstractAnnotationGroup<T>
 
     private List<Annotation<T>> getAnnotations(ResidueId residueId, boolean onlyTheFirst) {
         List<Annotation<T>> result = null;
+        ensureAnnotationsConstructed();
         if (annotations == null || annotations.size() == 0) {
             return null;
         }
 
-        for (Annotation<T> a : annotations) {
+        // only the annotations that cover the position of the residue can annotate it
+        Collection<Annotation<T>> candidates = annotations;
+        AnnotationIndex<T> index = getAnnotationIndex();
+        int position = index == null ? -1 : index.getPosition(residueId, residueNumberScheme);
+        if (position >= 0) {
+            candidates = index.getAnnotations(position, position);
+        }
+
+        for (Annotation<T> a : candidates) {
             if (a.annotatesResidue(residueId)) {
                 if (onlyTheFirst) return Collections.singletonList(a);
                 else if (result == null) result = new ArrayList<Annotation<T>>();
@@ -464,16 +517,142 @@ public abstract class AbstractAnnotationGroup<T>
         return result;
     }
 
+    /**
+     * Get the annotations that cover any residue between two residues, in the order of {@link #getAnnotations()}.
+     * Residues without an equivalent in the residue number scheme of this group are taken to be the nearest residue
+     * inside the range that has one.
+     *
+     * @param start
+     * @param end
+     * @return the annotations, empty if none of the residues between start and end has an equivalent
+     */
+    public List<Annotation<T>> getAnnotations(ResidueId start, ResidueId end) {
+        ensureAnnotationsConstructed();
+        ResidueId first = start.getResidueNumberScheme() == residueNumberScheme ? start : start.getNextEquivalentResidueId(residueNumberScheme);
+        ResidueId last = end.getResidueNumberScheme() == residueNumberScheme ? end : end.getPreviousEquivalentResidueId(residueNumberScheme);
+        if (annotations.isEmpty() || first.isEndOfChainMarker() || last.isBeginningOfChainMarker() || last.isBefore(first)) {
+            return Collections.emptyList();
+        }
+
+        AnnotationIndex<T> index = getAnnotationIndex();
+        int from = index == null ? -1 : index.getPosition(first, residueNumberScheme);
+        int to = index == null ? -1 : index.getPosition(last, residueNumberScheme);
+        if (from >= 0 && to >= 0) {
+            return index.getAnnotations(from, to);
+        }
+
+        List<Annotation<T>> result = new ArrayList<Annotation<T>>();
+        for (Annotation<T> a : annotations) {
+            Sequence s = a.getSequence();
+            ResidueId annotationStart = s.getFirstResidue(residueNumberScheme);
+            ResidueId annotationEnd = s.getLastResidue(residueNumberScheme);
+            if (annotationStart != null && annotationEnd != null && !annotationStart.isAfter(last) && !annotationEnd.isBefore(first)) {
+                result.add(a);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return the index of the annotations, or null while they are being constructed
+     */
+    private AnnotationIndex<T> getAnnotationIndex() {
+        AnnotationIndex<T> result = annotationIndex;
+        if (result == null && status != underConstruction && status != instantiated) {
+            synchronized (this) {
+                result = annotationIndex;
+                if (result == null) {
+                    result = new AnnotationIndex<T>(annotations, residueNumberScheme);
+                    annotationIndex = result;
+                }
+            }
+        }
+        return result;
+    }
+
     public Collection<Annotation<T>> getAnnotations(ResidueId residueId) {
         return getAnnotations(residueId, !annotationsMayOverlap());
     }
 
+    /**
+     * @return a new bag of the annotated residues, each as often as it is annotated
+     */
     public Bag getAnnotationsPerResidueBag() {
-        return annotatedResidues;
+        ensureAnnotationsConstructed();
+        return annotatedResidues.toBag();
     }
 
     public int getMaxAnnotationsPerResidue() {
-        return getMaxCount(annotatedResidues);
+        ensureAnnotationsConstructed();
+        // at least 1, as getMaxCount(Bag) has always answered
+        return Math.max(1, annotatedResidues.getMaxCount());
+    }
+
+    /**
+     * The annotations of a group in an interval tree of the positions of their residues in the chain, in the residue
+     * number scheme of the group.
+     */
+    private static final class AnnotationIndex<T> {
+
+        private final List<Annotation<T>> annotations;
+        private final Object chain;
+        // null if the positions of the residues are not known
+        private final IntervalIndex intervals;
+
+        AnnotationIndex(Collection<Annotation<T>> annotations, ResidueNumberScheme rns) {
+            this.annotations = new ArrayList<Annotation<T>>(annotations);
+            int[] starts = new int[annotations.size()];
+            int[] ends = new int[annotations.size()];
+            Object c = null;
+            boolean positioned = true;
+            int i = 0;
+            for (Annotation<T> a : annotations) {
+                // an annotation without residues in the scheme of the group covers no position
+                starts[i] = Integer.MAX_VALUE;
+                ends[i] = -1;
+                // the first and last residues of a span in another scheme are found without creating its residue ids
+                ResidueId first = a.getSequence().getFirstResidue(rns);
+                ResidueId last = a.getSequence().getLastResidue(rns);
+                if (first != null && last != null) {
+                    if (c == null)
+                        c = first.getChain();
+                    int start = ResidueIdImpl.ordinalOf(first), end = ResidueIdImpl.ordinalOf(last);
+                    if (start < 0 || end < start || first.getChain() != c || last.getChain() != c) {
+                        positioned = false;
+                        break;
+                    }
+                    starts[i] = start;
+                    ends[i] = end;
+                }
+                i++;
+            }
+            this.chain = c;
+            this.intervals = positioned && c != null ? new IntervalIndex(starts, ends) : null;
+        }
+
+        /**
+         * @return the position of the equivalent of a residue, or -1 if that is not known
+         */
+        int getPosition(ResidueId rid, ResidueNumberScheme rns) {
+            if (intervals == null || rid == null)
+                return -1;
+            ResidueId equivalent = rid.getResidueNumberScheme() == rns ? rid : rid.getEquivalentResidueId(rns);
+            if (equivalent == null || equivalent.getChain() != chain)
+                return -1;
+            return ResidueIdImpl.ordinalOf(equivalent);
+        }
+
+        /**
+         * @return the annotations with residues between two positions, in the order of the group
+         */
+        List<Annotation<T>> getAnnotations(int from, int to) {
+            int[] found = intervals.overlapping(from, to);
+            List<Annotation<T>> result = new ArrayList<Annotation<T>>(found.length);
+            for (int id : found) {
+                result.add(annotations.get(id));
+            }
+            return result;
+        }
     }
 
     private static class SortAnnotationsComparator implements Comparator<Annotation<?>>, Serializable {
@@ -3,21 +3,24 @@ package org.rcsb.sequence.core;
 import static org.rcsb.sequence.model.ResidueNumberScheme.SEQRES;
 
 import java.io.Serializable;
+import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.collections.Predicate;
 import org.rcsb.sequence.conf.AnnotationClassification;
+import org.rcsb.sequence.conf.AnnotationName;
 import org.rcsb.sequence.model.AnnotationGroup;
+import org.rcsb.sequence.model.AnnotationStatus;
 import org.rcsb.sequence.model.Chain;
 import org.rcsb.sequence.model.ChainStatus;
 import org.rcsb.sequence.model.PolymerType;
@@ -31,11 +34,15 @@ import org.rcsb.sequence.model.Sequence;
 
 public abstract class AbstractSequence implements Sequence, Serializable {
     private static final long serialVersionUID = 1L;
-    private final Map<ResidueNumberScheme, Map<String, ResidueId>> residueIdMaps = ResidueNumberScheme.initEmptyResidueIdMap();
+    private static final Charset US_ASCII = Charset.forName("US-ASCII");
+    // created on first use, a derived sequence may never need them
+    private volatile Map<ResidueNumberScheme, ResidueIndex> residueIndexes = null;
+    private volatile ResidueMappingTable residueMappingTable = null;
     private Map<Class<AnnotationGroup<?>>, AnnotationGroup<?>> annotationGroupMap = new LinkedHashMap<Class<AnnotationGroup<?>>, AnnotationGroup<?>>();
     private String sequence;
-    // this is a store for generated sequences for a given residue number scheme
-    private transient Map<ResidueNumberScheme, String> sequences = null;
+    // this is a store for generated sequences, by the ordinal of their residue number scheme
+    private transient volatile AtomicReferenceArray<String> sequences = null;
+    private transient volatile AtomicReferenceArray<byte[]> sequenceBytes = null;
 
 
     protected AbstractSequence(String sequence) {
@@ -65,14 +72,32 @@ public abstract class AbstractSequence implements Sequence, Serializable {
      * @return
      */
     protected static Set<ResidueId> sequenceStringToResidueIds(String sequenceString, PolymerType polymerType, ResidueNumberScheme rns, Chain c, int indexStart) {
+        if (sequenceString == null || rns == null) throw new NullPointerException();
+        char[] chars = sequenceString.toCharArray();
+        return sequenceStringToResidueIds(chars, 0, chars.length, polymerType, rns, c, indexStart);
+    }
+
+    /**
+     * Create an ordered, doubly-linked set of ResidueIds from part of a char array. Standard residues are looked up
+     * by their one letter code without creating any objects besides the residue ids, ligands are written as
+     * bracketed mon_ids, e.g. <tt>(MSE)</tt>.
+     *
+     * @param sequence
+     * @param offset      the first character to use
+     * @param length      the number of characters to use
+     * @param polymerType
+     * @param rns
+     * @param c
+     * @param indexStart  the sequence id of the first residue
+     * @return
+     */
+    protected static Set<ResidueId> sequenceStringToResidueIds(char[] sequence, int offset, int length, PolymerType polymerType, ResidueNumberScheme rns, Chain c, int indexStart) {
 
         System.out.println(" ... sequenceStringToResidueIds ... ");
 
-        if (sequenceString == null || rns == null) throw new NullPointerException();
+        if (sequence == null || rns == null) throw new NullPointerException();
         Set<ResidueId> result = new LinkedHashSet<ResidueId>();
-        char[] chars = sequenceString.toCharArray();
         char res;
-        String monId = "";
         int indexOfOpenBracket = -1;
         int dif;
         int resCount = indexStart;
@@ -80,40 +105,24 @@ public abstract class AbstractSequence implements Sequence, Serializable {
         ResidueIdImpl prev = (ResidueIdImpl) ResidueIdImpl.BEGINNING_OF_CHAIN, resId;
 
         // for each character
-        for (int i = 0; i < chars.length; i++) {
+        for (int i = offset; i < offset + length; i++) {
             // if it's an open bracket then we have a full mon_id coming up
-            if ((res = chars[i]) == '(') {
+            if ((res = sequence[i]) == '(') {
                 bracketIsOpen = true;
                 indexOfOpenBracket = i;
             }
             // or, if a bracket has been opened but not closed
             else if (bracketIsOpen) {
-                // so long as there have been fewer than three characters between the opening of the bracket and now
-                if ((dif = i - indexOfOpenBracket - 1) < 3) {
-                    // if it's not a close bracket, add to the mon_id
-                    if (res != ')') {
-                        monId += res;
-                    }
-                    // otherwise we have a full mon_id and we should add it to the result set
-                    else {
-                        bracketIsOpen = false;
-                        resId = createResidueId(rns, c, resCount++, monId, prev);
-                        result.add(resId);
-                        prev = resId;
-                        monId = "";
-                    }
-                }
-                // if there have been three already, then this had better be a close bracket
-                else if (dif == 3 && res == ')') {
+                dif = i - indexOfOpenBracket - 1;
+                // a close bracket after at most three characters ends the mon_id, add it to the result set
+                if (dif <= 3 && res == ')') {
                     bracketIsOpen = false;
-                    resId = createResidueId(rns, c, resCount++, monId, prev);
+                    resId = createResidueId(rns, c, resCount++, new String(sequence, indexOfOpenBracket + 1, dif), prev);
                     result.add(resId);
                     prev = resId;
-                    monId = "";
                 }
                 // otherwise something is amiss
-                else {
-                    assert dif > 3 || (dif == 3 && res != '(');
+                else if (dif >= 3) {
                     throw new RuntimeException("Ligand name > 3 characters found");
                 }
             }
@@ -131,7 +140,7 @@ public abstract class AbstractSequence implements Sequence, Serializable {
         return createResidueId(rns, c, seqId, ResidueProvider.getResidue(monId), prev);
     }
 
-    private static ResidueIdImpl createResidueId(ResidueNumberScheme rns, Chain c, int seqId, Character oneLettercode, PolymerType pt, ResidueIdImpl prev) {
+    private static ResidueIdImpl createResidueId(ResidueNumberScheme rns, Chain c, int seqId, char oneLettercode, PolymerType pt, ResidueIdImpl prev) {
         return createResidueId(rns, c, seqId, ResidueProvider.getResidue(pt, oneLettercode), prev);
     }
 
@@ -144,6 +153,159 @@ public abstract class AbstractSequence implements Sequence, Serializable {
 
     protected abstract void ensureResiduesInstantiated();
 
+    private static Map<ResidueNumberScheme, ResidueIndex> initResidueIndexes() {
+        Map<ResidueNumberScheme, ResidueIndex> result = new LinkedHashMap<ResidueNumberScheme, ResidueIndex>();
+        for (ResidueNumberScheme rns : ResidueNumberScheme.values()) {
+            result.put(rns, new ResidueIndex());
+        }
+        return result;
+    }
+
+    /**
+     * Link the residue ids of each residue number scheme to their previous and next residues,
+     * in the order in which they were added to the residue indexes, and number them in that order.
+     */
+    protected void linkResidues() {
+        //    for each collection of residueIds
+        for (ResidueNumberScheme rns : getResidueIndexes().keySet()) {
+            linkResidues(rns);
+        }
+        assignCanonicalPositions();
+        createResidueMappingTable();
+    }
+
+    /**
+     * Move the equivalents of the residue ids of this chain into a {@link ResidueMappingTable}. If the table can not
+     * be built the residue ids keep their own equivalents.
+     */
+    private void createResidueMappingTable() {
+        releaseResidueMappingTable();
+        Map<ResidueNumberScheme, ResidueIndex> residueIndexes = getResidueIndexes();
+        for (ResidueIndex index : residueIndexes.values()) {
+            for (int i = 0; i < index.size(); i++) {
+                // the residue ids find the table through their chain
+                if (index.get(i).getChain() != this)
+                    return;
+            }
+        }
+        ResidueMappingTable table = ResidueMappingTable.create(residueIndexes);
+        if (table == null) {
+            System.err.println("AbstractSequence: could not create a residue mapping table for " + getChainId());
+            return;
+        }
+        // the table has to be in place before the residue ids use it
+        residueMappingTable = table;
+        for (ResidueIndex index : residueIndexes.values()) {
+            for (int i = 0; i < index.size(); i++) {
+                ((ResidueIdImpl) index.get(i)).useMappingTable();
+            }
+        }
+    }
+
+    ResidueMappingTable getResidueMappingTable() {
+        return residueMappingTable;
+    }
+
+    /**
+     * Give the residue ids of this chain their own equivalents again, so that new equivalents can be added.
+     */
+    synchronized void releaseResidueMappingTable() {
+        ResidueMappingTable table = residueMappingTable;
+        if (table == null)
+            return;
+        for (int row = 0; row < table.getRowCount(); row++) {
+            ResidueIdImpl.shareEquivalents(table.getRow(row));
+        }
+        residueMappingTable = null;
+    }
+
+    /**
+     * Give the residue ids the positions that ResidueIdImpl.compareTo uses instead of their sequence ids. A scheme
+     * whose sequence ids do not increase along the chain gets no positions, so that its residues are compared as
+     * before.
+     */
+    private void assignCanonicalPositions() {
+        ResidueIndex seqres = getResidueIndex(ResidueNumberScheme.SEQRES);
+        boolean seqresOrdered = seqres != null && isOrdered(seqres);
+
+        for (ResidueNumberScheme rns : getResidueIndexes().keySet()) {
+            ResidueIndex index = getResidueIndex(rns);
+            boolean ordered = isOrdered(index);
+            for (int i = 0; i < index.size(); i++) {
+                ResidueIdImpl rid = (ResidueIdImpl) index.get(i);
+                ResidueId equivalent = rid.getEquivalentResidueId(ResidueNumberScheme.SEQRES);
+                if (rns == ResidueNumberScheme.ATOM && equivalent != null) {
+                    // ATOM residues are compared by their SEQRES equivalents
+                    rid.setCanonicalPosition(ResidueNumberScheme.SEQRES, seqresOrdered ? ResidueIdImpl.ordinalOf(equivalent) : -1);
+                } else if (rns == ResidueNumberScheme.SEQRES && equivalent != rid) {
+                    // an ATOM residue would not find this one as its own equivalent
+                    rid.setCanonicalPosition(rns, -1);
+                } else {
+                    rid.setCanonicalPosition(rns, ordered ? i : -1);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return true if the sequence ids and insertion codes increase from each residue id to the next
+     */
+    private static boolean isOrdered(ResidueIndex index) {
+        for (int i = 1; i < index.size(); i++) {
+            ResidueId prev = index.get(i - 1), cur = index.get(i);
+            int comparison = prev.getSeqId().compareTo(cur.getSeqId());
+            if (comparison == 0) {
+                Character prevCode = prev.getInsertionCode(), curCode = cur.getInsertionCode();
+                if (curCode == null || (prevCode != null && prevCode.compareTo(curCode) >= 0))
+                    return false;
+            } else if (comparison > 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void linkResidues(ResidueNumberScheme rns) {
+
+        //PdbLogger.info("ChainImpl: linking " +rns);
+        ResidueIndex index = getResidueIndex(rns);
+        if (index != null) {
+            // for each residueId..
+            Iterator<ResidueId> resIt = index.values().iterator();
+
+            /*
+			 * Take the first residue and put it into 'prev'. we don't
+			 * need to set it up with a previous residue because it's the
+			 * first in teh chain and the default previous residue is
+			 * BEGINNING_OF_CHAIN
+			 */
+            if (resIt.hasNext()) {
+                int ordinal = 0;
+                ResidueIdImpl prev = (ResidueIdImpl) resIt.next();
+                prev.setOrdinal(ordinal++);
+                //PdbLogger.info("ChainImpl: first residue: " + prev);
+
+                ResidueIdImpl cur = null;
+
+                while (resIt.hasNext()) {
+                    cur = (ResidueIdImpl) resIt.next();
+                    cur.setOrdinal(ordinal++);
+                    cur.setPrevious(prev);
+                    prev.setNext(cur);
+                    prev = cur;
+                }
+                //.info("last residue: " + cur);
+            }
+
+			/*
+			 * Now that we are at the end, we don't need to do anything
+			 * for the last residue because the default next residue is
+			 * END_OF_CHAIN
+			 */
+        }
+
+    }
+
     /**
      * clean up all internal data structures
      */
@@ -157,9 +319,9 @@ public abstract class AbstractSequence implements Sequence, Serializable {
         }
 
         annotationGroupMap.clear();
-        if (sequences != null)
-            sequences.clear();
-        residueIdMaps.clear();
+        sequences = null;
+        sequenceBytes = null;
+        residueIndexes = new LinkedHashMap<ResidueNumberScheme, ResidueIndex>();
 
 
     }
@@ -170,6 +332,55 @@ public abstract class AbstractSequence implements Sequence, Serializable {
         getAnnotationGroupMap().put((Class<AnnotationGroup<?>>) ag.getClass(), ag);
     }
 
+    /**
+     * Makes sure the given annotations of a sequence are constructed. Sequences that do not construct their
+     * annotation groups on first use are annotated as a whole by {@link Sequence#ensureAnnotated()}.
+     *
+     * @param s the sequence
+     * @param annotationNames the annotations that are going to be used
+     */
+    public static void ensureAnnotated(Sequence s, Collection<AnnotationName> annotationNames) {
+        if (s instanceof AbstractSequence)
+            ((AbstractSequence) s).ensureAnnotated(annotationNames);
+        else
+            s.ensureAnnotated();
+    }
+
+    /**
+     * Makes sure the given annotations are constructed, so that the other annotation groups of this sequence
+     * are only constructed when they are used.
+     *
+     * @param annotationNames the annotations that are going to be used
+     */
+    public void ensureAnnotated(Collection<AnnotationName> annotationNames) {
+        ensureAnnotated();
+        if (annotationNames == null)
+            return;
+
+        List<AnnotationGroup<?>> groups = new ArrayList<AnnotationGroup<?>>();
+        for (AnnotationName an : annotationNames) {
+            if (an == null)
+                continue;
+            AnnotationGroup<?> group = getAnnotationGroupMap().get(an.getAnnotationClass());
+            if (group != null && group.getStatus() == AnnotationStatus.instantiated && !groups.contains(group))
+                groups.add(group);
+        }
+        if (groups.size() > 0)
+            constructAnnotationGroups(groups);
+    }
+
+    /**
+     * Construct the annotations of the given groups. Groups that are not passed here are constructed when their
+     * annotations are first requested.
+     *
+     * @param groups
+     */
+    protected void constructAnnotationGroups(List<AnnotationGroup<?>> groups) {
+        for (AnnotationGroup<?> group : groups) {
+            group.getAnnotations();
+        }
+    }
+
     public <T extends AnnotationGroup<?>> boolean containsAnnotationGroup(Class<T> an) {
         return getAnnotationGroupMap().containsKey(an);
     }
@@ -264,14 +475,21 @@ public abstract class AbstractSequence implements Sequence, Serializable {
         } else {
             ensureResiduesInstantiated();
         }
-        return Collections.unmodifiableCollection(getResidueIdMaps().get(rns).values());
+        return getResidueIndex(rns).values();
     }
 
     @SuppressWarnings("unchecked")
     public Collection<ResidueId> getResidueIdsBetween(ResidueId start, ResidueId end) {
         ensureResiduesInstantiated();
         ResidueUtils.ensureResiduesComparable(start, end);
-        return Collections.unmodifiableCollection(CollectionUtils.select(getResidueIdMaps().get(start.getResidueNumberScheme()).values(), new ResidueIdBetweenPredicate(start, end)));
+
+        // both ends in this sequence: a view of the residues between them
+        ResidueIndex index = getResidueIndex(start.getResidueNumberScheme());
+        int from, to;
+        if (index != null && (from = index.indexOf(start)) >= 0 && (to = index.indexOf(end)) >= from) {
+            return index.subList(from, to + 1);
+        }
+        return Collections.unmodifiableCollection(CollectionUtils.select(getResidueIndex(start.getResidueNumberScheme()).values(), new ResidueIdBetweenPredicate(start, end)));
     }
 
     public Collection<ResidueId> getResidueIdsBetween(ResidueNumberScheme rns, Integer startId, Integer endId) {
@@ -285,9 +503,9 @@ public abstract class AbstractSequence implements Sequence, Serializable {
 
     public ResidueId getResidueId(ResidueNumberScheme rns, String idAsString) {
         ResidueId result = null;
-        Map<String, ResidueId> intermediate;
-        if ((intermediate = getResidueIdMaps().get(rns)) != null) {
-            result = intermediate.get(idAsString);
+        ResidueIndex index;
+        if ((index = getResidueIndex(rns)) != null) {
+            result = index.get(idAsString);
         }
         if (result == null) {
             System.err.println("AbstractSeqeunce: could not getResidueId: " + idAsString + " probably not found on residueIdMap.");
@@ -298,26 +516,13 @@ public abstract class AbstractSequence implements Sequence, Serializable {
     public ResidueId getFirstResidue(ResidueNumberScheme rns) {
 
         ensureResiduesInstantiated();
-        Iterator<ResidueId> it = getResidueIdMaps().get(rns).values().iterator();
-
-        return it.hasNext() ? it.next() : null;
+        return getResidueIndex(rns).first();
     }
 
     public ResidueId getLastResidue(ResidueNumberScheme rns) {
         ensureResiduesInstantiated();
-        // TODO: Make this less sucky
-        ResidueId result = null;
-        Map<ResidueNumberScheme, Map<String, ResidueId>> ridm = getResidueIdMaps();
-        if (ridm == null)
-            return null;
-        Map<String, ResidueId> rmap = ridm.get(rns);
-        if (rmap == null)
-            return null;
-
-        Iterator<ResidueId> it = rmap.values().iterator();
-        while (it.hasNext())
-            result = it.next();
-        return result;
+        ResidueIndex index = getResidueIndex(rns);
+        return index == null ? null : index.last();
     }
 
     /**
@@ -330,7 +535,8 @@ public abstract class AbstractSequence implements Sequence, Serializable {
     public boolean hasResiduesIndexedBy(
             ResidueNumberScheme residueNumberScheme) {
         ensureAnnotated();
-        return this.residueIdMaps.keySet().contains(residueNumberScheme) && this.residueIdMaps.get(residueNumberScheme).size() > 0;
+        ResidueIndex index = getResidueIndex(residueNumberScheme);
+        return index != null && index.size() > 0;
     }
 
     public boolean hasDbRefMapping() {
@@ -345,14 +551,20 @@ public abstract class AbstractSequence implements Sequence, Serializable {
             System.err.println("AbstractSequence: requested residue " + id + " but provided ResidueNumberScheme null.");
         } else // if(id != null)
         {
-            result = getResidueId(rns, id.toString());
+            ResidueIndex index = getResidueIndex(rns);
+            if (index != null)
+                result = index.get(id, ResidueIndex.NO_INSERTION_CODE);
+            if (result == null)
+                System.err.println("AbstractSeqeunce: could not getResidueId: " + id + " probably not found on residueIdMap.");
         }
         return result;
     }
 
     public ResidueId getResidueId(ResidueNumberScheme rns, Integer id, Character insertionCode) {
         if (id != null && insertionCode != null && rns != null && rns.hasInsertionCodes()) {
-            return getResidueId(rns, String.valueOf(id) + insertionCode);
+            ensureResiduesInstantiated();
+            ResidueIndex index = getResidueIndex(rns);
+            return index == null ? null : index.get(id, insertionCode);
         }
         return null;
     }
@@ -360,7 +572,7 @@ public abstract class AbstractSequence implements Sequence, Serializable {
     @SuppressWarnings("unchecked")
     public Collection<ResidueId> getIdsForResidue(ResidueInfo r, ResidueNumberScheme rns) {
         ensureAnnotated();
-        Collection<ResidueId> result = CollectionUtils.select(this.residueIdMaps.get(rns).values(), new ResiduePredicate(r));
+        Collection<ResidueId> result = CollectionUtils.select(getResidueIndex(rns).values(), new ResiduePredicate(r));
         return result;
     }
 
@@ -398,83 +610,173 @@ public abstract class AbstractSequence implements Sequence, Serializable {
             System.err.println(this + " has no residues indexed by " + seqRns + " or " + gapsRns);
             result = Collections.emptyMap();
         } else {
-            result = new LinkedHashMap<ResidueId, Integer>();
             ResidueId first = getFirstResidue(seqRns);
 
             // warning this can be null if no prev seq found!
             if (first == null)
                 return Collections.emptyMap();
 
-            ResidueId prevRidSeqRns = first.getPrevious(),
-                    ridOtherRns,
-                    prevRidOtherRns = getFirstResidue(gapsRns).getPrevious();
+            Map<ResidueId, Integer> indexed = getNonContiguousResidueIdsFromGapIndex(first, seqRns, gapsRns);
+            if (indexed != null)
+                return indexed;
+            result = scanNonContiguousResidueIds(first, seqRns, gapsRns);
+        }
+        return result;
+    }
 
-            int comparison;
+    /**
+     * {@link #getNonContiguousResidueIds(ResidueNumberScheme, ResidueNumberScheme)} by walking the residues of this
+     * sequence, for sequences that the gap index of the chain does not cover.
+     *
+     * @param first the first residue id of this sequence in <tt>seqRns</tt>
+     * @return the gaps
+     */
+    Map<ResidueId, Integer> scanNonContiguousResidueIds(ResidueId first, ResidueNumberScheme seqRns, ResidueNumberScheme gapsRns) {
+        Map<ResidueId, Integer> result = new LinkedHashMap<ResidueId, Integer>();
+        ResidueId prevRidSeqRns = first.getPrevious(),
+                ridOtherRns,
+                prevRidOtherRns = getFirstResidue(gapsRns).getPrevious();
 
-            for (ResidueId ridSeqRns : getResidueIds(seqRns)) {
-                assert ridSeqRns.getPrevious() == prevRidSeqRns;
+        int comparison, positionGap = 0;
+        // once the chain is linked its residue ids are at their ordinals, the gaps need not be walked
+        boolean positioned = first.getChain() instanceof AbstractSequence
+                && ((AbstractSequence) first.getChain()).getResidueMappingTable() != null;
 
-                ridOtherRns = ridSeqRns.getEquivalentResidueId(gapsRns);
+        for (ResidueId ridSeqRns : getResidueIds(seqRns)) {
+            assert ridSeqRns.getPrevious() == prevRidSeqRns;
 
-                // if there is no residue id in the gaps rns, then clearly there can't be a gap
-                if (ridOtherRns == null) {
-                    continue;
-                }
+            ridOtherRns = ridSeqRns.getEquivalentResidueId(gapsRns);
+
+            // if there is no residue id in the gaps rns, then clearly there can't be a gap
+            if (ridOtherRns == null) {
+                continue;
+            }
 
-                // now compare this residue and prevResidue in gapsRns
+            // now compare this residue and prevResidue in gapsRns
+            if (positioned) {
+                positionGap = ResidueIdImpl.ordinalOf(ridOtherRns) - (prevRidOtherRns.isBeginningOfChainMarker() ? -1 : ResidueIdImpl.ordinalOf(prevRidOtherRns)) - 1;
+                comparison = positionGap;
+            } else {
                 comparison = ridOtherRns.getPrevious().compareTo(prevRidOtherRns);
+            }
 
-                // if they are the same...
-                if (comparison == 0) {
-                    // we are all good; do nothing.
-                }
-                // if we have skipped ahead, there must be a gap
-                else if (comparison > 0) {
-                    // how big is that gap?
-                    int gapSize = 0;
-                    if (!prevRidOtherRns.isBeginningOfChainMarker()) {
-                        while ((prevRidOtherRns = prevRidOtherRns.getNext()) != ridOtherRns) {
-                            ++gapSize;
-                        }
-                    } else if (!ridOtherRns.isEndOfChainMarker()) {
-                        ResidueId aRid = ridOtherRns;
-                        while ((aRid = aRid.getPrevious()) != prevRidOtherRns) {
-                            ++gapSize;
-                        }
-                    } else {
-                        throw new RuntimeException("The number of residues between the beginning and end chain markers is undetermined");
+            // if they are the same...
+            if (comparison == 0) {
+                // we are all good; do nothing.
+            }
+            // if we have skipped ahead, there must be a gap
+            else if (comparison > 0) {
+                // how big is that gap?
+                int gapSize = 0;
+                if (positioned) {
+                    gapSize = positionGap;
+                } else if (!prevRidOtherRns.isBeginningOfChainMarker()) {
+                    while ((prevRidOtherRns = prevRidOtherRns.getNext()) != ridOtherRns) {
+                        ++gapSize;
+                    }
+                } else if (!ridOtherRns.isEndOfChainMarker()) {
+                    ResidueId aRid = ridOtherRns;
+                    while ((aRid = aRid.getPrevious()) != prevRidOtherRns) {
+                        ++gapSize;
                     }
-                    result.put(prevRidSeqRns, gapSize);
                 } else {
-                    throw new RuntimeException("AbstractSequence: Residues may be out of order!");
+                    throw new RuntimeException("The number of residues between the beginning and end chain markers is undetermined");
                 }
-
-                prevRidSeqRns = ridSeqRns;
-                prevRidOtherRns = ridOtherRns;
+                result.put(prevRidSeqRns, gapSize);
+            } else {
+                throw new RuntimeException("AbstractSequence: Residues may be out of order!");
             }
+
+            prevRidSeqRns = ridSeqRns;
+            prevRidOtherRns = ridOtherRns;
+        }
+        return result;
+    }
+
+    /**
+     * {@link #getNonContiguousResidueIds(ResidueNumberScheme, ResidueNumberScheme)} through the gap index of the chain,
+     * for sequences whose residues in <tt>seqRns</tt> follow each other in the chain.
+     *
+     * @return the gaps, or null if the chain has no gap index for the schemes
+     */
+    Map<ResidueId, Integer> getNonContiguousResidueIdsFromGapIndex(ResidueId first, ResidueNumberScheme seqRns, ResidueNumberScheme gapsRns) {
+        if (!(first.getChain() instanceof AbstractSequence))
+            return null;
+        AbstractSequence chain = (AbstractSequence) first.getChain();
+        ResidueMappingTable table = chain.getResidueMappingTable();
+        ResidueIndex chainIndex = chain.getResidueIndex(seqRns);
+        ResidueIndex index = getResidueIndex(seqRns);
+        ResidueId firstGaps = getFirstResidue(gapsRns);
+        if (table == null || chainIndex == null || firstGaps == null)
+            return null;
+
+        int from = ResidueIdImpl.ordinalOf(first), to = ResidueIdImpl.ordinalOf(index.last());
+        if (from < 0 || to < from || to - from + 1 != index.size() || chainIndex.size() <= to
+                || chainIndex.get(from) != first || chainIndex.get(to) != index.last())
+            return null;
+        ResidueMappingTable.GapIndex gaps = table.getGapIndex(seqRns, gapsRns);
+        if (gaps == null || ResidueIdImpl.ordinalOf(firstGaps) < 0)
+            return null;
+
+        Map<ResidueId, Integer> result = new LinkedHashMap<ResidueId, Integer>();
+        int firstMapped = table.getNextMappedPosition(seqRns, from, gapsRns);
+        if (firstMapped < 0 || firstMapped > to)
+            return result;
+
+        // the first residue with an equivalent is compared with the residue before the first one of this sequence
+        int gap = table.getEquivalentPosition(seqRns, firstMapped, gapsRns) - ResidueIdImpl.ordinalOf(firstGaps);
+        if (gap > 0)
+            result.put(first.getPrevious(), gap);
+        else if (gap < 0)
+            throw new RuntimeException("AbstractSequence: Residues may be out of order!");
+
+        for (int i = gaps.firstAfter(firstMapped); i < gaps.size() && gaps.getNext(i) <= to; i++) {
+            result.put(chainIndex.get(gaps.getPrevious(i)), gaps.getSize(i));
         }
         return result;
     }
 
     public String getSequenceString(ResidueNumberScheme rns) {
-        String theResult;
-        String sequenceString = getSequenceString();
         if (rns == null) throw new NullPointerException();
+        if (rns == SEQRES) return getSequenceString(); // mmcif is the default
 
-        if (rns == SEQRES) theResult = sequenceString; // mmcif is the default
-        else if (sequences != null && sequences.containsKey(rns)) {
-            theResult = sequences.get(rns);
-        } else {
-            if (sequences == null) {
-                sequences = new HashMap<ResidueNumberScheme, String>();
-            }
-            StringBuilder sb = new StringBuilder(sequenceString.length() * 2);
-            for (ResidueId rid : getResidueIdMaps().get(rns).values()) {
-                sb.append(rid.getResidueInfo().getOneLetterCode());
-            }
-            theResult = sb.toString();
+        AtomicReferenceArray<String> cache = sequences;
+        if (cache == null) {
+            // two threads may both create one, the sequences stored in the other are generated again
+            cache = new AtomicReferenceArray<String>(ResidueNumberScheme.values().length);
+            sequences = cache;
         }
-        return theResult;
+        ResidueIndex index = getResidueIndex(rns);
+        String result = cache.get(rns.ordinal());
+        // residues are still added to the chains of a structure that is being read
+        if (result == null || result.length() != index.size()) {
+            result = getSequenceString(index.values());
+            cache.set(rns.ordinal(), result);
+        }
+        return result;
+    }
+
+    /**
+     * The sequence in a residue number scheme as US-ASCII bytes, for writing it out without encoding it for every
+     * request. Characters that are not ASCII are written as '?'.
+     *
+     * @param rns
+     * @return the bytes of {@link #getSequenceString(ResidueNumberScheme)}, shared by all callers: do not modify them
+     */
+    public byte[] getSequenceBytes(ResidueNumberScheme rns) {
+        String sequenceString = getSequenceString(rns);
+
+        AtomicReferenceArray<byte[]> cache = sequenceBytes;
+        if (cache == null) {
+            cache = new AtomicReferenceArray<byte[]>(ResidueNumberScheme.values().length);
+            sequenceBytes = cache;
+        }
+        byte[] result = cache.get(rns.ordinal());
+        if (result == null || result.length != sequenceString.length()) {
+            result = sequenceString.getBytes(US_ASCII);
+            cache.set(rns.ordinal(), result);
+        }
+        return result;
     }
 
     public String getSequenceString() {
@@ -492,13 +794,31 @@ public abstract class AbstractSequence implements Sequence, Serializable {
 
         if (rns == SEQRES) result = getSequenceLength();
         else {
-            result = getResidueIdMaps().get(rns).size();
+            result = getResidueIndex(rns).size();
+        }
+        return result;
+    }
+
+    public Map<ResidueNumberScheme, ResidueIndex> getResidueIndexes() {
+        Map<ResidueNumberScheme, ResidueIndex> result = residueIndexes;
+        if (result == null) {
+            synchronized (this) {
+                result = residueIndexes;
+                if (result == null) {
+                    result = initResidueIndexes();
+                    residueIndexes = result;
+                }
+            }
         }
         return result;
     }
 
-    public Map<ResidueNumberScheme, Map<String, ResidueId>> getResidueIdMaps() {
-        return residueIdMaps;
+    /**
+     * @param rns
+     * @return the residue ids of this sequence in a residue number scheme, or null after {@link #destroy()}
+     */
+    public ResidueIndex getResidueIndex(ResidueNumberScheme rns) {
+        return getResidueIndexes().get(rns);
     }
 
     public SegmentedSequence getSegmentedSequence(int fragmentLength, ResidueNumberScheme rns) {
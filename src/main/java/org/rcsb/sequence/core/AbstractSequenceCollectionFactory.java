@@ -0,0 +1,214 @@
+package org.rcsb.sequence.core;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.rcsb.sequence.model.SequenceCollection;
+
+/**
+ * Base class for {@link SequenceCollectionFactory} implementations that provides load profiles and batch loading on
+ * top of {@link #get(String)}. These are kept here rather than on the interface, so that existing implementations of
+ * {@link SequenceCollectionFactory} keep working.
+ * <p>
+ * Batches are loaded by a bounded pool of worker threads. At most <tt>maxInFlight</tt> structures are
+ * being loaded or waiting to be consumed at any time, so the memory used by a batch does not grow with its size.
+ * </p>
+ */
+public abstract class AbstractSequenceCollectionFactory implements SequenceCollectionFactory {
+
+    private static final long WORKER_KEEP_ALIVE_SECONDS = 10;
+
+    private int batchThreads = Runtime.getRuntime().availableProcessors();
+    private int maxInFlight = 2 * Runtime.getRuntime().availableProcessors();
+
+    public int getBatchThreads() {
+        return batchThreads;
+    }
+
+    /**
+     * @param batchThreads the number of worker threads used by {@link #getAll(Collection)}
+     */
+    public void setBatchThreads(int batchThreads) {
+        if (batchThreads < 1) throw new IllegalArgumentException("batchThreads must be at least 1");
+        this.batchThreads = batchThreads;
+    }
+
+    public int getMaxInFlight() {
+        return maxInFlight;
+    }
+
+    /**
+     * @param maxInFlight the maximum number of structures of a batch that are loading or have been loaded but not yet consumed
+     */
+    public void setMaxInFlight(int maxInFlight) {
+        if (maxInFlight < 1) throw new IllegalArgumentException("maxInFlight must be at least 1");
+        this.maxInFlight = maxInFlight;
+    }
+
+    /**
+     * Load an entry, parsing only as much as is required by the profile. Implementations may return
+     * a collection that was loaded with a more expensive profile.
+     * <p>
+     * Factories that can not parse partial structures ignore the profile and always load everything.
+     * </p>
+     *
+     * @param structureId
+     * @param profile
+     * @return
+     */
+    public SequenceCollection get(String structureId, LoadProfile profile) {
+        return get(structureId);
+    }
+
+    /**
+     * Load an entry with a profile from any factory. Factories that do not extend this class load everything.
+     *
+     * @param factory
+     * @param structureId
+     * @param profile
+     * @return
+     */
+    public static SequenceCollection get(SequenceCollectionFactory factory, String structureId, LoadProfile profile) {
+        if (factory instanceof AbstractSequenceCollectionFactory)
+            return ((AbstractSequenceCollectionFactory) factory).get(structureId, profile);
+        return factory.get(structureId);
+    }
+
+    /**
+     * Load many entries. The returned iterator provides one result per requested structure id, in the order
+     * in which the loads complete. A failure to load one entry does not abort the batch.
+     *
+     * @param structureIds
+     * @return
+     */
+    public Iterator<BatchLoadResult> getAll(Collection<String> structureIds) {
+        return getAll(structureIds, new Loader() {
+            public SequenceCollection load(String structureId) {
+                return get(structureId);
+            }
+        });
+    }
+
+    /**
+     * Load many entries with the threads and limits of this factory, each through the given loader.
+     */
+    Iterator<BatchLoadResult> getAll(Collection<String> structureIds, Loader loader) {
+        return new BatchIterator(new ArrayList<String>(structureIds), loader, batchThreads, maxInFlight);
+    }
+
+    private static BatchLoadResult load(Loader loader, String structureId) {
+        try {
+            SequenceCollection collection = loader.load(structureId);
+            if (collection == null) {
+                return new BatchLoadResult(structureId, null, new RuntimeException("Could not load " + structureId));
+            }
+            return new BatchLoadResult(structureId, collection, null);
+        } catch (Throwable t) {
+            return new BatchLoadResult(structureId, null, t);
+        }
+    }
+
+    /**
+     * Submits a new load every time a result is consumed, which keeps the number of in-flight structures bounded.
+     */
+    private class BatchIterator implements Iterator<BatchLoadResult> {
+
+        private final List<String> structureIds;
+        private final Loader loader;
+        private final ThreadPoolExecutor executor;
+        private final CompletionService<BatchLoadResult> completionService;
+        private int submitted = 0;
+        private int consumed = 0;
+
+        BatchIterator(List<String> structureIds, Loader loader, int threads, int maxInFlight) {
+            this.structureIds = structureIds;
+            this.loader = loader;
+
+            int poolSize = Math.max(1, Math.min(threads, Math.min(maxInFlight, structureIds.size())));
+            this.executor = new ThreadPoolExecutor(poolSize, poolSize, WORKER_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<Runnable>(), new BatchThreadFactory());
+            // an abandoned iterator must not keep its threads alive
+            this.executor.allowCoreThreadTimeOut(true);
+            this.completionService = new ExecutorCompletionService<BatchLoadResult>(executor);
+
+            while (submitted < structureIds.size() && submitted < maxInFlight) {
+                submitNext();
+            }
+            if (structureIds.isEmpty()) {
+                executor.shutdown();
+            }
+        }
+
+        private void submitNext() {
+            final String structureId = structureIds.get(submitted++);
+            completionService.submit(new Callable<BatchLoadResult>() {
+                public BatchLoadResult call() {
+                    return load(loader, structureId);
+                }
+            });
+        }
+
+        public boolean hasNext() {
+            return consumed < structureIds.size();
+        }
+
+        public BatchLoadResult next() {
+            if (!hasNext()) throw new NoSuchElementException();
+
+            BatchLoadResult result;
+            try {
+                result = completionService.take().get();
+            } catch (InterruptedException e) {
+                executor.shutdownNow();
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Interrupted while waiting for batch results", e);
+            } catch (ExecutionException e) {
+                // load() catches everything, so this should not happen
+                throw new RuntimeException(e.getCause());
+            }
+
+            consumed++;
+            if (submitted < structureIds.size()) {
+                submitNext();
+            } else if (!hasNext()) {
+                executor.shutdown();
+            }
+            return result;
+        }
+
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    /**
+     * Loads a single entry of a batch.
+     */
+    interface Loader {
+        SequenceCollection load(String structureId);
+    }
+
+    private static class BatchThreadFactory implements ThreadFactory {
+        private static final AtomicInteger poolNumber = new AtomicInteger();
+        private final int pool = poolNumber.incrementAndGet();
+        private final AtomicInteger threadNumber = new AtomicInteger();
+
+        public Thread newThread(Runnable r) {
+            Thread t = new Thread(r, "sequence-collection-batch-" + pool + "-" + threadNumber.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        }
+    }
+}
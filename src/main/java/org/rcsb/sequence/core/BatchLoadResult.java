@@ -0,0 +1,56 @@
+package org.rcsb.sequence.core;
+
+import org.rcsb.sequence.model.SequenceCollection;
+
+/**
+ * The outcome of loading a single entry as part of a batch.
+ *
+ * @see AbstractSequenceCollectionFactory#getAll(java.util.Collection)
+ */
+public class BatchLoadResult {
+
+    private final String structureId;
+    private final SequenceCollection sequenceCollection;
+    private final Throwable error;
+
+    public BatchLoadResult(String structureId, SequenceCollection sequenceCollection, Throwable error) {
+        this.structureId = structureId;
+        this.sequenceCollection = sequenceCollection;
+        this.error = error;
+    }
+
+    public String getStructureId() {
+        return structureId;
+    }
+
+    /**
+     * @return the loaded collection, or null if loading failed
+     */
+    public SequenceCollection getSequenceCollection() {
+        return sequenceCollection;
+    }
+
+    /**
+     * @return the exception thrown while loading this entry, or null
+     */
+    public Throwable getError() {
+        return error;
+    }
+
+    public boolean isSuccess() {
+        return sequenceCollection != null;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder retValue = new StringBuilder();
+        retValue.append("BatchLoadResult ( ")
+                .append(structureId)
+                .append(isSuccess() ? " loaded" : " failed");
+        if (error != null) {
+            retValue.append(": ").append(error.getMessage());
+        }
+        retValue.append(" )");
+        return retValue.toString();
+    }
+}
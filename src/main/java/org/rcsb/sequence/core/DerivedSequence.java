@@ -3,6 +3,7 @@ package org.rcsb.sequence.core;
 
 import java.io.Serializable;
 import java.util.Collection;
+import java.util.Map;
 
 import org.rcsb.sequence.model.Chain;
 import org.rcsb.sequence.model.PolymerType;
@@ -11,14 +12,26 @@ import org.rcsb.sequence.model.ResidueNumberScheme;
 import org.rcsb.sequence.model.ResidueUtils;
 import org.rcsb.sequence.model.SequenceCollection;
 
+/**
+ * The residues of a chain between two residue ids, such as the residues of an annotation.
+ * <p>
+ * Only the first and last residue ids are kept. The residue ids of all schemes are put in the maps of this sequence
+ * when something asks for them; until then the first and last residues, the length, and whether a residue id belongs to
+ * the sequence are worked out from the positions of the two residue ids in the chain, once the chain has been linked.
+ * </p>
+ */
 public class DerivedSequence extends AbstractSequence implements Serializable {
 
     private static final long serialVersionUID = 1L;
     private final Chain backingChain;
     private final ResidueNumberScheme residueNumberScheme;
+    private final ResidueId start;
+    private final ResidueId end;
+    private volatile boolean instantiated = false;
+    private volatile String sequenceString = null;
 
     public DerivedSequence(ResidueId start, ResidueId end) {
-        super(getSequenceString(ResidueUtils.getResidueIdsBetween(start, end)));
+        super(null);
 
         ResidueUtils.ensureResiduesComparable(start, end);
         if (start.isAfter(end)) {
@@ -27,13 +40,141 @@ public class DerivedSequence extends AbstractSequence implements Serializable {
 
         this.backingChain = start.getChain();
         this.residueNumberScheme = start.getResidueNumberScheme();
-
-        ResidueUtils.initDerivedResidueIdMap(getResidueIdMaps(), start, end);
+        this.start = start;
+        this.end = end;
     }
+
     public DerivedSequence(ResidueId theResidueId) {
         this(theResidueId, theResidueId);
     }
 
+    @Override
+    protected void ensureResiduesInstantiated() {
+        if (instantiated)
+            return;
+        synchronized (this) {
+            if (!instantiated) {
+                ResidueUtils.initDerivedResidueIdMap(super.getResidueIndexes(), start, end);
+                instantiated = true;
+            }
+        }
+    }
+
+    @Override
+    public Map<ResidueNumberScheme, ResidueIndex> getResidueIndexes() {
+        ensureResiduesInstantiated();
+        return super.getResidueIndexes();
+    }
+
+    @Override
+    public ResidueIndex getResidueIndex(ResidueNumberScheme rns) {
+        ensureResiduesInstantiated();
+        return super.getResidueIndex(rns);
+    }
+
+    /**
+     * @return the chain if the first and last residue ids are at their positions in it, otherwise null
+     */
+    private AbstractSequence getPositionedChain() {
+        if (!(backingChain instanceof AbstractSequence) || end.getChain() != backingChain)
+            return null;
+        AbstractSequence chain = (AbstractSequence) backingChain;
+        ResidueIndex index = chain.getResidueIndex(residueNumberScheme);
+        int first = ResidueIdImpl.ordinalOf(start), last = ResidueIdImpl.ordinalOf(end);
+        if (index == null || first < 0 || last < first || last >= index.size() || index.get(first) != start || index.get(last) != end)
+            return null;
+        return chain;
+    }
+
+    /**
+     * @return the chain if residue ids of other schemes can be mapped onto the positions of the first and last
+     * residue ids through its residue mapping table, otherwise null
+     */
+    private AbstractSequence getMappedChain() {
+        AbstractSequence chain = getPositionedChain();
+        return chain == null || chain.getResidueMappingTable() == null ? null : chain;
+    }
+
+    @Override
+    public String getSequenceString() {
+        String result = sequenceString;
+        if (result == null) {
+            result = getSequenceString(ResidueUtils.getResidueIdsBetween(start, end));
+            sequenceString = result;
+        }
+        return result;
+    }
+
+    @Override
+    public int getSequenceLength() {
+        if (!instantiated && getPositionedChain() != null)
+            return ResidueIdImpl.ordinalOf(end) - ResidueIdImpl.ordinalOf(start) + 1;
+        return getSequenceString().length();
+    }
+
+    @Override
+    public Collection<ResidueId> getResidueIds(ResidueNumberScheme rns) {
+        AbstractSequence chain;
+        if (!instantiated && rns == residueNumberScheme && (chain = getPositionedChain()) != null)
+            return chain.getResidueIndex(rns).subList(ResidueIdImpl.ordinalOf(start), ResidueIdImpl.ordinalOf(end) + 1);
+        return super.getResidueIds(rns);
+    }
+
+    @Override
+    public ResidueId getFirstResidue(ResidueNumberScheme rns) {
+        if (!instantiated) {
+            if (rns == residueNumberScheme)
+                return start;
+            if (getMappedChain() != null) {
+                // the equivalent of the first residue that has one, if that residue is in this sequence
+                ResidueId first = start.getNextEquivalentResidueId(rns);
+                return first.isEndOfChainMarker() || ResidueIdImpl.ordinalOf(first.getEquivalentResidueId(residueNumberScheme)) > ResidueIdImpl.ordinalOf(end) ? null : first;
+            }
+        }
+        return super.getFirstResidue(rns);
+    }
+
+    @Override
+    public ResidueId getLastResidue(ResidueNumberScheme rns) {
+        if (!instantiated) {
+            if (rns == residueNumberScheme)
+                return end;
+            if (getMappedChain() != null) {
+                ResidueId last = end.getPreviousEquivalentResidueId(rns);
+                return last.isBeginningOfChainMarker() || ResidueIdImpl.ordinalOf(last.getEquivalentResidueId(residueNumberScheme)) < ResidueIdImpl.ordinalOf(start) ? null : last;
+            }
+        }
+        return super.getLastResidue(rns);
+    }
+
+    @Override
+    public boolean containsResidue(ResidueId theResidueId) {
+        if (theResidueId == null || theResidueId.isBeginningOfChainMarker() || theResidueId.isEndOfChainMarker())
+            return false;
+        if (!instantiated && theResidueId.getChain() == backingChain && ResidueIdImpl.ordinalOf(theResidueId) >= 0) {
+            if (theResidueId.getResidueNumberScheme() == residueNumberScheme) {
+                if (getPositionedChain() != null)
+                    return isBetweenStartAndEnd(theResidueId);
+            } else if (getMappedChain() != null) {
+                ResidueId equivalent = theResidueId.getEquivalentResidueId(residueNumberScheme);
+                return equivalent != null && isBetweenStartAndEnd(equivalent);
+            }
+        }
+        return super.containsResidue(theResidueId);
+    }
+
+    private boolean isBetweenStartAndEnd(ResidueId rid) {
+        int ordinal = ResidueIdImpl.ordinalOf(rid);
+        return ordinal >= ResidueIdImpl.ordinalOf(start) && ordinal <= ResidueIdImpl.ordinalOf(end);
+    }
+
+    @Override
+    public void destroy() {
+        // nothing is instantiated any more once the maps have been cleared
+        instantiated = true;
+        super.destroy();
+    }
+
     public String getChainId() {
         return backingChain.getChainId();
     }
@@ -50,11 +191,6 @@ public class DerivedSequence extends AbstractSequence implements Serializable {
         // do nothing
     }
 
-    @Override
-    protected void ensureResiduesInstantiated() {
-        // do nothing
-    }
-
     public Chain getChain() {
         return backingChain;
     }
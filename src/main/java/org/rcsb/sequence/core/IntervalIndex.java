@@ -0,0 +1,150 @@
+package org.rcsb.sequence.core;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * An interval tree over a fixed set of closed int intervals, such as the positions of the residues covered by the
+ * annotations of a group.
+ * <p>
+ * The intervals are kept in an array sorted by their start, which is read as an implicit binary tree: the node at an
+ * index with <tt>k</tt> trailing one bits is at level <tt>k</tt>, and each node holds the largest end in its subtree.
+ * Finding the <tt>m</tt> intervals that overlap a range takes <tt>O(log n + m)</tt>.
+ * </p>
+ */
+final class IntervalIndex implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    // subtrees of this level or below are scanned
+    private static final int SCAN_LEVEL = 3;
+
+    private final int size;
+    private final int[] starts;
+    private final int[] ends;
+    private final int[] maxEnds;
+    // the number of each interval in the order in which they were given
+    private final int[] ids;
+    private final int rootLevel;
+
+    /**
+     * @param starts the first position of each interval
+     * @param ends   the last position of each interval, or an end before its start for an interval that covers no position
+     */
+    IntervalIndex(int[] starts, int[] ends) {
+        size = starts.length;
+        this.starts = new int[size];
+        this.ends = new int[size];
+        this.maxEnds = new int[size];
+        this.ids = new int[size];
+
+        // sort by start, and by the order in which they were given for the same start
+        long[] order = new long[size];
+        for (int i = 0; i < size; i++) {
+            order[i] = ((long) starts[i] << 32) | i;
+        }
+        Arrays.sort(order);
+        for (int i = 0; i < size; i++) {
+            int id = (int) order[i];
+            this.starts[i] = starts[id];
+            this.ends[i] = ends[id];
+            this.ids[i] = id;
+        }
+        rootLevel = index();
+    }
+
+    /**
+     * Compute the largest end in the subtree of each node, bottom up.
+     *
+     * @return the level of the root
+     */
+    private int index() {
+        if (size == 0)
+            return -1;
+
+        int lastIndex = 0, last = 0;
+        for (int i = 0; i < size; i += 2) {
+            lastIndex = i;
+            last = maxEnds[i] = ends[i];
+        }
+        int k;
+        for (k = 1; 1 << k <= size; k++) {
+            int x = 1 << (k - 1), first = (x << 1) - 1, step = x << 2;
+            for (int i = first; i < size; i += step) {
+                int left = maxEnds[i - x];
+                // a right child beyond the last interval stands for the last subtree
+                int right = i + x < size ? maxEnds[i + x] : last;
+                maxEnds[i] = Math.max(ends[i], Math.max(left, right));
+            }
+            // move to the parent of the last node
+            lastIndex = ((lastIndex >> k) & 1) != 0 ? lastIndex - x : lastIndex + x;
+            if (lastIndex < size && maxEnds[lastIndex] > last)
+                last = maxEnds[lastIndex];
+        }
+        return k - 1;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * @param from the first position of the range
+     * @param to   the last position of the range
+     * @return the numbers of the intervals that overlap the range, in the order in which the intervals were given
+     */
+    int[] overlapping(int from, int to) {
+        int[] result = new int[4];
+        int count = 0;
+        if (size == 0 || to < from)
+            return new int[0];
+
+        // nodes still to visit, and whether their left child has been visited
+        int[] nodes = new int[64];
+        int[] levels = new int[64];
+        boolean[] leftDone = new boolean[64];
+        int top = 0;
+        nodes[top] = (1 << rootLevel) - 1;
+        levels[top] = rootLevel;
+        leftDone[top++] = false;
+
+        while (top > 0) {
+            top--;
+            int x = nodes[top], k = levels[top];
+            if (k <= SCAN_LEVEL) {
+                // a small subtree, scan it
+                int i = x >> k << k, end = Math.min(i + (1 << (k + 1)) - 1, size);
+                for (; i < end && starts[i] <= to; i++) {
+                    if (ends[i] >= from)
+                        result = add(result, count++, ids[i]);
+                }
+            } else if (!leftDone[top]) {
+                leftDone[top++] = true;
+                int left = x - (1 << (k - 1));
+                // the left child may be beyond the last interval
+                if (left >= size || maxEnds[left] >= from) {
+                    nodes[top] = left;
+                    levels[top] = k - 1;
+                    leftDone[top++] = false;
+                }
+            } else if (x < size && starts[x] <= to) {
+                if (ends[x] >= from)
+                    result = add(result, count++, ids[x]);
+                nodes[top] = x + (1 << (k - 1));
+                levels[top] = k - 1;
+                leftDone[top++] = false;
+            }
+        }
+
+        result = Arrays.copyOf(result, count);
+        Arrays.sort(result);
+        return result;
+    }
+
+    private static int[] add(int[] values, int count, int value) {
+        if (count == values.length)
+            values = Arrays.copyOf(values, count * 2);
+        values[count] = value;
+        return values;
+    }
+}
@@ -0,0 +1,74 @@
+package org.rcsb.sequence.core;
+
+import java.util.Collection;
+
+import org.rcsb.sequence.conf.AnnotationName;
+import org.rcsb.sequence.model.ResidueNumberScheme;
+import org.rcsb.sequence.util.AnnotationConstants;
+
+/**
+ * How much of a structure needs to be parsed to serve a request. The profiles are ordered by cost,
+ * a collection loaded with a profile can also serve all requests that need a cheaper profile.
+ */
+public enum LoadProfile {
+
+    /**
+     * the SEQRES sequences of the chains only, no coordinates
+     */
+    SEQUENCE,
+
+    /**
+     * the sequences and the mapping of SEQRES to ATOM residue numbers. Coordinates are read,
+     * but secondary structure and bonds are not.
+     */
+    RESIDUE_MAPPING,
+
+    /**
+     * everything, as required for DSSP, protein modifications and disulphide bonds
+     */
+    FULL;
+
+    /**
+     * @param other
+     * @return true if a collection loaded with this profile can be used for a request that needs the other profile
+     */
+    public boolean satisfies(LoadProfile other) {
+        return compareTo(other) >= 0;
+    }
+
+    /**
+     * @param name
+     * @return the cheapest profile that can provide this annotation
+     */
+    public static LoadProfile forAnnotation(AnnotationName name) {
+        String n = name.getName();
+        if (AnnotationConstants.SCOP.equals(n) || AnnotationConstants.siteRecord.equals(n))
+            return RESIDUE_MAPPING;
+        // DSSP, protein modifications, disulphides, author secondary structure and anything we do not know about
+        return FULL;
+    }
+
+    /**
+     * @param annotations the annotations that are going to be displayed, may be null
+     * @param rulers      the residue number schemes of the rulers that are going to be displayed, may contain null
+     * @return the cheapest profile that can provide all of these
+     */
+    public static LoadProfile forAnnotations(Collection<AnnotationName> annotations, ResidueNumberScheme... rulers) {
+        LoadProfile result = SEQUENCE;
+        for (ResidueNumberScheme rns : rulers) {
+            if (rns == ResidueNumberScheme.ATOM)
+                result = RESIDUE_MAPPING;
+        }
+        if (annotations == null)
+            return result;
+
+        for (AnnotationName name : annotations) {
+            LoadProfile p = forAnnotation(name);
+            if (p.compareTo(result) > 0)
+                result = p;
+            if (result == FULL)
+                break;
+        }
+        return result;
+    }
+}
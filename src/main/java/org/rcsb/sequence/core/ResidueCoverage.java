@@ -0,0 +1,210 @@
+package org.rcsb.sequence.core;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Collection;
+
+import org.apache.commons.collections.Bag;
+import org.apache.commons.collections.bag.HashBag;
+import org.rcsb.sequence.model.Chain;
+import org.rcsb.sequence.model.ResidueId;
+import org.rcsb.sequence.model.ResidueNumberScheme;
+import org.rcsb.sequence.model.ResidueUtils;
+
+/**
+ * Counts how many annotations of a group cover each residue.
+ * <p>
+ * Residues are counted by their position in their chain, in an array per residue number scheme, so a range of
+ * residues is added or checked without creating or hashing residue ids. Residues without a position, or of another
+ * chain than the first one counted, are kept in a bag, and are counted together with an equal residue of the chain.
+ * </p>
+ */
+final class ResidueCoverage implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private Chain chain = null;
+    // the number of annotations covering each residue, by residue number scheme and position from the offset
+    private final int[][] counts = new int[ResidueNumberScheme.values().length][];
+    private final int[] offsets = new int[ResidueNumberScheme.values().length];
+    // created when a residue without a position is added
+    private Bag others = null;
+    private int maxCount = 0;
+
+    /**
+     * Count the residues between two residues once more.
+     */
+    void add(ResidueId start, ResidueId end) {
+        // once there is a bag, each residue is counted together with the equal ones in it
+        if (isRange(start, end) && others == null) {
+            ResidueNumberScheme rns = start.getResidueNumberScheme();
+            int first = ResidueIdImpl.ordinalOf(start), last = ResidueIdImpl.ordinalOf(end);
+            int[] c = getCounts(rns, first, last);
+            int offset = offsets[rns.ordinal()];
+            for (int i = first - offset; i <= last - offset; i++) {
+                if (++c[i] > maxCount)
+                    maxCount = c[i];
+            }
+        } else {
+            addAll(ResidueUtils.getResidueIdsBetween(start, end));
+        }
+    }
+
+    /**
+     * Count the residues once more.
+     */
+    void addAll(Collection<ResidueId> residueIds) {
+        for (ResidueId rid : residueIds) {
+            add(rid);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void add(ResidueId rid) {
+        if (isPositioned(rid)) {
+            ResidueNumberScheme rns = rid.getResidueNumberScheme();
+            int ordinal = ResidueIdImpl.ordinalOf(rid);
+            int[] c = getCounts(rns, ordinal, ordinal);
+            ++c[ordinal - offsets[rns.ordinal()]];
+        } else {
+            if (others == null)
+                others = new HashBag();
+            others.add(rid);
+        }
+        int count = getCount(rid);
+        if (count > maxCount)
+            maxCount = count;
+    }
+
+    /**
+     * @return true if any residue between two residues has been counted
+     */
+    boolean coversAny(ResidueId start, ResidueId end) {
+        if (isRange(start, end) && others == null) {
+            int[] c = counts[start.getResidueNumberScheme().ordinal()];
+            if (c == null)
+                return false;
+            int offset = offsets[start.getResidueNumberScheme().ordinal()];
+            int first = Math.max(ResidueIdImpl.ordinalOf(start) - offset, 0), last = Math.min(ResidueIdImpl.ordinalOf(end) - offset, c.length - 1);
+            for (int i = first; i <= last; i++) {
+                if (c[i] > 0)
+                    return true;
+            }
+            return false;
+        }
+        for (ResidueId rid : ResidueUtils.getResidueIdsBetween(start, end)) {
+            if (getCount(rid) > 0)
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * @return how often a residue has been counted
+     */
+    int getCount(ResidueId rid) {
+        if (rid == null)
+            return 0;
+        return getPositionCount(rid) + (others == null ? 0 : others.getCount(rid));
+    }
+
+    /**
+     * @return how often the residue of the chain that is equal to a residue has been counted by its position
+     */
+    private int getPositionCount(ResidueId rid) {
+        ResidueNumberScheme rns = rid.getResidueNumberScheme();
+        if (chain == null || rns == null || counts[rns.ordinal()] == null)
+            return 0;
+        int ordinal = ResidueIdImpl.ordinalOf(rid);
+        if (ordinal < 0 || rid.getChain() != chain) {
+            if (rid.getChain() == null || rid.getSeqId() == null || !chain.getChainId().equals(rid.getChain().getChainId()))
+                return 0;
+            ResidueIndex index = ((AbstractSequence) chain).getResidueIndex(rns);
+            ResidueId equal = index == null ? null : index.get(rid.getSeqId(),
+                    rid.getInsertionCode() == null ? ResidueIndex.NO_INSERTION_CODE : rid.getInsertionCode());
+            if (equal == null || !equal.equals(rid))
+                return 0;
+            ordinal = ResidueIdImpl.ordinalOf(equal);
+        }
+        int[] c = counts[rns.ordinal()];
+        int i = ordinal - offsets[rns.ordinal()];
+        return i < 0 || i >= c.length ? 0 : c[i];
+    }
+
+    /**
+     * @return the largest number of times any residue has been counted
+     */
+    int getMaxCount() {
+        return maxCount;
+    }
+
+    /**
+     * @return a new bag with every counted residue as often as it has been counted
+     */
+    @SuppressWarnings("unchecked")
+    Bag toBag() {
+        Bag result = new HashBag();
+        if (others != null)
+            result.addAll(others);
+        for (ResidueNumberScheme rns : ResidueNumberScheme.values()) {
+            int[] c = counts[rns.ordinal()];
+            if (c == null)
+                continue;
+            ResidueIndex index = ((AbstractSequence) chain).getResidueIndex(rns);
+            if (index == null)
+                continue;
+            for (int i = 0; i < c.length; i++) {
+                if (c[i] > 0)
+                    result.add(index.get(offsets[rns.ordinal()] + i), c[i]);
+            }
+        }
+        return result;
+    }
+
+    void clear() {
+        chain = null;
+        Arrays.fill(counts, null);
+        others = null;
+        maxCount = 0;
+    }
+
+    /**
+     * @return true if the residues between start and end are those between their positions in the chain
+     */
+    private boolean isRange(ResidueId start, ResidueId end) {
+        return start.getResidueNumberScheme() == end.getResidueNumberScheme() && ResidueIdImpl.ordinalOf(end) >= ResidueIdImpl.ordinalOf(start)
+                && isPositioned(start) && isPositioned(end);
+    }
+
+    private boolean isPositioned(ResidueId rid) {
+        if (ResidueIdImpl.ordinalOf(rid) < 0 || !(rid.getChain() instanceof AbstractSequence))
+            return false;
+        if (chain == null)
+            chain = rid.getChain();
+        return rid.getChain() == chain;
+    }
+
+    /**
+     * @return the counts of a residue number scheme, covering the positions from first to last
+     */
+    private int[] getCounts(ResidueNumberScheme rns, int first, int last) {
+        int[] c = counts[rns.ordinal()];
+        int offset = offsets[rns.ordinal()];
+        if (c == null) {
+            c = counts[rns.ordinal()] = new int[last - first + 1];
+            offsets[rns.ordinal()] = first;
+        } else if (first < offset || last >= offset + c.length) {
+            // annotations are mostly added in order, so leave room for the ones that follow
+            int from = Math.min(first, offset);
+            int to = Math.max(Math.max(last, offset + c.length - 1), from + 2 * c.length - 1);
+            ResidueIndex index = ((AbstractSequence) chain).getResidueIndex(rns);
+            if (index != null)
+                to = Math.max(Math.min(to, index.size() - 1), Math.max(last, offset + c.length - 1));
+            int[] grown = new int[to - from + 1];
+            System.arraycopy(c, 0, grown, offset - from, c.length);
+            c = counts[rns.ordinal()] = grown;
+            offsets[rns.ordinal()] = from;
+        }
+        return c;
+    }
+}
@@ -10,6 +10,7 @@ import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -36,10 +37,15 @@ public final class ResidueIdImpl implements ResidueId, Serializable, Comparable<
     private final Integer seqId;
     private final Character insertionCode;
     private ResidueInfo residueInfo;
+    // null once the equivalents are held by the ResidueMappingTable of the chain
     private EquivalentResidues equivalentResidues;
     private ResidueId next = END_OF_CHAIN;
     private ResidueId previous = BEGINNING_OF_CHAIN;
     private String seqIdWithInsertionCode = null;
+    private int ordinal = -1;
+    // compareTo on one chain compares these, if both residues have one in the same scheme
+    private ResidueNumberScheme canonicalScheme = null;
+    private int canonicalPosition = -1;
     private ResidueIdImpl() {
         this.residueNumberScheme = null;
         this.chain = null;
@@ -100,6 +106,10 @@ public final class ResidueIdImpl implements ResidueId, Serializable, Comparable<
         if (anEquivalentResidue == null) {
             this.equivalentResidues = new EquivalentResidues();
         } else {
+            if (anEquivalentResidue.equivalentResidues == null) {
+                // the mapping table can not take new equivalents
+                ((AbstractSequence) anEquivalentResidue.chain).releaseResidueMappingTable();
+            }
             this.equivalentResidues = anEquivalentResidue.equivalentResidues;
         }
         if (this.equivalentResidues != Collections.EMPTY_MAP) {
@@ -174,6 +184,42 @@ public final class ResidueIdImpl implements ResidueId, Serializable, Comparable<
         return previous;
     }
 
+    /**
+     * Get the position of this residue id among the residue ids of its chain in its residue number scheme
+     *
+     * @return the position, or -1 if the residue ids of the chain have not been linked yet
+     */
+    public int getOrdinal() {
+        return ordinal;
+    }
+
+    /**
+     * @return the position of a residue id among the residue ids of its chain, or -1 if it is not a
+     * <tt>ResidueIdImpl</tt> or the residue ids of its chain have not been linked yet
+     */
+    public static int ordinalOf(ResidueId rid) {
+        return rid instanceof ResidueIdImpl ? ((ResidueIdImpl) rid).ordinal : -1;
+    }
+
+    void setOrdinal(int ordinal) {
+        if (this == BEGINNING_OF_CHAIN || this == END_OF_CHAIN) return;
+        this.ordinal = ordinal;
+    }
+
+    /**
+     * Set the position by which this residue id is ordered among the residue ids of its chain that have a position
+     * in the same scheme. ATOM residue ids with a SEQRES equivalent take the position of that equivalent, because
+     * that is how they are compared.
+     *
+     * @param scheme
+     * @param position the position, or -1 if residues must be compared by their sequence ids
+     */
+    void setCanonicalPosition(ResidueNumberScheme scheme, int position) {
+        if (this == BEGINNING_OF_CHAIN || this == END_OF_CHAIN) return;
+        this.canonicalScheme = scheme;
+        this.canonicalPosition = position;
+    }
+
     public void setPrevious(ResidueId previous) {
         //   System.out.println("ResidueIdImpl: " + this + " setPrevious "  +previous);
         if (this == BEGINNING_OF_CHAIN || this == END_OF_CHAIN) return;
@@ -185,11 +231,47 @@ public final class ResidueIdImpl implements ResidueId, Serializable, Comparable<
     }
 
     public ResidueId getEquivalentResidueId(ResidueNumberScheme rns) {
-        return equivalentResidues.get(rns);
+        EquivalentResidues equivalents = equivalentResidues;
+        if (equivalents != null) {
+            return equivalents.get(rns);
+        }
+        return getMappingTable().getEquivalent(this, rns);
+    }
+
+    private ResidueMappingTable getMappingTable() {
+        return ((AbstractSequence) chain).getResidueMappingTable();
+    }
+
+    /**
+     * Hand the equivalents of this residue id over to the mapping table of its chain
+     */
+    void useMappingTable() {
+        if (this == BEGINNING_OF_CHAIN || this == END_OF_CHAIN) return;
+        equivalentResidues = null;
+    }
+
+    /**
+     * Take the equivalents of a group of residue ids back from the mapping table of their chain
+     *
+     * @param row the residue ids, all equivalent to each other
+     */
+    static void shareEquivalents(List<ResidueIdImpl> row) {
+        if (row.isEmpty()) return;
+        EquivalentResidues equivalents = row.get(0).new EquivalentResidues();
+        for (ResidueIdImpl rid : row) {
+            equivalents.put(rid.residueNumberScheme, rid);
+        }
+        for (ResidueIdImpl rid : row) {
+            rid.equivalentResidues = equivalents;
+        }
     }
 
     public void addEquivalentResidue(ResidueNumberScheme rns, ResidueIdImpl rid) {
         if (rns == null || rid == null) throw new NullPointerException();
+        if (equivalentResidues == null) {
+            // the mapping table can not take new equivalents
+            ((AbstractSequence) chain).releaseResidueMappingTable();
+        }
         if (equivalentResidues == Collections.EMPTY_MAP) {
             //System.out.println("Replacing empty map with proper one (although it only contains itself right now) for equivalent residues of " + this);
             equivalentResidues = new EquivalentResidues();
@@ -213,7 +295,11 @@ public final class ResidueIdImpl implements ResidueId, Serializable, Comparable<
     }
 
     public Collection<ResidueId> getEquivalentResidueIds() {
-        return Collections.unmodifiableCollection(equivalentResidues.values());
+        EquivalentResidues equivalents = equivalentResidues;
+        if (equivalents != null) {
+            return Collections.unmodifiableCollection(equivalents.values());
+        }
+        return Collections.unmodifiableCollection(getMappingTable().getEquivalents(this));
     }
 
 //   Map<ResidueNumberScheme, ResidueId> getEquvalentResidueIdMap()
@@ -222,6 +308,9 @@ public final class ResidueIdImpl implements ResidueId, Serializable, Comparable<
 //   }
 
     void setEquivalentResidueIdMapFromEquivalentResidue(ResidueIdImpl equivRes) {
+        if (equivRes.equivalentResidues == null) {
+            ((AbstractSequence) equivRes.chain).releaseResidueMappingTable();
+        }
         this.equivalentResidues = equivRes.equivalentResidues;
     }
 
@@ -234,6 +323,9 @@ public final class ResidueIdImpl implements ResidueId, Serializable, Comparable<
      * @return
      */
     public ResidueId getNextEquivalentResidueId(ResidueNumberScheme rns) {
+        if (equivalentResidues == null) {
+            return getMappingTable().getNextEquivalent(this, rns);
+        }
         ResidueId result, aResidue = this;
         // int count = 0;
         while ((result = aResidue.getEquivalentResidueId(rns)) == null) {
@@ -255,6 +347,9 @@ public final class ResidueIdImpl implements ResidueId, Serializable, Comparable<
      * @return
      */
     public ResidueId getPreviousEquivalentResidueId(ResidueNumberScheme rns) {
+        if (equivalentResidues == null) {
+            return getMappingTable().getPreviousEquivalent(this, rns);
+        }
         ResidueId result, aResidue = this;
         //   int count = 0;
         while ((result = aResidue.getEquivalentResidueId(rns)) == null) {
@@ -390,7 +485,7 @@ public final class ResidueIdImpl implements ResidueId, Serializable, Comparable<
                 .append(')');
 
 
-        retValue.append(equivalentResidues);
+        retValue.append(equivalentResidues != null ? equivalentResidues.toString() : "EQR:" + getEquivalentResidueIds().size());
         return retValue.toString();
     }
 
@@ -456,6 +551,16 @@ public final class ResidueIdImpl implements ResidueId, Serializable, Comparable<
         if (this == BEGINNING_OF_CHAIN || aThat == END_OF_CHAIN) return BEFORE;
         if (this == END_OF_CHAIN || aThat == BEGINNING_OF_CHAIN) return AFTER;
 
+        // residues of one chain that have canonical positions in the same scheme
+        if (aThat instanceof ResidueIdImpl) {
+            ResidueIdImpl that = (ResidueIdImpl) aThat;
+            if (canonicalPosition >= 0 && that.canonicalPosition >= 0
+                    && canonicalScheme == that.canonicalScheme && chain == that.chain) {
+                return canonicalPosition < that.canonicalPosition ? BEFORE
+                        : canonicalPosition == that.canonicalPosition ? EQUAL : AFTER;
+            }
+        }
+
         // if they're pdb, it's possible that they are correct except that the residue ids are screwy
         // so try to do the comparison using equivalent mmcif residues
         if (residueNumberScheme == ResidueNumberScheme.ATOM ||
@@ -0,0 +1,359 @@
+package org.rcsb.sequence.core;
+
+import java.io.Serializable;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.RandomAccess;
+
+import org.rcsb.sequence.model.ResidueId;
+
+/**
+ * The residue ids of one sequence in one residue number scheme, in the order in which they were added.
+ * <p>
+ * The residues are kept in an array. Their positions are found through an open addressing hash table keyed by the
+ * sequence id and insertion code packed into one int, so looking up or iterating over residues does not create any
+ * objects. This replaces a <tt>LinkedHashMap</tt> keyed by strings such as <tt>"123A"</tt>.
+ * </p>
+ * <p>
+ * Ranges of residues are returned as views of the array, see {@link #subList(int, int)}.
+ * </p>
+ */
+public class ResidueIndex implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The insertion code of residues that do not have one.
+     */
+    public static final char NO_INSERTION_CODE = 0;
+
+    private static final int MIN_SEQ_ID = -(1 << 23);
+    private static final int MAX_SEQ_ID = (1 << 23) - 1;
+
+    private ResidueId[] residues;
+    private int size;
+
+    // hash table, a slot holds the position of a residue + 1, or 0 if it is empty
+    private int[] keys;
+    private int[] slots;
+
+    private transient Values values;
+
+    public ResidueIndex() {
+        this(16);
+    }
+
+    /**
+     * @param expectedSize the number of residues that will be added
+     */
+    public ResidueIndex(int expectedSize) {
+        residues = new ResidueId[Math.max(expectedSize, 4)];
+        int capacity = 8;
+        while (capacity < 2 * expectedSize) {
+            capacity <<= 1;
+        }
+        keys = new int[capacity];
+        slots = new int[capacity];
+    }
+
+    /**
+     * Add a residue id at the end of the index. A residue id with the same sequence id and insertion code as one
+     * already in the index replaces it, and keeps its position.
+     *
+     * @param rid
+     */
+    public void put(ResidueId rid) {
+        int seqId = rid.getSeqId();
+        char insertionCode = insertionCode(rid);
+
+        if (!isPackable(seqId, insertionCode)) {
+            int position = scan(seqId, insertionCode);
+            if (position >= 0)
+                residues[position] = rid;
+            else
+                append(rid);
+            return;
+        }
+
+        int key = pack(seqId, insertionCode);
+        int slot = find(key);
+        if (slots[slot] != 0) {
+            residues[slots[slot] - 1] = rid;
+            return;
+        }
+
+        append(rid);
+        keys[slot] = key;
+        slots[slot] = size;
+        if (2 * size > slots.length)
+            rehash(slots.length << 1);
+    }
+
+    /**
+     * @param seqId
+     * @param insertionCode the insertion code, or {@link #NO_INSERTION_CODE}
+     * @return the residue id, or null if there is none
+     */
+    public ResidueId get(int seqId, char insertionCode) {
+        int position;
+        if (isPackable(seqId, insertionCode)) {
+            position = slots[find(pack(seqId, insertionCode))] - 1;
+        } else {
+            position = scan(seqId, insertionCode);
+        }
+        return position < 0 ? null : residues[position];
+    }
+
+    /**
+     * @param seqIdWithInsertionCode a sequence id followed by an optional insertion code, e.g. <tt>"123A"</tt>
+     * @return the residue id, or null if there is none
+     */
+    public ResidueId get(String seqIdWithInsertionCode) {
+        int length = seqIdWithInsertionCode.length();
+        int i = 0;
+        boolean negative = length > 1 && seqIdWithInsertionCode.charAt(0) == '-';
+        if (negative)
+            i++;
+
+        int start = i;
+        long seqId = 0;
+        long maxSeqId = negative ? -(long) Integer.MIN_VALUE : Integer.MAX_VALUE;
+        char c;
+        while (i < length && (c = seqIdWithInsertionCode.charAt(i)) >= '0' && c <= '9') {
+            seqId = seqId * 10 + (c - '0');
+            if (seqId > maxSeqId)
+                return null;
+            i++;
+        }
+        if (i == start || length - i > 1)
+            return null;
+
+        return get((int) (negative ? -seqId : seqId), i < length ? seqIdWithInsertionCode.charAt(i) : NO_INSERTION_CODE);
+    }
+
+    /**
+     * @param position
+     * @return the residue id at a position, in the order in which they were added
+     */
+    public ResidueId get(int position) {
+        if (position < 0 || position >= size)
+            throw new IndexOutOfBoundsException("Index: " + position + ", Size: " + size);
+        return residues[position];
+    }
+
+    /**
+     * @param rid
+     * @return the position of the residue id, or -1 if it is not in the index
+     */
+    public int indexOf(ResidueId rid) {
+        if (size == 0)
+            return -1;
+
+        // the residues of a chain are at their ordinals, those of part of a chain are shifted by the first ordinal
+        int ordinal = ResidueIdImpl.ordinalOf(rid);
+        if (ordinal >= 0) {
+            int position = ordinal - Math.max(ResidueIdImpl.ordinalOf(residues[0]), 0);
+            if (position >= 0 && position < size && residues[position] == rid)
+                return position;
+        }
+
+        Integer seqId = rid.getSeqId();
+        if (seqId == null)
+            return -1;
+        char insertionCode = insertionCode(rid);
+        int position;
+        if (isPackable(seqId, insertionCode)) {
+            position = slots[find(pack(seqId, insertionCode))] - 1;
+        } else {
+            position = scan(seqId, insertionCode);
+        }
+        return position >= 0 && residues[position].equals(rid) ? position : -1;
+    }
+
+    /**
+     * @param from the position of the first residue id
+     * @param to   the position after the last residue id
+     * @return an unmodifiable view of the residue ids between two positions, nothing is copied
+     */
+    public List<ResidueId> subList(int from, int to) {
+        if (from < 0 || to > size || from > to)
+            throw new IndexOutOfBoundsException("from: " + from + ", to: " + to + ", Size: " + size);
+        return new Range(from, to);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * @return the first residue id, or null if the index is empty
+     */
+    public ResidueId first() {
+        return size == 0 ? null : residues[0];
+    }
+
+    /**
+     * @return the last residue id, or null if the index is empty
+     */
+    public ResidueId last() {
+        return size == 0 ? null : residues[size - 1];
+    }
+
+    /**
+     * @return an unmodifiable view of the residue ids, in the order in which they were added
+     */
+    public Collection<ResidueId> values() {
+        if (values == null)
+            values = new Values();
+        return values;
+    }
+
+    public void clear() {
+        Arrays.fill(residues, 0, size, null);
+        Arrays.fill(slots, 0);
+        size = 0;
+    }
+
+    private void append(ResidueId rid) {
+        if (size == residues.length)
+            residues = Arrays.copyOf(residues, size << 1);
+        residues[size++] = rid;
+    }
+
+    /**
+     * @return the slot that holds the key, or the empty slot where it belongs
+     */
+    private int find(int key) {
+        int mask = slots.length - 1;
+        int slot = hash(key) & mask;
+        while (slots[slot] != 0 && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void rehash(int capacity) {
+        int[] oldKeys = keys;
+        int[] oldSlots = slots;
+        keys = new int[capacity];
+        slots = new int[capacity];
+        for (int i = 0; i < oldSlots.length; i++) {
+            if (oldSlots[i] != 0) {
+                int slot = find(oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                slots[slot] = oldSlots[i];
+            }
+        }
+    }
+
+    /**
+     * Linear search, for the residues whose keys can not be packed.
+     */
+    private int scan(int seqId, char insertionCode) {
+        for (int i = 0; i < size; i++) {
+            if (residues[i].getSeqId() == seqId && insertionCode(residues[i]) == insertionCode)
+                return i;
+        }
+        return -1;
+    }
+
+    private static char insertionCode(ResidueId rid) {
+        Character c = rid.getInsertionCode();
+        return c == null ? NO_INSERTION_CODE : c;
+    }
+
+    private static boolean isPackable(int seqId, char insertionCode) {
+        return seqId >= MIN_SEQ_ID && seqId <= MAX_SEQ_ID && insertionCode <= 0xFF;
+    }
+
+    private static int pack(int seqId, char insertionCode) {
+        return (seqId << 8) | insertionCode;
+    }
+
+    private static int hash(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private class Values extends AbstractList<ResidueId> implements RandomAccess, Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        public ResidueId get(int index) {
+            return ResidueIndex.this.get(index);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            if (!(o instanceof ResidueId))
+                return false;
+            ResidueId rid = (ResidueId) o;
+            return indexOf(rid) >= 0;
+        }
+
+        @Override
+        public int indexOf(Object o) {
+            return o instanceof ResidueId ? ResidueIndex.this.indexOf((ResidueId) o) : -1;
+        }
+
+        @Override
+        public List<ResidueId> subList(int from, int to) {
+            return ResidueIndex.this.subList(from, to);
+        }
+    }
+
+    private class Range extends AbstractList<ResidueId> implements RandomAccess, Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int from;
+        private final int to;
+
+        Range(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        public ResidueId get(int index) {
+            if (index < 0 || index >= to - from)
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + (to - from));
+            return residues[from + index];
+        }
+
+        @Override
+        public int size() {
+            return to - from;
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            return indexOf(o) >= 0;
+        }
+
+        @Override
+        public int indexOf(Object o) {
+            int position = o instanceof ResidueId ? ResidueIndex.this.indexOf((ResidueId) o) : -1;
+            return position >= from && position < to ? position - from : -1;
+        }
+
+        @Override
+        public List<ResidueId> subList(int fromIndex, int toIndex) {
+            if (fromIndex < 0 || toIndex > to - from || fromIndex > toIndex)
+                throw new IndexOutOfBoundsException("from: " + fromIndex + ", to: " + toIndex + ", Size: " + (to - from));
+            return new Range(from + fromIndex, from + toIndex);
+        }
+    }
+}
@@ -0,0 +1,364 @@
+package org.rcsb.sequence.core;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.rcsb.sequence.model.ResidueId;
+import org.rcsb.sequence.model.ResidueNumberScheme;
+
+/**
+ * The equivalent residue ids of a chain in all residue number schemes, as columns of ints.
+ * <p>
+ * Each group of equivalent residue ids is a row. For every scheme the table holds the position of the row's residue id
+ * in that scheme (or -1), and the row of the residue id at each position. A column that maps rows to the same positions
+ * is not stored, so for chains read from structures only the ATOM columns take memory. Once a chain has been linked
+ * this replaces the map of equivalent residues that each group of residue ids used to share.
+ * </p>
+ * <p>
+ * The next and previous residue ids with an equivalent in another scheme are found through jump arrays, which are built
+ * for a pair of schemes when they are first needed, as are the gaps one scheme has in another, see
+ * {@link #getGapIndex(ResidueNumberScheme, ResidueNumberScheme)}.
+ * </p>
+ */
+final class ResidueMappingTable implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final ResidueNumberScheme[] SCHEMES = ResidueNumberScheme.values();
+    private static final int[] NO_POSITIONS = new int[0];
+
+    private final ResidueIndex[] indexes = new ResidueIndex[SCHEMES.length];
+    private final int rowCount;
+    // position in each scheme by row, null if the position is the row
+    private final int[][] positions = new int[SCHEMES.length][];
+    // row by position in each scheme, null if the row is the position
+    private final int[][] rows = new int[SCHEMES.length][];
+
+    // by from scheme * number of schemes + to scheme
+    private final AtomicReferenceArray<int[]> nextMapped = new AtomicReferenceArray<int[]>(SCHEMES.length * SCHEMES.length);
+    private final AtomicReferenceArray<int[]> previousMapped = new AtomicReferenceArray<int[]>(SCHEMES.length * SCHEMES.length);
+    private final AtomicReferenceArray<GapIndex> gapIndexes = new AtomicReferenceArray<GapIndex>(SCHEMES.length * SCHEMES.length);
+
+    private ResidueMappingTable(Map<ResidueNumberScheme, ResidueIndex> residueIndexes, int[][] rowsByPosition, int[][] positionsByRow, int rowCount) {
+        this.rowCount = rowCount;
+        for (ResidueNumberScheme rns : SCHEMES) {
+            int s = rns.ordinal();
+            indexes[s] = residueIndexes.get(rns);
+            rows[s] = isIdentity(rowsByPosition[s], rowsByPosition[s].length) ? null : rowsByPosition[s];
+            if (rowsByPosition[s].length == 0)
+                positions[s] = NO_POSITIONS;
+            else
+                positions[s] = isIdentity(positionsByRow[s], rowCount) ? null : Arrays.copyOf(positionsByRow[s], rowCount);
+        }
+    }
+
+    /**
+     * Build the table from the equivalent residues of linked residue ids.
+     *
+     * @param residueIndexes the residue ids of a chain, with their ordinals assigned
+     * @return the table, or null if some equivalent residue id is not at its ordinal in the index of its scheme
+     */
+    static ResidueMappingTable create(Map<ResidueNumberScheme, ResidueIndex> residueIndexes) {
+        int[][] rowsByPosition = new int[SCHEMES.length][];
+        int[][] positionsByRow = new int[SCHEMES.length][];
+        ResidueNumberScheme largest = null;
+        for (ResidueNumberScheme rns : SCHEMES) {
+            ResidueIndex index = residueIndexes.get(rns);
+            if (index == null)
+                return null;
+            rowsByPosition[rns.ordinal()] = new int[index.size()];
+            Arrays.fill(rowsByPosition[rns.ordinal()], -1);
+            if (largest == null || index.size() > residueIndexes.get(largest).size())
+                largest = rns;
+        }
+
+        // rows in the order of the scheme with the most residues, then any residues that scheme does not have
+        List<ResidueNumberScheme> order = new ArrayList<ResidueNumberScheme>();
+        order.add(largest);
+        for (ResidueNumberScheme rns : SCHEMES) {
+            if (rns != largest)
+                order.add(rns);
+        }
+
+        int rowCount = 0;
+        for (ResidueNumberScheme rns : SCHEMES) {
+            positionsByRow[rns.ordinal()] = new int[residueIndexes.get(largest).size()];
+        }
+        for (ResidueNumberScheme rns : order) {
+            ResidueIndex index = residueIndexes.get(rns);
+            for (int i = 0; i < index.size(); i++) {
+                if (rowsByPosition[rns.ordinal()][i] >= 0)
+                    continue;
+
+                int row = rowCount++;
+                if (row == positionsByRow[0].length) {
+                    for (int s = 0; s < SCHEMES.length; s++) {
+                        positionsByRow[s] = Arrays.copyOf(positionsByRow[s], Math.max(4, row * 2));
+                    }
+                }
+                for (int s = 0; s < SCHEMES.length; s++) {
+                    positionsByRow[s][row] = -1;
+                }
+
+                for (ResidueId equivalent : index.get(i).getEquivalentResidueIds()) {
+                    int s = equivalent.getResidueNumberScheme().ordinal();
+                    int ordinal = ResidueIdImpl.ordinalOf(equivalent);
+                    ResidueIndex equivalentIndex = residueIndexes.get(equivalent.getResidueNumberScheme());
+                    if (ordinal < 0 || ordinal >= equivalentIndex.size() || equivalentIndex.get(ordinal) != equivalent
+                            || rowsByPosition[s][ordinal] >= 0)
+                        return null;
+                    rowsByPosition[s][ordinal] = row;
+                    positionsByRow[s][row] = ordinal;
+                }
+                if (rowsByPosition[rns.ordinal()][i] != row)
+                    return null;
+            }
+        }
+        return new ResidueMappingTable(residueIndexes, rowsByPosition, positionsByRow, rowCount);
+    }
+
+    private static boolean isIdentity(int[] values, int length) {
+        for (int i = 0; i < length; i++) {
+            if (values[i] != i)
+                return false;
+        }
+        return true;
+    }
+
+    private int row(int scheme, int position) {
+        return rows[scheme] == null ? position : rows[scheme][position];
+    }
+
+    private int position(int scheme, int row) {
+        int[] p = positions[scheme];
+        if (p == null)
+            return row < indexes[scheme].size() ? row : -1;
+        return row < p.length ? p[row] : -1;
+    }
+
+    /**
+     * @param rid a residue id of the chain
+     * @param rns
+     * @return the equivalent residue id, or null if there is none
+     */
+    ResidueId getEquivalent(ResidueId rid, ResidueNumberScheme rns) {
+        int position = position(rns.ordinal(), row(rid.getResidueNumberScheme().ordinal(), ResidueIdImpl.ordinalOf(rid)));
+        return position < 0 ? null : indexes[rns.ordinal()].get(position);
+    }
+
+    /**
+     * @param rid a residue id of the chain
+     * @return the residue id and its equivalents, in the order of the schemes
+     */
+    Collection<ResidueId> getEquivalents(ResidueId rid) {
+        int row = row(rid.getResidueNumberScheme().ordinal(), ResidueIdImpl.ordinalOf(rid));
+        Collection<ResidueId> result = new ArrayList<ResidueId>(SCHEMES.length);
+        for (int s = 0; s < SCHEMES.length; s++) {
+            int position = position(s, row);
+            if (position >= 0)
+                result.add(indexes[s].get(position));
+        }
+        return result;
+    }
+
+    /**
+     * @param rid a residue id of the chain
+     * @param rns
+     * @return the equivalent in the scheme of the first residue id from this one towards the end of the chain that has
+     * one, or {@link ResidueIdImpl#END_OF_CHAIN}
+     */
+    ResidueId getNextEquivalent(ResidueId rid, ResidueNumberScheme rns) {
+        int from = rid.getResidueNumberScheme().ordinal();
+        int position = jumps(nextMapped, from, rns.ordinal(), true)[ResidueIdImpl.ordinalOf(rid)];
+        return position < 0 ? ResidueIdImpl.END_OF_CHAIN : getEquivalent(indexes[from].get(position), rns);
+    }
+
+    /**
+     * @param rid a residue id of the chain
+     * @param rns
+     * @return the equivalent in the scheme of the first residue id from this one towards the start of the chain that
+     * has one, or {@link ResidueIdImpl#BEGINNING_OF_CHAIN}
+     */
+    ResidueId getPreviousEquivalent(ResidueId rid, ResidueNumberScheme rns) {
+        int from = rid.getResidueNumberScheme().ordinal();
+        int position = jumps(previousMapped, from, rns.ordinal(), false)[ResidueIdImpl.ordinalOf(rid)];
+        return position < 0 ? ResidueIdImpl.BEGINNING_OF_CHAIN : getEquivalent(indexes[from].get(position), rns);
+    }
+
+    /**
+     * @param from
+     * @param position a position in the scheme
+     * @param to
+     * @return the position of the equivalent residue id in the other scheme, or -1 if there is none
+     */
+    int getEquivalentPosition(ResidueNumberScheme from, int position, ResidueNumberScheme to) {
+        return position(to.ordinal(), row(from.ordinal(), position));
+    }
+
+    /**
+     * @param from
+     * @param position a position in the scheme
+     * @param to
+     * @return the first position from this one towards the end of the chain whose residue id has an equivalent in the
+     * other scheme, or -1
+     */
+    int getNextMappedPosition(ResidueNumberScheme from, int position, ResidueNumberScheme to) {
+        return jumps(nextMapped, from.ordinal(), to.ordinal(), true)[position];
+    }
+
+    /**
+     * @param seqRns
+     * @param gapsRns
+     * @return the gaps between the residue ids of one scheme that have equivalents in the other, or null if those
+     * equivalents are not in the same order as the residue ids
+     */
+    GapIndex getGapIndex(ResidueNumberScheme seqRns, ResidueNumberScheme gapsRns) {
+        int key = seqRns.ordinal() * SCHEMES.length + gapsRns.ordinal();
+        GapIndex result = gapIndexes.get(key);
+        if (result == null) {
+            result = new GapIndex(seqRns.ordinal(), gapsRns.ordinal());
+            gapIndexes.set(key, result);
+        }
+        return result.sizes == null ? null : result;
+    }
+
+    /**
+     * @return for each position in a scheme, the nearest position in the given direction whose residue id has an
+     * equivalent in the other scheme, or -1
+     */
+    private int[] jumps(AtomicReferenceArray<int[]> cache, int from, int to, boolean forward) {
+        int key = from * SCHEMES.length + to;
+        int[] result = cache.get(key);
+        if (result == null) {
+            int size = indexes[from].size();
+            result = new int[size];
+            int nearest = -1;
+            for (int k = 0; k < size; k++) {
+                int i = forward ? size - 1 - k : k;
+                if (position(to, row(from, i)) >= 0)
+                    nearest = i;
+                result[i] = nearest;
+            }
+            cache.set(key, result);
+        }
+        return result;
+    }
+
+    /**
+     * @return the number of groups of equivalent residue ids
+     */
+    int getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * @param row
+     * @return the residue ids of a row
+     */
+    List<ResidueIdImpl> getRow(int row) {
+        List<ResidueIdImpl> result = new ArrayList<ResidueIdImpl>(SCHEMES.length);
+        for (int s = 0; s < SCHEMES.length; s++) {
+            int position = position(s, row);
+            if (position >= 0)
+                result.add((ResidueIdImpl) indexes[s].get(position));
+        }
+        return result;
+    }
+
+    /**
+     * The gaps in the equivalents of the residue ids of one scheme: for two residue ids that follow each other among
+     * those with an equivalent, the number of residue ids of the other scheme between their equivalents if that is not
+     * zero. Gaps are ordered by the position of the residue id that follows them.
+     */
+    final class GapIndex implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private int count;
+        // positions in the scheme of the residue ids before and after each gap
+        private int[] previous;
+        private int[] next;
+        // null if the equivalents are out of order
+        private int[] sizes;
+
+        private GapIndex(int seq, int gaps) {
+            previous = new int[8];
+            next = new int[8];
+            sizes = new int[8];
+            int previousPosition = -1, previousEquivalent = -1;
+            for (int i = 0; i < indexes[seq].size(); i++) {
+                int equivalent = position(gaps, row(seq, i));
+                if (equivalent < 0)
+                    continue;
+                if (previousPosition >= 0) {
+                    if (equivalent <= previousEquivalent) {
+                        previous = next = sizes = null;
+                        return;
+                    }
+                    if (equivalent > previousEquivalent + 1)
+                        add(previousPosition, i, equivalent - previousEquivalent - 1);
+                }
+                previousPosition = i;
+                previousEquivalent = equivalent;
+            }
+        }
+
+        private void add(int before, int after, int size) {
+            if (count == sizes.length) {
+                previous = Arrays.copyOf(previous, count * 2);
+                next = Arrays.copyOf(next, count * 2);
+                sizes = Arrays.copyOf(sizes, count * 2);
+            }
+            previous[count] = before;
+            next[count] = after;
+            sizes[count] = size;
+            count++;
+        }
+
+        int size() {
+            return count;
+        }
+
+        /**
+         * @param position
+         * @return the first gap followed by a residue id after the position, or {@link #size()} if there is none
+         */
+        int firstAfter(int position) {
+            int low = 0, high = count;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (next[mid] <= position)
+                    low = mid + 1;
+                else
+                    high = mid;
+            }
+            return low;
+        }
+
+        /**
+         * @return the position of the residue id before a gap
+         */
+        int getPrevious(int gap) {
+            return previous[gap];
+        }
+
+        /**
+         * @return the position of the residue id after a gap
+         */
+        int getNext(int gap) {
+            return next[gap];
+        }
+
+        /**
+         * @return the number of residue ids of the other scheme missing in a gap
+         */
+        int getSize(int gap) {
+            return sizes[gap];
+        }
+    }
+}
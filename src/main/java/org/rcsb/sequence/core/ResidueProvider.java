@@ -1,5 +1,9 @@
 package org.rcsb.sequence.core;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
 import org.rcsb.sequence.model.PolymerType;
 import org.rcsb.sequence.model.ResidueInfo;
 import org.rcsb.sequence.model.ResidueInfoFactory;
@@ -9,6 +13,9 @@ public class ResidueProvider {
 
     static ResidueInfoFactory factory;
 
+    // residues by polymer type ordinal and ASCII one letter code, filled in as codes are seen
+    private static volatile List<AtomicReferenceArray<ResidueInfo>> oneLetterCodeTables = newOneLetterCodeTables();
+
     private ResidueProvider() {
 
     }
@@ -19,6 +26,15 @@ public class ResidueProvider {
 
     public static void setResidueInfoFactory(ResidueInfoFactory f) {
         factory = f;
+        oneLetterCodeTables = newOneLetterCodeTables();
+    }
+
+    private static List<AtomicReferenceArray<ResidueInfo>> newOneLetterCodeTables() {
+        List<AtomicReferenceArray<ResidueInfo>> tables = new ArrayList<AtomicReferenceArray<ResidueInfo>>(PolymerType.values().length);
+        for (int i = 0; i < PolymerType.values().length; i++) {
+            tables.add(new AtomicReferenceArray<ResidueInfo>(128));
+        }
+        return tables;
     }
 
     public static ResidueInfo getResidue(String monId) {
@@ -33,4 +49,26 @@ public class ResidueProvider {
             throw new RuntimeException("Did not provide a ResidueInfoFactory!");
         return factory.getResidue(pt, oneLettercode);
     }
+
+    /**
+     * Same as {@link #getResidue(PolymerType, Character)}, but once a code has been seen for a polymer type
+     * its residue is taken from a table, without boxing the code or asking the factory.
+     *
+     * @param pt
+     * @param oneLettercode
+     * @return
+     */
+    public static ResidueInfo getResidue(PolymerType pt, char oneLettercode) {
+        if (oneLettercode >= 128)
+            return getResidue(pt, Character.valueOf(oneLettercode));
+
+        AtomicReferenceArray<ResidueInfo> table = oneLetterCodeTables.get(pt.ordinal());
+        ResidueInfo result = table.get(oneLettercode);
+        if (result == null) {
+            // codes the factory does not know keep failing the same way, and are not stored
+            result = getResidue(pt, Character.valueOf(oneLettercode));
+            table.set(oneLettercode, result);
+        }
+        return result;
+    }
 }
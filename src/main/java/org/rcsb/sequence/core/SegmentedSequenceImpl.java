@@ -6,6 +6,7 @@ import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
 
+import org.rcsb.sequence.conf.AnnotationName;
 import org.rcsb.sequence.model.AnnotationGroup;
 import org.rcsb.sequence.model.Chain;
 import org.rcsb.sequence.model.PolymerType;
@@ -243,6 +244,11 @@ public class SegmentedSequenceImpl extends AbstractSequence implements Segmented
         backingSequence.ensureAnnotated();
     }
 
+    @Override
+    public void ensureAnnotated(Collection<AnnotationName> annotationNames) {
+        ensureAnnotated(backingSequence, annotationNames);
+    }
+
     @Override
     protected void ensureResiduesInstantiated() {
         // do nothing
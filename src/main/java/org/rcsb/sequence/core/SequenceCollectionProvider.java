@@ -1,11 +1,32 @@
 package org.rcsb.sequence.core;
 
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
 import org.rcsb.sequence.model.SequenceCollection;
 
 public class SequenceCollectionProvider {
 
     static SequenceCollectionFactory factory;
 
+    // loads that are currently running, keyed by structure id. A load is replaced by a load with a stronger profile
+    // while it runs, so that later requests wait for the one that can serve the most.
+    private static final ConcurrentMap<String, Load> inFlight = new ConcurrentHashMap<String, Load>();
+
+    private static final class Load {
+        final LoadProfile profile;
+        final FutureTask<SequenceCollection> task;
+
+        Load(LoadProfile profile, FutureTask<SequenceCollection> task) {
+            this.profile = profile;
+            this.task = task;
+        }
+    }
 
     private SequenceCollectionProvider() {
     }
@@ -14,8 +35,100 @@ public class SequenceCollectionProvider {
         factory = fact;
     }
 
-    public static synchronized SequenceCollection get(String structureId) {
-        return factory.get(structureId);
+    /**
+     * Load a sequence collection. Concurrent requests for the same structure wait for a single load,
+     * requests for different structures are loaded in parallel.
+     *
+     * @param structureId
+     * @return
+     */
+    public static SequenceCollection get(String structureId) {
+        return get(structureId, LoadProfile.FULL);
+    }
+
+    /**
+     * Load a sequence collection with only the data that is required for the given profile,
+     * see {@link LoadProfile#forAnnotations(Collection, org.rcsb.sequence.model.ResidueNumberScheme...)}.
+     * A request waits for a running load of the same structure if that load's profile
+     * {@link LoadProfile#satisfies(LoadProfile) satisfies} its own, and may then get a collection with more data.
+     *
+     * @param structureId
+     * @param profile
+     * @return
+     */
+    public static SequenceCollection get(final String structureId, final LoadProfile profile) {
+        final String key = structureId.toUpperCase();
+        final SequenceCollectionFactory fact = factory;
+
+        FutureTask<SequenceCollection> task = null;
+        Load own = null;
+        while (task == null) {
+            Load running = inFlight.get(key);
+            if (running != null && running.profile.satisfies(profile)) {
+                // a load that reads at least as much as this request needs
+                task = running.task;
+            } else {
+                Load load = new Load(profile, new FutureTask<SequenceCollection>(new Callable<SequenceCollection>() {
+                    public SequenceCollection call() {
+                        return AbstractSequenceCollectionFactory.get(fact, structureId, profile);
+                    }
+                }));
+                // a weaker running load goes on for the requests that wait for it
+                if (running == null ? inFlight.putIfAbsent(key, load) == null : inFlight.replace(key, running, load)) {
+                    own = load;
+                    task = load.task;
+                }
+            }
+        }
+
+        if (own != null) {
+            try {
+                task.run();
+            } finally {
+                inFlight.remove(key, own);
+            }
+        }
+
+        try {
+            return task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while loading " + structureId, e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException)
+                throw (RuntimeException) cause;
+            if (cause instanceof Error)
+                throw (Error) cause;
+            throw new RuntimeException("Could not load " + structureId, cause);
+        }
+    }
+
+    /**
+     * Load many sequence collections, see {@link AbstractSequenceCollectionFactory#getAll(Collection)}. Each entry is
+     * loaded through {@link #get(String)}, so it is parsed only once when it is requested concurrently.
+     *
+     * @param structureIds
+     * @return an iterator over the results in the order in which they complete
+     */
+    public static Iterator<BatchLoadResult> getAll(Collection<String> structureIds) {
+        final SequenceCollectionFactory fact = factory;
+        AbstractSequenceCollectionFactory batchFactory;
+        if (fact instanceof AbstractSequenceCollectionFactory) {
+            batchFactory = (AbstractSequenceCollectionFactory) fact;
+        } else {
+            // default batch settings for factories that do not have their own
+            batchFactory = new AbstractSequenceCollectionFactory() {
+                public SequenceCollection get(String structureId) {
+                    return fact.get(structureId);
+                }
+            };
+        }
+        return batchFactory.getAll(structureIds, new AbstractSequenceCollectionFactory.Loader() {
+            public SequenceCollection load(String structureId) {
+                return get(structureId);
+            }
+        });
     }
 
 
@@ -6,6 +6,7 @@ import java.util.Collections;
 
 import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.collections.Predicate;
+import org.rcsb.sequence.conf.AnnotationName;
 import org.rcsb.sequence.model.AnnotationGroup;
 import org.rcsb.sequence.model.Chain;
 import org.rcsb.sequence.model.PolymerType;
@@ -34,7 +35,7 @@ public class SequenceSegmentImpl extends AbstractSequence implements SequenceSeg
         super(getSequenceString(ResidueUtils.getResidueIdsBetween(lowerBound, upperBound)));
         //System.out.println("creating sequenceSegmentImpl " + lowerBound + " " + upperBound);
         ResidueUtils.ensureResiduesComparable(lowerBound, upperBound);
-        ResidueUtils.initDerivedResidueIdMap(getResidueIdMaps(), lowerBound, upperBound);
+        ResidueUtils.initDerivedResidueIdMap(getResidueIndexes(), lowerBound, upperBound);
         this.backingSequence = sequence;
         this.lowerBound = lowerBound;
         this.upperBound = upperBound;
@@ -56,7 +57,6 @@ public class SequenceSegmentImpl extends AbstractSequence implements SequenceSeg
     public void destroy() {
 
         backingSequence.destroy();
-        residueIds.clear();
         backingSequence = null;
 
     }
@@ -185,6 +185,11 @@ public class SequenceSegmentImpl extends AbstractSequence implements SequenceSeg
         backingSequence.ensureAnnotated();
     }
 
+    @Override
+    public void ensureAnnotated(Collection<AnnotationName> annotationNames) {
+        ensureAnnotated(backingSequence, annotationNames);
+    }
+
     public SequenceCollection getSequenceCollection() {
         return backingSequence.getSequenceCollection();
     }
@@ -0,0 +1,102 @@
+package org.rcsb.sequence.filedao;
+
+import java.util.Map;
+
+import org.rcsb.sequence.core.ResidueProvider;
+import org.rcsb.sequence.model.PolymerType;
+import org.rcsb.sequence.model.ResidueInfo;
+
+/**
+ * Collects the SEQRES residues of one chain and the author numbering of those that have coordinates
+ * while a file is being parsed.
+ */
+final class ChainBuilder {
+
+    private final String chainId;
+    private PolymerType polymerType = null;
+
+    private String[] monIds = new String[64];
+    private int[] authSeqNums = new int[64];
+    private char[] insCodes = new char[64];
+    private int size = 0;
+
+    ChainBuilder(String chainId) {
+        this.chainId = chainId;
+    }
+
+    String getChainId() {
+        return chainId;
+    }
+
+    void setPolymerType(PolymerType polymerType) {
+        this.polymerType = polymerType;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Append a SEQRES residue, initially without coordinates.
+     *
+     * @param monId
+     */
+    void addResidue(String monId) {
+        if (size == monIds.length) {
+            int newLength = 2 * size;
+            String[] m = new String[newLength];
+            System.arraycopy(monIds, 0, m, 0, size);
+            monIds = m;
+            int[] a = new int[newLength];
+            System.arraycopy(authSeqNums, 0, a, 0, size);
+            authSeqNums = a;
+            char[] c = new char[newLength];
+            System.arraycopy(insCodes, 0, c, 0, size);
+            insCodes = c;
+        }
+        monIds[size] = monId;
+        authSeqNums[size] = StreamingChain.UNOBSERVED;
+        insCodes[size] = ' ';
+        size++;
+    }
+
+    /**
+     * Record that a SEQRES residue has coordinates.
+     *
+     * @param index      the SEQRES index, starting at 0
+     * @param authSeqNum the author residue number
+     * @param insCode    the insertion code, or a blank
+     */
+    void setObserved(int index, int authSeqNum, char insCode) {
+        authSeqNums[index] = authSeqNum;
+        insCodes[index] = insCode;
+    }
+
+    /**
+     * @param collection
+     * @param entityId
+     * @param residueInfos shared by all chains of a file, so that every chemical component is only looked up once
+     * @return
+     */
+    StreamingChain build(StreamingSequenceCollection collection, int entityId, Map<String, ResidueInfo> residueInfos) {
+        ResidueInfo[] residues = new ResidueInfo[size];
+        PolymerType pt = polymerType;
+        for (int i = 0; i < size; i++) {
+            ResidueInfo ri = residueInfos.get(monIds[i]);
+            if (ri == null) {
+                ri = ResidueProvider.getResidue(monIds[i]);
+                residueInfos.put(monIds[i], ri);
+            }
+            residues[i] = ri;
+            if (pt == null && ri.getType() != null)
+                pt = ri.getType().polymerType;
+        }
+
+        int[] a = new int[size];
+        System.arraycopy(authSeqNums, 0, a, 0, size);
+        char[] c = new char[size];
+        System.arraycopy(insCodes, 0, c, 0, size);
+
+        return new StreamingChain(collection, chainId, entityId, pt == null ? PolymerType.unknown : pt, residues, a, c);
+    }
+}
@@ -0,0 +1,229 @@
+package org.rcsb.sequence.filedao;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.GZIPInputStream;
+
+import org.rcsb.sequence.model.PolymerType;
+import org.rcsb.sequence.model.ResidueType;
+import org.rcsb.sequence.util.ResidueTools;
+
+/**
+ * Converts the chemical component dictionary (<tt>components.cif</tt> from the wwPDB) into the binary index that is
+ * read by {@link MappedResidueInfoFactory}. Only the <tt>_chem_comp</tt> items of each component are kept.
+ * <p>
+ * Usage: ChemCompIndexWriter components.cif[.gz] output.idx
+ * </p>
+ * <p>
+ * Layout, all numbers big-endian:
+ * </p>
+ * <pre>
+ * int    magic, version, number of components
+ * byte[] component ids, KEY_LENGTH bytes each, zero padded and sorted
+ * int[]  file offset of each component record
+ * records: name, formula, parent id, type (each a short length and UTF-8 bytes),
+ *          char one letter code, float formula weight (NaN if unknown), byte flags
+ * </pre>
+ */
+public class ChemCompIndexWriter {
+
+    static final int MAGIC = 0x43434958; // CCIX
+    static final int VERSION = 2;
+    static final int KEY_LENGTH = 8;
+    static final int HEADER_LENGTH = 12;
+    static final int FLAG_NONSTANDARD = 1;
+
+    private static final String CHEM_COMP = "_chem_comp.";
+
+    private ChemCompIndexWriter() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Usage: ChemCompIndexWriter components.cif[.gz] output.idx");
+            return;
+        }
+        File in = new File(args[0]);
+        long start = System.currentTimeMillis();
+        int count = write(in, new File(args[1]));
+        System.out.println("ChemCompIndexWriter: wrote " + count + " chemical components to " + args[1] + " in "
+                + (System.currentTimeMillis() - start) + " ms");
+    }
+
+    /**
+     * @param dictionary the chemical component dictionary, may be gzipped
+     * @param index      the file to write
+     * @return the number of components written
+     * @throws IOException
+     */
+    public static int write(File dictionary, File index) throws IOException {
+        InputStream in = new BufferedInputStream(new FileInputStream(dictionary), 64 * 1024);
+        try {
+            if (dictionary.getName().toLowerCase().endsWith(".gz"))
+                in = new GZIPInputStream(in, 64 * 1024);
+            return write(read(in), index);
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * @return the <tt>_chem_comp</tt> items of every component, sorted by component id
+     */
+    private static Map<String, Map<String, String>> read(InputStream in) throws IOException {
+        Map<String, Map<String, String>> components = new TreeMap<String, Map<String, String>>();
+        LineReader line = new LineReader(in);
+        List<String> tokens = new ArrayList<String>(2);
+        Map<String, String> current = null;
+
+        boolean more = line.next();
+        while (more) {
+            if (line.startsWith("data_")) {
+                current = new HashMap<String, String>();
+                components.put(line.substring(5, line.length()), current);
+                more = line.next();
+            } else if (line.startsWith(CHEM_COMP) && current != null) {
+                tokens.clear();
+                MmCifSequenceParser.tokenize(line.toString(), tokens);
+                String name = tokens.get(0).substring(CHEM_COMP.length());
+                String value;
+                if (tokens.size() > 1) {
+                    value = tokens.get(1);
+                    more = line.next();
+                } else {
+                    // the value is on the next line
+                    more = line.next();
+                    if (more && line.startsWith(";")) {
+                        value = MmCifSequenceParser.readTextField(line);
+                    } else {
+                        tokens.clear();
+                        MmCifSequenceParser.tokenize(line.toString(), tokens);
+                        value = tokens.isEmpty() ? null : tokens.get(0);
+                    }
+                    more = more && line.next();
+                }
+                if (!MmCifSequenceParser.isNull(value))
+                    current.put(name, value);
+            } else if (line.startsWith(";")) {
+                // a text field of a category that is not needed, e.g. in a loop
+                MmCifSequenceParser.readTextField(line);
+                more = line.next();
+            } else {
+                more = line.next();
+            }
+        }
+        return components;
+    }
+
+    private static int write(Map<String, Map<String, String>> components, File index) throws IOException {
+        List<String> ids = new ArrayList<String>(components.size());
+        for (String id : components.keySet()) {
+            if (id.length() > KEY_LENGTH || id.length() == 0) {
+                System.err.println("ChemCompIndexWriter: skipping component with id " + id);
+                continue;
+            }
+            ids.add(id);
+        }
+
+        // the records follow the fixed size id and offset tables
+        byte[][] records = new byte[ids.size()][];
+        int[] offsets = new int[ids.size()];
+        int offset = HEADER_LENGTH + ids.size() * (KEY_LENGTH + 4);
+        for (int i = 0; i < ids.size(); i++) {
+            records[i] = toRecord(components.get(ids.get(i)));
+            offsets[i] = offset;
+            offset += records[i].length;
+        }
+
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(index), 64 * 1024));
+        try {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(ids.size());
+            for (String id : ids) {
+                byte[] key = new byte[KEY_LENGTH];
+                byte[] b = id.getBytes("US-ASCII");
+                System.arraycopy(b, 0, key, 0, b.length);
+                out.write(key);
+            }
+            for (int o : offsets) {
+                out.writeInt(o);
+            }
+            for (byte[] record : records) {
+                out.write(record);
+            }
+        } finally {
+            out.close();
+        }
+        return ids.size();
+    }
+
+    private static byte[] toRecord(Map<String, String> items) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        DataOutputStream out = new DataOutputStream(bytes);
+
+        String parent = items.get("mon_nstd_parent_comp_id");
+        writeString(out, items.get("name"));
+        writeString(out, items.get("formula"));
+        writeString(out, parent);
+        writeString(out, items.get("type"));
+
+        String oneLetterCode = items.get("one_letter_code");
+        out.writeChar(oneLetterCode == null ? ResidueTools.UNKNOWN_ONE_LETTER_CODE : oneLetterCode.charAt(0));
+
+        float weight = Float.NaN;
+        String formulaWeight = items.get("formula_weight");
+        if (formulaWeight != null) {
+            try {
+                weight = Float.parseFloat(formulaWeight);
+            } catch (NumberFormatException e) {
+                System.err.println("ChemCompIndexWriter: bad formula weight " + formulaWeight + " for " + items.get("id"));
+            }
+        }
+        out.writeFloat(weight);
+
+        boolean standard = isStandard(items.get("id"), items.get("type"), parent, oneLetterCode);
+        out.writeByte(standard ? 0 : FLAG_NONSTANDARD);
+
+        out.close();
+        return bytes.toByteArray();
+    }
+
+    /**
+     * The rule of BioJava's <tt>ChemCompTools.isStandardChemComp</tt>, so that the residues of the index are
+     * nonstandard exactly when those of the BioJava factory are: a standard monomer has no parent component, has a one
+     * letter code, and is one of the standard amino acids or nucleotides of its polymer type.
+     */
+    static boolean isStandard(String id, String type, String parent, String oneLetterCode) {
+        if (id == null || parent != null || oneLetterCode == null)
+            return false;
+        ResidueType residueType = ResidueType.getResidueTypeFromString(type);
+        PolymerType polymerType = residueType == null ? null : residueType.polymerType;
+        if (polymerType == PolymerType.peptide || polymerType == PolymerType.dpeptide)
+            return !oneLetterCode.equals(ResidueTools.UNKNOWN_ONE_LETTER_CODE.toString())
+                    && ResidueTools.AMINO_ACID_LOOKUP_3TO1.containsKey(id);
+        if (polymerType == PolymerType.rna)
+            return id.length() == 1;
+        if (polymerType == PolymerType.dna)
+            return ResidueTools.DNA_LOOKUP_2TO1.containsKey(id);
+        return false;
+    }
+
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        byte[] b = s == null ? new byte[0] : s.getBytes("UTF-8");
+        out.writeShort(b.length);
+        out.write(b);
+    }
+}
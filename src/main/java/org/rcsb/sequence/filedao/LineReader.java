@@ -0,0 +1,151 @@
+package org.rcsb.sequence.filedao;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Reads a text file line by line into a reused byte buffer, so that records which are not needed
+ * can be skipped and fixed width fields can be parsed without creating any objects.
+ */
+final class LineReader {
+
+    private final InputStream in;
+    private final byte[] buffer = new byte[64 * 1024];
+    private int position = 0;
+    private int limit = 0;
+
+    private byte[] line = new byte[256];
+    private int length = 0;
+
+    LineReader(InputStream in) {
+        this.in = in;
+    }
+
+    /**
+     * Read the next line, without the line terminator.
+     *
+     * @return false at the end of the file
+     * @throws IOException
+     */
+    boolean next() throws IOException {
+        length = 0;
+        boolean read = false;
+        while (true) {
+            if (position == limit) {
+                limit = in.read(buffer, 0, buffer.length);
+                position = 0;
+                if (limit <= 0) {
+                    limit = 0;
+                    return read;
+                }
+            }
+            read = true;
+            byte b = buffer[position++];
+            if (b == '\n')
+                break;
+            if (b == '\r')
+                continue;
+            if (length == line.length) {
+                byte[] bigger = new byte[2 * line.length];
+                System.arraycopy(line, 0, bigger, 0, length);
+                line = bigger;
+            }
+            line[length++] = b;
+        }
+        return true;
+    }
+
+    int length() {
+        return length;
+    }
+
+    /**
+     * @param i
+     * @return the character at this column, or a blank if the line is shorter
+     */
+    char charAt(int i) {
+        return i < length ? (char) (line[i] & 0xFF) : ' ';
+    }
+
+    boolean startsWith(String prefix) {
+        if (prefix.length() > length)
+            return false;
+        for (int i = 0; i < prefix.length(); i++) {
+            if (line[i] != prefix.charAt(i))
+                return false;
+        }
+        return true;
+    }
+
+    boolean isBlank(int from, int to) {
+        to = Math.min(to, length);
+        for (int i = from; i < to; i++) {
+            if (line[i] != ' ')
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Pack up to three characters (e.g. a right justified residue name) into an int.
+     *
+     * @param from
+     * @return
+     */
+    int pack3(int from) {
+        return (charAt(from) << 16) | (charAt(from + 1) << 8) | charAt(from + 2);
+    }
+
+    /**
+     * Parse a right or left justified integer field.
+     *
+     * @param from
+     * @param to
+     * @return the value, or Integer.MIN_VALUE if the field is empty
+     */
+    int parseInt(int from, int to) {
+        to = Math.min(to, length);
+        int i = from;
+        while (i < to && line[i] == ' ')
+            i++;
+        if (i == to)
+            return Integer.MIN_VALUE;
+
+        boolean negative = false;
+        if (line[i] == '-') {
+            negative = true;
+            i++;
+        }
+        int result = 0;
+        for (; i < to; i++) {
+            byte b = line[i];
+            if (b < '0' || b > '9')
+                break;
+            result = result * 10 + (b - '0');
+        }
+        return negative ? -result : result;
+    }
+
+    /**
+     * @param from
+     * @param to
+     * @return the field with leading and trailing blanks removed
+     */
+    String substring(int from, int to) {
+        to = Math.min(to, length);
+        while (from < to && line[from] == ' ')
+            from++;
+        while (to > from && line[to - 1] == ' ')
+            to--;
+        char[] chars = new char[Math.max(0, to - from)];
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = (char) (line[from + i] & 0xFF);
+        }
+        return new String(chars);
+    }
+
+    @Override
+    public String toString() {
+        return substring(0, length);
+    }
+}
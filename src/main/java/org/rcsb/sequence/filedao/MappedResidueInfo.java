@@ -0,0 +1,69 @@
+package org.rcsb.sequence.filedao;
+
+import org.rcsb.sequence.model.ResidueInfo;
+import org.rcsb.sequence.model.ResidueType;
+
+/**
+ * A chemical component read from the index of {@link MappedResidueInfoFactory}. Immutable, one instance is shared
+ * by all residues of the same component.
+ */
+final class MappedResidueInfo implements ResidueInfo {
+
+    private final String monId;
+    private final String name;
+    private final String formula;
+    private final String parentMonId;
+    private final ResidueType type;
+    private final Character oneLetterCode;
+    private final Float formulaWeight;
+    private final boolean nonstandard;
+
+    MappedResidueInfo(String monId, String name, String formula, String parentMonId, ResidueType type,
+                      Character oneLetterCode, Float formulaWeight, boolean nonstandard) {
+        this.monId = monId;
+        this.name = name;
+        this.formula = formula;
+        this.parentMonId = parentMonId;
+        this.type = type;
+        this.oneLetterCode = oneLetterCode;
+        this.formulaWeight = formulaWeight;
+        this.nonstandard = nonstandard;
+    }
+
+    public String getFormula() {
+        return formula;
+    }
+
+    public Float getFormulaWeight() {
+        return formulaWeight;
+    }
+
+    public ResidueType getType() {
+        return type;
+    }
+
+    public boolean isNonstandard() {
+        return nonstandard;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getParentMonId() {
+        return parentMonId;
+    }
+
+    public String getMonId() {
+        return monId;
+    }
+
+    public Character getOneLetterCode() {
+        return oneLetterCode;
+    }
+
+    @Override
+    public String toString() {
+        return monId;
+    }
+}
@@ -0,0 +1,196 @@
+package org.rcsb.sequence.filedao;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.rcsb.sequence.model.PolymerType;
+import org.rcsb.sequence.model.ResidueInfo;
+import org.rcsb.sequence.model.ResidueInfoFactory;
+import org.rcsb.sequence.model.ResidueType;
+import org.rcsb.sequence.util.ResidueTools;
+
+/**
+ * Serves {@link ResidueInfo}s from a binary index of the chemical component dictionary written by
+ * {@link ChemCompIndexWriter}. The index is memory-mapped, so opening it costs next to nothing, and a component
+ * is decoded from the mapping the first time it is requested. No component files are read or downloaded.
+ * <p>
+ * Components that are not in the index are passed to a fallback factory if one is configured, or described as
+ * unknown residues otherwise.
+ * </p>
+ */
+public class MappedResidueInfoFactory implements ResidueInfoFactory {
+
+    private final File indexFile;
+    private final MappedByteBuffer buffer;
+    private final int count;
+    private final ResidueInfoFactory fallback;
+    private final ConcurrentMap<String, ResidueInfo> cache = new ConcurrentHashMap<String, ResidueInfo>(256);
+
+    /**
+     * @param indexFile a file written by {@link ChemCompIndexWriter}
+     * @throws IOException if the file can not be read or is not an index
+     */
+    public MappedResidueInfoFactory(File indexFile) throws IOException {
+        this(indexFile, null);
+    }
+
+    /**
+     * @param indexFile a file written by {@link ChemCompIndexWriter}
+     * @param fallback  used for components that are not in the index, may be null
+     * @throws IOException if the file can not be read or is not an index
+     */
+    public MappedResidueInfoFactory(File indexFile, ResidueInfoFactory fallback) throws IOException {
+        this.indexFile = indexFile;
+        this.fallback = fallback;
+
+        FileInputStream fis = new FileInputStream(indexFile);
+        try {
+            FileChannel channel = fis.getChannel();
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } finally {
+            // the mapping stays valid after the channel has been closed
+            fis.close();
+        }
+
+        if (buffer.limit() < ChemCompIndexWriter.HEADER_LENGTH || buffer.getInt(0) != ChemCompIndexWriter.MAGIC)
+            throw new IOException(indexFile + " is not a chemical component index");
+        if (buffer.getInt(4) != ChemCompIndexWriter.VERSION)
+            throw new IOException(indexFile + " has version " + buffer.getInt(4) + ", expected " + ChemCompIndexWriter.VERSION);
+        count = buffer.getInt(8);
+    }
+
+    public File getIndexFile() {
+        return indexFile;
+    }
+
+    /**
+     * @return the number of components in the index
+     */
+    public int size() {
+        return count;
+    }
+
+    public ResidueInfo getResidue(String monId) {
+        ResidueInfo ri = cache.get(monId);
+        if (ri != null)
+            return ri;
+
+        int position = find(monId);
+        if (position >= 0) {
+            ri = read(monId, buffer.getInt(ChemCompIndexWriter.HEADER_LENGTH + count * ChemCompIndexWriter.KEY_LENGTH + 4 * position));
+        } else if (fallback != null) {
+            ri = fallback.getResidue(monId);
+        } else {
+            System.err.println("MappedResidueInfoFactory: " + monId + " is not in " + indexFile);
+            ri = new MappedResidueInfo(monId, monId, null, null, ResidueType.otherChemComp,
+                    ResidueTools.UNKNOWN_ONE_LETTER_CODE, null, true);
+        }
+
+        ResidueInfo existing = cache.putIfAbsent(monId, ri);
+        return existing != null ? existing : ri;
+    }
+
+    public ResidueInfo getResidue(PolymerType pt, Character oneLetterCode) {
+        Map<Character, String> theMapToUse;
+        switch (pt) {
+            case peptide:
+                theMapToUse = ResidueTools.AMINO_ACID_LOOKUP_1TO3;
+                break;
+            case dna:
+                theMapToUse = ResidueTools.DNA_LOOKUP_1TO2;
+                break;
+            case rna:
+                return getResidue(String.valueOf(Character.toUpperCase(oneLetterCode.charValue())));
+            default:
+                theMapToUse = Collections.emptyMap();
+                break;
+        }
+        String monId = theMapToUse.get(oneLetterCode);
+        if (monId == null)
+            monId = theMapToUse.get(Character.toUpperCase(oneLetterCode));
+        if (monId == null)
+            throw new RuntimeException("Could not find " + pt.toString() + " with code " + oneLetterCode);
+        return getResidue(monId);
+    }
+
+    /**
+     * Binary search of the sorted id table.
+     *
+     * @return the position of the component, or -1 if it is not in the index
+     */
+    private int find(String monId) {
+        if (monId.length() > ChemCompIndexWriter.KEY_LENGTH)
+            return -1;
+        int low = 0;
+        int high = count - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int cmp = compareKey(mid, monId);
+            if (cmp < 0)
+                low = mid + 1;
+            else if (cmp > 0)
+                high = mid - 1;
+            else
+                return mid;
+        }
+        return -1;
+    }
+
+    /**
+     * Compares the id at a position of the table with an id, in the order of the zero padded ASCII bytes.
+     */
+    private int compareKey(int position, String monId) {
+        int offset = ChemCompIndexWriter.HEADER_LENGTH + position * ChemCompIndexWriter.KEY_LENGTH;
+        for (int i = 0; i < ChemCompIndexWriter.KEY_LENGTH; i++) {
+            int a = buffer.get(offset + i) & 0xFF;
+            int b = i < monId.length() ? monId.charAt(i) & 0xFF : 0;
+            if (a != b)
+                return a - b;
+        }
+        return 0;
+    }
+
+    private ResidueInfo read(String monId, int offset) {
+        // the shared buffer is only read with absolute positions, this view is private to the calling thread
+        ByteBuffer record = buffer.duplicate();
+        record.position(offset);
+
+        String name = readString(record);
+        String formula = readString(record);
+        String parentMonId = readString(record);
+        String type = readString(record);
+        char oneLetterCode = record.getChar();
+        float weight = record.getFloat();
+        byte flags = record.get();
+
+        return new MappedResidueInfo(monId, name, formula, parentMonId,
+                type == null ? null : ResidueType.getResidueTypeFromString(type),
+                oneLetterCode, Float.isNaN(weight) ? null : weight,
+                (flags & ChemCompIndexWriter.FLAG_NONSTANDARD) != 0);
+    }
+
+    /**
+     * @return the string, or null if it is empty
+     */
+    private static String readString(ByteBuffer record) {
+        int length = record.getShort() & 0xFFFF;
+        if (length == 0)
+            return null;
+        byte[] b = new byte[length];
+        record.get(b);
+        try {
+            return new String(b, "UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
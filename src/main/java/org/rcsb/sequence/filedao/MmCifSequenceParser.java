@@ -0,0 +1,242 @@
+package org.rcsb.sequence.filedao;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.rcsb.sequence.model.PolymerType;
+import org.rcsb.sequence.model.ResidueInfo;
+
+/**
+ * Reads the sequences and residue numbering of a structure from an mmCIF file in one pass.
+ * <p>
+ * Everything that is needed is in the <tt>_pdbx_poly_seq_scheme</tt> category, which maps every SEQRES residue to its
+ * author numbering and tells whether it has coordinates. Only this category and a few small ones
+ * (<tt>_entry</tt>, <tt>_struct</tt>, <tt>_entity_poly</tt>) are tokenized, all other categories including
+ * <tt>_atom_site</tt> are skipped line by line without creating any objects.
+ * </p>
+ */
+final class MmCifSequenceParser {
+
+    private static final String[] CATEGORIES = {"_entry", "_struct", "_entity_poly", "_pdbx_poly_seq_scheme"};
+
+    // item name to the values of that item, in file order
+    private final Map<String, List<String>> items = new HashMap<String, List<String>>();
+
+    private MmCifSequenceParser() {
+    }
+
+    /**
+     * @param structureId used if the file has no <tt>_entry.id</tt>
+     * @param in
+     * @return
+     * @throws IOException
+     */
+    static StreamingSequenceCollection parse(String structureId, InputStream in) throws IOException {
+        MmCifSequenceParser parser = new MmCifSequenceParser();
+        parser.read(new LineReader(in));
+        return parser.build(structureId);
+    }
+
+    private static boolean isWanted(String itemName) {
+        int dot = itemName.indexOf('.');
+        String category = dot < 0 ? itemName : itemName.substring(0, dot);
+        for (String c : CATEGORIES) {
+            if (c.equals(category))
+                return true;
+        }
+        return false;
+    }
+
+    static boolean isEndOfLoop(LineReader line) {
+        return line.startsWith("_") || line.startsWith("loop_") || line.startsWith("#") || line.startsWith("data_");
+    }
+
+    private void read(LineReader line) throws IOException {
+        boolean more = line.next();
+        while (more) {
+            if (line.startsWith("loop_")) {
+                more = readLoop(line);
+            } else if (line.startsWith("_")) {
+                more = readItem(line);
+            } else {
+                more = line.next();
+            }
+        }
+    }
+
+    /**
+     * @return the value of a text field that starts on the current line. The closing line is consumed.
+     */
+    static String readTextField(LineReader line) throws IOException {
+        StringBuilder text = new StringBuilder(line.substring(1, line.length()));
+        while (line.next() && !line.startsWith(";")) {
+            text.append(' ').append(line.substring(0, line.length()));
+        }
+        return text.toString().trim();
+    }
+
+    static void tokenize(String s, List<String> tokens) {
+        int i = 0;
+        int n = s.length();
+        while (i < n) {
+            char c = s.charAt(i);
+            if (Character.isWhitespace(c)) {
+                i++;
+            } else if (c == '\'' || c == '"') {
+                // a quote only closes a value if it is followed by white space
+                int j = i + 1;
+                while (j < n && !(s.charAt(j) == c && (j + 1 == n || Character.isWhitespace(s.charAt(j + 1)))))
+                    j++;
+                tokens.add(s.substring(i + 1, Math.min(j, n)));
+                i = j + 1;
+            } else {
+                int j = i;
+                while (j < n && !Character.isWhitespace(s.charAt(j)))
+                    j++;
+                tokens.add(s.substring(i, j));
+                i = j;
+            }
+        }
+    }
+
+    private boolean readItem(LineReader line) throws IOException {
+        List<String> tokens = new ArrayList<String>(2);
+        tokenize(line.toString(), tokens);
+        String name = tokens.get(0);
+        String value;
+        boolean more;
+        if (tokens.size() > 1) {
+            value = tokens.get(1);
+            more = line.next();
+        } else {
+            // the value is on the next line
+            more = line.next();
+            if (more && line.startsWith(";")) {
+                value = readTextField(line);
+            } else {
+                tokens.clear();
+                tokenize(line.toString(), tokens);
+                value = tokens.isEmpty() ? null : tokens.get(0);
+            }
+            more = more && line.next();
+        }
+        if (value != null && isWanted(name)) {
+            List<String> values = new ArrayList<String>(1);
+            values.add(value);
+            items.put(name, values);
+        }
+        return more;
+    }
+
+    private boolean readLoop(LineReader line) throws IOException {
+        List<String> columns = new ArrayList<String>();
+        boolean more;
+        while ((more = line.next()) && line.startsWith("_")) {
+            columns.add(line.toString());
+        }
+        if (columns.isEmpty())
+            return more;
+
+        boolean wanted = isWanted(columns.get(0));
+        List<String> values = wanted ? new ArrayList<String>() : null;
+        while (more && !isEndOfLoop(line)) {
+            if (line.startsWith(";")) {
+                String text = readTextField(line);
+                if (wanted)
+                    values.add(text);
+            } else if (wanted) {
+                tokenize(line.toString(), values);
+            }
+            more = line.next();
+        }
+
+        if (wanted) {
+            int n = columns.size();
+            for (int c = 0; c < n; c++) {
+                List<String> column = new ArrayList<String>(values.size() / n);
+                for (int i = c; i < values.size(); i += n) {
+                    column.add(values.get(i));
+                }
+                items.put(columns.get(c), column);
+            }
+        }
+        return more;
+    }
+
+    private String getFirst(String item) {
+        List<String> values = items.get(item);
+        return values == null || values.isEmpty() ? null : values.get(0);
+    }
+
+    static boolean isNull(String value) {
+        return value == null || value.equals("?") || value.equals(".");
+    }
+
+    private StreamingSequenceCollection build(String structureId) {
+        String id = getFirst("_entry.id");
+        String title = getFirst("_struct.title");
+        StreamingSequenceCollection collection = new StreamingSequenceCollection(
+                isNull(id) ? structureId.toUpperCase() : id, isNull(title) ? "" : title);
+
+        Map<String, PolymerType> polymerTypes = new HashMap<String, PolymerType>();
+        List<String> polyEntityIds = items.get("_entity_poly.entity_id");
+        List<String> polyTypes = items.get("_entity_poly.type");
+        if (polyEntityIds != null && polyTypes != null) {
+            for (int i = 0; i < polyEntityIds.size() && i < polyTypes.size(); i++) {
+                polymerTypes.put(polyEntityIds.get(i), PolymerType.polymerTypeFromString(polyTypes.get(i)));
+            }
+        }
+
+        List<String> entityIds = items.get("_pdbx_poly_seq_scheme.entity_id");
+        List<String> seqIds = items.get("_pdbx_poly_seq_scheme.seq_id");
+        List<String> monIds = items.get("_pdbx_poly_seq_scheme.mon_id");
+        List<String> pdbSeqNums = items.get("_pdbx_poly_seq_scheme.pdb_seq_num");
+        List<String> pdbMonIds = items.get("_pdbx_poly_seq_scheme.pdb_mon_id");
+        List<String> strandIds = items.get("_pdbx_poly_seq_scheme.pdb_strand_id");
+        List<String> insCodes = items.get("_pdbx_poly_seq_scheme.pdb_ins_code");
+        if (entityIds == null || seqIds == null || monIds == null || pdbSeqNums == null || pdbMonIds == null || strandIds == null) {
+            System.err.println("MmCifSequenceParser: no _pdbx_poly_seq_scheme in " + collection.getStructureId());
+            return collection;
+        }
+
+        Map<String, ChainBuilder> chains = new LinkedHashMap<String, ChainBuilder>();
+        Map<String, String> chainEntities = new HashMap<String, String>();
+        Map<String, String> lastSeqIds = new HashMap<String, String>();
+        List<String> entityOrder = new ArrayList<String>();
+
+        for (int i = 0; i < monIds.size(); i++) {
+            String chainId = strandIds.get(i);
+            ChainBuilder c = chains.get(chainId);
+            if (c == null) {
+                c = new ChainBuilder(chainId);
+                c.setPolymerType(polymerTypes.get(entityIds.get(i)));
+                chains.put(chainId, c);
+                chainEntities.put(chainId, entityIds.get(i));
+                if (!entityOrder.contains(entityIds.get(i)))
+                    entityOrder.add(entityIds.get(i));
+            }
+
+            // microheterogeneity: only the first residue at a position is used
+            if (seqIds.get(i).equals(lastSeqIds.put(chainId, seqIds.get(i))))
+                continue;
+
+            c.addResidue(monIds.get(i));
+            if (!isNull(pdbMonIds.get(i)) && !isNull(pdbSeqNums.get(i))) {
+                String insCode = insCodes == null ? null : insCodes.get(i);
+                c.setObserved(c.size() - 1, Integer.parseInt(pdbSeqNums.get(i)), isNull(insCode) ? ' ' : insCode.charAt(0));
+            }
+        }
+
+        Map<String, ResidueInfo> residueInfos = new HashMap<String, ResidueInfo>();
+        for (ChainBuilder c : chains.values()) {
+            int entityId = entityOrder.indexOf(chainEntities.get(c.getChainId()));
+            collection.addChain(c.build(collection, entityId, residueInfos));
+        }
+        return collection;
+    }
+}
@@ -0,0 +1,247 @@
+package org.rcsb.sequence.filedao;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.rcsb.sequence.model.ResidueInfo;
+
+/**
+ * Reads the SEQRES records and the residue numbering of the first model from a PDB format file in one pass.
+ * <p>
+ * ATOM and HETATM records are read into a reused line buffer and only looked at when the residue number
+ * changes, so nothing is allocated per atom. The observed residues are aligned to SEQRES greedily: a residue
+ * is placed where its author numbering says it should be if the residue names agree, and otherwise at the next
+ * SEQRES position with the same name. Files without SEQRES records get their sequence from the ATOM records.
+ * </p>
+ */
+final class PdbSequenceParser {
+
+    private static final int HOH = pack("HOH");
+    private static final int DOD = pack("DOD");
+
+    private final ChainRecord[] chainsById = new ChainRecord[256];
+    private final List<ChainRecord> chains = new ArrayList<ChainRecord>();
+    private final Map<Integer, String> monIds = new HashMap<Integer, String>();
+
+    private final StringBuilder title = new StringBuilder();
+    private final StringBuilder compound = new StringBuilder();
+    private String idCode = null;
+    private boolean hasSeqRes = false;
+
+    private PdbSequenceParser() {
+    }
+
+    private static int pack(String name) {
+        return (name.charAt(0) << 16) | (name.charAt(1) << 8) | name.charAt(2);
+    }
+
+    /**
+     * @param structureId used if the file has no HEADER record
+     * @param in
+     * @return
+     * @throws IOException
+     */
+    static StreamingSequenceCollection parse(String structureId, InputStream in) throws IOException {
+        PdbSequenceParser parser = new PdbSequenceParser();
+        parser.read(new LineReader(in));
+        return parser.build(structureId);
+    }
+
+    private void read(LineReader line) throws IOException {
+        while (line.next()) {
+            if (line.startsWith("ATOM  ")) {
+                atom(line, true);
+            } else if (line.startsWith("HETATM")) {
+                atom(line, false);
+            } else if (line.startsWith("SEQRES")) {
+                seqRes(line);
+            } else if (line.startsWith("ENDMDL")) {
+                // only the first model is used, and nothing of interest follows the coordinates
+                break;
+            } else if (line.startsWith("HEADER")) {
+                idCode = line.substring(62, 66);
+            } else if (line.startsWith("TITLE ")) {
+                if (title.length() > 0)
+                    title.append(' ');
+                title.append(line.substring(10, 80));
+            } else if (line.startsWith("COMPND")) {
+                compound.append(line.substring(10, 80)).append(' ');
+            }
+        }
+    }
+
+    private ChainRecord getChainRecord(char chainId) {
+        ChainRecord c = chainsById[chainId & 0xFF];
+        if (c == null) {
+            c = new ChainRecord(String.valueOf(chainId));
+            chainsById[chainId & 0xFF] = c;
+            chains.add(c);
+        }
+        return c;
+    }
+
+    private String getMonId(int packed, LineReader line, int from) {
+        Integer key = packed;
+        String monId = monIds.get(key);
+        if (monId == null) {
+            monId = line.substring(from, from + 3);
+            monIds.put(key, monId);
+        }
+        return monId;
+    }
+
+    private void seqRes(LineReader line) {
+        hasSeqRes = true;
+        ChainRecord c = getChainRecord(line.charAt(11));
+        for (int col = 19; col + 3 <= line.length(); col += 4) {
+            if (line.isBlank(col, col + 3))
+                continue;
+            int name = line.pack3(col);
+            c.addSeqRes(name, getMonId(name, line, col));
+        }
+    }
+
+    private void atom(LineReader line, boolean isAtom) {
+        char chainId = line.charAt(21);
+        ChainRecord c = chainsById[chainId & 0xFF];
+        if (c == null) {
+            if (hasSeqRes || !isAtom)
+                return;
+            c = getChainRecord(chainId);
+        }
+
+        int seqNum = line.parseInt(22, 26);
+        char insCode = line.charAt(26);
+        if (c.isCurrentResidue(seqNum, insCode))
+            return;
+
+        int name = line.pack3(17);
+        if (name == HOH || name == DOD)
+            return;
+
+        if (hasSeqRes) {
+            c.align(name, seqNum, insCode);
+        } else if (isAtom) {
+            c.addSeqRes(name, getMonId(name, line, 17));
+            c.builder.setObserved(c.builder.size() - 1, seqNum, insCode);
+        }
+    }
+
+    private List<List<String>> parseEntities() {
+        List<List<String>> entities = new ArrayList<List<String>>();
+        List<String> current = null;
+        for (String token : compound.toString().split(";")) {
+            int colon = token.indexOf(':');
+            if (colon < 0)
+                continue;
+            String key = token.substring(0, colon).trim();
+            String value = token.substring(colon + 1).trim();
+            if (key.equals("MOL_ID")) {
+                current = new ArrayList<String>();
+                entities.add(current);
+            } else if (key.equals("CHAIN") && current != null) {
+                for (String chainId : value.split(",")) {
+                    current.add(chainId.trim());
+                }
+            }
+        }
+        return entities;
+    }
+
+    private StreamingSequenceCollection build(String structureId) {
+        String id = idCode == null || idCode.length() == 0 ? structureId.toUpperCase() : idCode;
+        StreamingSequenceCollection collection = new StreamingSequenceCollection(id, title.toString());
+
+        List<List<String>> entities = parseEntities();
+        Map<String, ResidueInfo> residueInfos = new HashMap<String, ResidueInfo>();
+        for (ChainRecord c : chains) {
+            if (c.builder.size() == 0)
+                continue;
+
+            String chainId = c.builder.getChainId();
+            int entityId = -1;
+            for (int i = 0; i < entities.size() && entityId < 0; i++) {
+                if (entities.get(i).contains(chainId))
+                    entityId = i;
+            }
+            if (entityId < 0) {
+                List<String> entity = new ArrayList<String>();
+                entity.add(chainId);
+                entities.add(entity);
+                entityId = entities.size() - 1;
+            }
+            collection.addChain(c.builder.build(collection, entityId, residueInfos));
+        }
+        return collection;
+    }
+
+    private static class ChainRecord {
+        private final ChainBuilder builder;
+
+        // packed SEQRES residue names, for comparing without creating Strings
+        private int[] names = new int[64];
+
+        // the last residue seen in the ATOM records
+        private boolean hasCurrent = false;
+        private int currentSeqNum;
+        private char currentInsCode;
+
+        // the SEQRES position after the last aligned residue
+        private int next = 0;
+        private int lastAlignedSeqNum = StreamingChain.UNOBSERVED;
+
+        ChainRecord(String chainId) {
+            this.builder = new ChainBuilder(chainId);
+        }
+
+        void addSeqRes(int name, String monId) {
+            int i = builder.size();
+            if (i == names.length) {
+                int[] n = new int[2 * i];
+                System.arraycopy(names, 0, n, 0, i);
+                names = n;
+            }
+            names[i] = name;
+            builder.addResidue(monId);
+        }
+
+        /**
+         * @return true if this is the residue of the previous ATOM record, otherwise it becomes the current residue
+         */
+        boolean isCurrentResidue(int seqNum, char insCode) {
+            if (hasCurrent && seqNum == currentSeqNum && insCode == currentInsCode)
+                return true;
+            hasCurrent = true;
+            currentSeqNum = seqNum;
+            currentInsCode = insCode;
+            return false;
+        }
+
+        void align(int name, int seqNum, char insCode) {
+            int size = builder.size();
+            if (next >= size)
+                return;
+
+            int k = -1;
+            if (lastAlignedSeqNum != StreamingChain.UNOBSERVED && insCode == ' ') {
+                int expected = next + (seqNum - lastAlignedSeqNum - 1);
+                if (expected >= next && expected < size && names[expected] == name)
+                    k = expected;
+            }
+            for (int i = next; k < 0 && i < size; i++) {
+                if (names[i] == name)
+                    k = i;
+            }
+            if (k < 0)
+                return;
+
+            builder.setObserved(k, seqNum, insCode);
+            next = k + 1;
+            lastAlignedSeqNum = seqNum;
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package org.rcsb.sequence.filedao;
+
+import java.util.Collection;
+
+import org.rcsb.sequence.core.AbstractSequence;
+import org.rcsb.sequence.core.ResidueIdImpl;
+import org.rcsb.sequence.core.ResidueIndex;
+import org.rcsb.sequence.model.Chain;
+import org.rcsb.sequence.model.PolymerType;
+import org.rcsb.sequence.model.ResidueInfo;
+import org.rcsb.sequence.model.ResidueNumberScheme;
+import org.rcsb.sequence.model.SequenceCollection;
+
+/**
+ * A chain that was read by one of the streaming parsers. It knows the SEQRES residues and the author
+ * numbering of the residues with coordinates, but has no coordinates and no annotations.
+ * The residue ids are created from these arrays the first time they are needed.
+ */
+public class StreamingChain extends AbstractSequence implements Chain {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * author residue number of SEQRES residues without coordinates
+     */
+    public static final int UNOBSERVED = Integer.MIN_VALUE;
+
+    private final StreamingSequenceCollection collection;
+    private final String chainId;
+    private final Integer entityId;
+    private final PolymerType polymerType;
+
+    // released once the residue ids have been created
+    private ResidueInfo[] residues;
+    private int[] authSeqNums;
+    private char[] insCodes;
+
+    StreamingChain(StreamingSequenceCollection collection, String chainId, int entityId, PolymerType polymerType,
+                   ResidueInfo[] residues, int[] authSeqNums, char[] insCodes) {
+        super(toSequenceString(residues));
+        this.collection = collection;
+        this.chainId = chainId;
+        this.entityId = entityId;
+        this.polymerType = polymerType;
+        this.residues = residues;
+        this.authSeqNums = authSeqNums;
+        this.insCodes = insCodes;
+    }
+
+    private static String toSequenceString(ResidueInfo[] residues) {
+        char[] chars = new char[residues.length];
+        for (int i = 0; i < residues.length; i++) {
+            Character c = residues[i].getOneLetterCode();
+            chars[i] = c == null ? 'X' : c;
+        }
+        return new String(chars);
+    }
+
+    @Override
+    protected synchronized void ensureResiduesInstantiated() {
+        if (residues == null)
+            return;
+
+        ResidueIndex arrayMap = getResidueIndex(ResidueNumberScheme._ARRAY_IDX);
+        ResidueIndex atomMap = getResidueIndex(ResidueNumberScheme.ATOM);
+        ResidueIndex seqresMap = getResidueIndex(ResidueNumberScheme.SEQRES);
+
+        for (int index = 0; index < residues.length; index++) {
+            ResidueInfo theResidue = residues[index];
+
+            ResidueIdImpl equivResId = new ResidueIdImpl(ResidueNumberScheme._ARRAY_IDX, this, index, theResidue);
+            arrayMap.put(equivResId);
+            seqresMap.put(new ResidueIdImpl(ResidueNumberScheme.SEQRES, this, index + 1, theResidue, equivResId));
+
+            int authSeqNum = authSeqNums[index];
+            if (authSeqNum != UNOBSERVED) {
+                Character insertionCode = insCodes[index] == ' ' ? null : insCodes[index];
+                atomMap.put(new ResidueIdImpl(ResidueNumberScheme.ATOM, this, authSeqNum, insertionCode, theResidue, equivResId));
+            }
+        }
+
+        linkResidues();
+
+        residues = null;
+        authSeqNums = null;
+        insCodes = null;
+    }
+
+    /**
+     * The streaming parsers do not read any annotations.
+     */
+    public void ensureAnnotated() {
+    }
+
+    public Collection<ResidueNumberScheme> getAvailableResidueNumberSchemes() {
+        ensureResiduesInstantiated();
+        return getResidueIndexes().keySet();
+    }
+
+    public Chain getChain() {
+        return this;
+    }
+
+    public String getChainId() {
+        return chainId;
+    }
+
+    public String getPdbChainId() {
+        return chainId;
+    }
+
+    public Integer getEntityId() {
+        return entityId;
+    }
+
+    public ResidueNumberScheme getDefaultResidueNumberScheme() {
+        return ResidueNumberScheme.SEQRES;
+    }
+
+    public String getExternalDbCode() {
+        return null;
+    }
+
+    public String getExternalDbName() {
+        return null;
+    }
+
+    public PolymerType getPolymerType() {
+        return polymerType;
+    }
+
+    @Deprecated
+    public SequenceCollection getSequenceCollection() {
+        return collection;
+    }
+
+    public String getStructureId() {
+        return collection.getStructureId();
+    }
+
+    public int compareTo(Chain o) {
+        int result = getEntityId().compareTo(o.getEntityId());
+        return result != 0 ? result : chainId.compareTo(o.getChainId());
+    }
+}
@@ -0,0 +1,110 @@
+package org.rcsb.sequence.filedao;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.rcsb.sequence.model.Chain;
+import org.rcsb.sequence.model.PolymerType;
+import org.rcsb.sequence.model.ResidueNumberScheme;
+import org.rcsb.sequence.model.SegmentedSequence;
+import org.rcsb.sequence.model.SequenceCollection;
+
+/**
+ * The polymer chains of a structure as read by {@link PdbSequenceParser} or {@link MmCifSequenceParser}.
+ * Chains are keyed by the author chain id, and entity ids are numbered from 0 in the order in which
+ * the entities appear in the file, as in {@link org.rcsb.sequence.biojavadao.BioJavaSequenceCollection}.
+ */
+public class StreamingSequenceCollection implements SequenceCollection {
+
+    private final String structureId;
+    private final String title;
+    private final Map<String, StreamingChain> chains = new LinkedHashMap<String, StreamingChain>();
+
+    StreamingSequenceCollection(String structureId, String title) {
+        this.structureId = structureId;
+        this.title = title;
+    }
+
+    void addChain(StreamingChain chain) {
+        chains.put(chain.getChainId(), chain);
+    }
+
+    public String getStructureId() {
+        return structureId;
+    }
+
+    public String getStructureTitle() {
+        return title;
+    }
+
+    public void destroy() {
+        for (StreamingChain c : chains.values()) {
+            c.destroy();
+        }
+        chains.clear();
+    }
+
+    public Map<String, Chain> getChains() {
+        return new LinkedHashMap<String, Chain>(chains);
+    }
+
+    public Collection<Chain> getChains(Integer entityId) {
+        List<Chain> result = new ArrayList<Chain>();
+        for (StreamingChain c : chains.values()) {
+            if (c.getEntityId().equals(entityId))
+                result.add(c);
+        }
+        return result.isEmpty() ? null : result;
+    }
+
+    public boolean containsChain(String chainId) {
+        return chains.containsKey(chainId);
+    }
+
+    public Chain getChain(String chainId) {
+        return chains.get(chainId);
+    }
+
+    public Chain getChainByPDBID(String chainId) {
+        return chains.get(chainId);
+    }
+
+    public int chainCount() {
+        return chains.size();
+    }
+
+    public Map<String, Chain> getFirstChainFromEachEntityMap() {
+        Map<Integer, Chain> firstOfEntity = new LinkedHashMap<Integer, Chain>();
+        for (StreamingChain c : chains.values()) {
+            if (!firstOfEntity.containsKey(c.getEntityId()))
+                firstOfEntity.put(c.getEntityId(), c);
+        }
+        Map<String, Chain> result = new HashMap<String, Chain>();
+        for (Chain c : firstOfEntity.values()) {
+            result.put(c.getChainId(), c);
+        }
+        return result;
+    }
+
+    public Map<PolymerType, Collection<Chain>> getPolymerTypeChainMap() {
+        Map<PolymerType, Collection<Chain>> result = new HashMap<PolymerType, Collection<Chain>>();
+        for (StreamingChain c : chains.values()) {
+            Collection<Chain> ofType = result.get(c.getPolymerType());
+            if (ofType == null) {
+                ofType = new ArrayList<Chain>();
+                result.put(c.getPolymerType(), ofType);
+            }
+            ofType.add(c);
+        }
+        return result;
+    }
+
+    public SegmentedSequence getSegmentedSequence(ResidueNumberScheme rns, String chainId, int fragmentLength) {
+        Chain c = getChain(chainId);
+        return c == null ? null : c.getSegmentedSequence(fragmentLength, rns);
+    }
+}
@@ -0,0 +1,74 @@
+package org.rcsb.sequence.filedao;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.rcsb.sequence.biojavadao.LocalPdbMirror;
+import org.rcsb.sequence.core.AbstractSequenceCollectionFactory;
+import org.rcsb.sequence.core.LoadProfile;
+import org.rcsb.sequence.core.SequenceCollectionFactory;
+import org.rcsb.sequence.model.SequenceCollection;
+
+/**
+ * Loads the sequences and the SEQRES to ATOM residue mapping of entries in a local PDB mirror without
+ * building a BioJava Structure. This covers the {@link LoadProfile#SEQUENCE} and {@link LoadProfile#RESIDUE_MAPPING}
+ * profiles. Requests for {@link LoadProfile#FULL} are passed on to a fallback factory if one is configured.
+ */
+public class StreamingSequenceCollectionFactory extends AbstractSequenceCollectionFactory {
+
+    private final LocalPdbMirror localMirror;
+    private final SequenceCollectionFactory fullFactory;
+
+    /**
+     * @param localMirror the mirror to read from
+     */
+    public StreamingSequenceCollectionFactory(LocalPdbMirror localMirror) {
+        this(localMirror, null);
+    }
+
+    /**
+     * @param localMirror the mirror to read from
+     * @param fullFactory used for requests that need coordinates or annotations, e.g. a
+     *                    {@link org.rcsb.sequence.biojavadao.BioJavaSequenceCollectionFactory}. May be null,
+     *                    in which case these requests get a collection without annotations.
+     */
+    public StreamingSequenceCollectionFactory(LocalPdbMirror localMirror, SequenceCollectionFactory fullFactory) {
+        this.localMirror = localMirror;
+        this.fullFactory = fullFactory;
+    }
+
+    public LocalPdbMirror getLocalMirror() {
+        return localMirror;
+    }
+
+    public SequenceCollection get(String structureId) {
+        File f = localMirror.getFile(structureId);
+        if (f == null) {
+            System.err.println("StreamingSequenceCollectionFactory: " + structureId + " is not available in " + localMirror.getRoot());
+            return null;
+        }
+
+        try {
+            InputStream in = localMirror.openStream(structureId);
+            try {
+                if (LocalPdbMirror.isMmCif(f))
+                    return MmCifSequenceParser.parse(structureId, in);
+                else
+                    return PdbSequenceParser.parse(structureId, in);
+            } finally {
+                in.close();
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    @Override
+    public SequenceCollection get(String structureId, LoadProfile profile) {
+        if (fullFactory != null && !LoadProfile.RESIDUE_MAPPING.satisfies(profile))
+            return get(fullFactory, structureId, profile);
+        return get(structureId);
+    }
+}
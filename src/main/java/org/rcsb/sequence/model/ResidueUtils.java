@@ -6,7 +6,9 @@ import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.Map;
 
+import org.rcsb.sequence.core.AbstractSequence;
 import org.rcsb.sequence.core.ResidueIdImpl;
+import org.rcsb.sequence.core.ResidueIndex;
 
 /**
  * Static utility class containing useful {@link ResidueId} methods
@@ -19,7 +21,7 @@ public class ResidueUtils {
      *
      * @param start
      * @param end
-     * @return
+     * @return the residue ids, an unmodifiable view of those of the chain once its residues have been linked
      * @throws RuntimeException if either residue is an end-of-chain marker, or if start and end are the wrong
      *                          way around
      */
@@ -37,6 +39,16 @@ public class ResidueUtils {
             throw new RuntimeException("ResidueUtils: Can't create sequence backwards -- supply start and end the other way around");
         }
 
+        // once the residues of the chain are numbered, this is a view of the chain's residues
+        Chain chain = start.getChain();
+        if (ResidueIdImpl.ordinalOf(start) >= 0 && ResidueIdImpl.ordinalOf(end) >= ResidueIdImpl.ordinalOf(start)
+                && chain == end.getChain() && chain instanceof AbstractSequence) {
+            ResidueIndex index = ((AbstractSequence) chain).getResidueIndex(start.getResidueNumberScheme());
+            if (index != null && index.indexOf(start) == ResidueIdImpl.ordinalOf(start) && index.indexOf(end) == ResidueIdImpl.ordinalOf(end)) {
+                return index.subList(ResidueIdImpl.ordinalOf(start), ResidueIdImpl.ordinalOf(end) + 1);
+            }
+        }
+
         LinkedList<ResidueId> result = new LinkedList<ResidueId>();
 
         // if it's just one residue...
@@ -69,19 +81,19 @@ public class ResidueUtils {
     }
 
     /**
-     * Derive the ResidueIdMaps used by implementations of {@link Sequence}
+     * Derive the residue indexes used by implementations of {@link Sequence}
      *
-     * @param residueIdMaps
+     * @param residueIndexes
      * @param start
      * @param end
      */
-    public static void initDerivedResidueIdMap(Map<ResidueNumberScheme, Map<String, ResidueId>> residueIdMaps, ResidueId start, ResidueId end) {
+    public static void initDerivedResidueIdMap(Map<ResidueNumberScheme, ResidueIndex> residueIndexes, ResidueId start, ResidueId end) {
         //    for each residue...
         for (ResidueId rid : getResidueIdsBetween(start, end)) // can't use chain.getResidueIdsBetween(start, end) becasuse t
         {
             // add to each map
             for (ResidueId equivRid : rid.getEquivalentResidueIds()) {
-                residueIdMaps.get(equivRid.getResidueNumberScheme()).put(equivRid.getSeqIdWithInsertionCode(), equivRid);
+                residueIndexes.get(equivRid.getResidueNumberScheme()).put(equivRid);
             }
         }
     }
@@ -161,6 +173,8 @@ public class ResidueUtils {
         if (one == other) return true;
         if ((one.isBeginningOfChainMarker() || one.isEndOfChainMarker()) || (other.isBeginningOfChainMarker() || other.isEndOfChainMarker()))
             return true;
+        if (one.getResidueNumberScheme() == other.getResidueNumberScheme() && one.getChain() == other.getChain())
+            return true;
         if (one.equals(other)) {
             System.err.println("ResidueUtils: Found two equal but non-identical residueIds");
             return true;
@@ -15,6 +15,7 @@ import org.biojava.nbio.structure.align.gui.JPrintPanel;
 import org.biojava.nbio.structure.align.gui.MenuCreator;
 import org.rcsb.sequence.conf.AnnotationName;
 import org.rcsb.sequence.conf.AnnotationRegistry;
+import org.rcsb.sequence.core.AbstractSequence;
 import org.rcsb.sequence.core.SequenceCollectionProvider;
 import org.rcsb.sequence.model.Sequence;
 import org.rcsb.sequence.model.SequenceCollection;
@@ -57,11 +58,6 @@ public class ImageWrapper {
 
     public static BufferedImage viewMultiLine(String pdbId, String chainId) {
 
-        SequenceCollection coll = SequenceCollectionProvider.get(pdbId);
-
-        Sequence s = coll.getChainByPDBID(chainId);
-        s.ensureAnnotated();
-
         ViewParameters params = new ViewParameters();
 
         //params.setDesiredSequenceRns(ResidueNumberScheme.ATOM);
@@ -81,6 +77,11 @@ public class ImageWrapper {
         newAnnos.add(AnnotationRegistry.getAnnotationByName(AnnotationConstants.siteRecord));
         params.setAnnotations(newAnnos);
 
+        SequenceCollection coll = SequenceCollectionProvider.get(pdbId, params.getLoadProfile());
+
+        Sequence s = coll.getChainByPDBID(chainId);
+        AbstractSequence.ensureAnnotated(s, params.getAnnotations());
+
 //		view.setAnnotationDrawMapper(a2h);
        // System.out.println("seq: " + s.getSequenceLength());
 
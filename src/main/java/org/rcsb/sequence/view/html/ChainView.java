@@ -13,6 +13,7 @@ import java.util.TreeSet;
 import org.rcsb.sequence.conf.AnnotationClassification;
 import org.rcsb.sequence.conf.AnnotationName;
 import org.rcsb.sequence.conf.AnnotationRegistry;
+import org.rcsb.sequence.core.AbstractSequence;
 import org.rcsb.sequence.core.AnnotationDrawMapper;
 import org.rcsb.sequence.model.AnnotationGroup;
 import org.rcsb.sequence.model.Chain;
@@ -90,6 +91,10 @@ public class ChainView implements Serializable {
 
 
         annotationDrawMapper.ensureInitialized();
+
+        // only the requested annotation groups are constructed up front, the others are left to getOtherAnnotationNamesAvaialable()
+        AbstractSequence.ensureAnnotated(this.backingData, lst);
+
         for (AnnotationName an : lst) {
 
             if (an == null) {
@@ -211,6 +216,10 @@ public class ChainView implements Serializable {
         return this.annotationSummaryCells;
     }
 
+    /**
+     * @return the annotations with data that are not displayed. To find them every annotation group of the chain is
+     * constructed.
+     */
     public Collection<AnnotationName> getOtherAnnotationNamesAvaialable() {
         if (this.otherAnnotationsAvailable == null) {
             this.otherAnnotationsAvailable = new TreeSet<AnnotationName>();
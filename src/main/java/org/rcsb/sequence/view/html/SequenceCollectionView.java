@@ -100,13 +100,23 @@ public class SequenceCollectionView implements Serializable {
      */
     public SequenceCollectionView(String structureId) {
 
-        this(SequenceCollectionProvider.get(structureId), new ViewParameters());
+        this(structureId, new ViewParameters());
 
         if (DEBUG)
             System.out.println("SequenceCollectionView: " + structureId + " with DEFAULT parameters");
 
     }
 
+    /**
+     * Creates a new instance from the given structureId, loading only what the {@link ViewParameters} need.
+     *
+     * @param structureId
+     * @param viewParams
+     */
+    public SequenceCollectionView(String structureId, ViewParameters viewParams) {
+        this(SequenceCollectionProvider.get(structureId, viewParams.getLoadProfile()), viewParams);
+    }
+
     /**
      * Creates a new instance from the supplied {@link SequenceCollection} and {@link ViewParameters}
      *
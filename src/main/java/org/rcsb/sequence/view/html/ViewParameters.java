@@ -11,6 +11,7 @@ import java.util.TreeSet;
 import org.rcsb.sequence.conf.AnnotationClassification;
 import org.rcsb.sequence.conf.AnnotationName;
 import org.rcsb.sequence.conf.AnnotationRegistry;
+import org.rcsb.sequence.core.LoadProfile;
 import org.rcsb.sequence.model.ResidueNumberScheme;
 import org.rcsb.sequence.util.AnnotationConstants;
 import org.rcsb.sequence.view.html.SequenceCollectionView.ChainEntityStrategy;
@@ -244,6 +245,15 @@ public final class ViewParameters implements Serializable, Cloneable {
         return Collections.unmodifiableCollection(annotationsToView);
     }
 
+    /**
+     * The cheapest {@link LoadProfile} that provides the annotations, sequence and rulers of this view.
+     *
+     * @return
+     */
+    public LoadProfile getLoadProfile() {
+        return LoadProfile.forAnnotations(getAnnotations(), desiredSequenceRns, desiredTopRulerRns, desiredBottomRulerRns);
+    }
+
     /**
      * <p>Set the collection of desired {@link AnnotationName}s to be viewed on the page</p>
      *
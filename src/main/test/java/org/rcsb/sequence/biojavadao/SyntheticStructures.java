@@ -0,0 +1,94 @@
+package org.rcsb.sequence.biojavadao;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.biojava.nbio.structure.AminoAcidImpl;
+import org.biojava.nbio.structure.AtomImpl;
+import org.biojava.nbio.structure.Chain;
+import org.biojava.nbio.structure.ChainImpl;
+import org.biojava.nbio.structure.Element;
+import org.biojava.nbio.structure.Group;
+import org.biojava.nbio.structure.ResidueNumber;
+import org.biojava.nbio.structure.Structure;
+import org.biojava.nbio.structure.StructureImpl;
+
+/**
+ * Builds BioJava structures of helical poly-peptide chains of any size in memory, for the tests and benchmarks that
+ * should not depend on PDB files.
+ */
+public class SyntheticStructures {
+
+    private static final String[] AMINO_ACIDS = {"ALA", "ARG", "ASN", "ASP", "GLN", "GLU", "GLY", "HIS", "ILE",
+            "LEU", "LYS", "MET", "PHE", "PRO", "SER", "THR", "TRP", "TYR", "VAL"};
+    private static final char[] ONE_LETTER = {'A', 'R', 'N', 'D', 'Q', 'E', 'G', 'H', 'I',
+            'L', 'K', 'M', 'F', 'P', 'S', 'T', 'W', 'Y', 'V'};
+
+    // backbone atoms of an ideal alpha helix: name, element, radius, phase (degrees), height
+    private static final String[] ATOM_NAMES = {"N", "CA", "C", "O"};
+    private static final Element[] ELEMENTS = {Element.N, Element.C, Element.C, Element.O};
+    private static final double[][] HELIX = {{1.55, 0, -0.9}, {2.3, 28, 0}, {1.6, 60, 0.95}, {1.8, 80, 2.1}};
+
+    private SyntheticStructures() {
+    }
+
+    /**
+     * A chain whose SEQRES and ATOM groups are the same objects, as after SEQRES alignment,
+     * except for a few residues without coordinates every hundred residues.
+     *
+     * @param chainId
+     * @param length the number of residues
+     * @param seed
+     * @return
+     */
+    public static Chain createChain(String chainId, int length, long seed) {
+        Random random = new Random(seed);
+        ChainImpl chain = new ChainImpl();
+        chain.setChainID(chainId);
+
+        List<Group> seqRes = new ArrayList<Group>(length);
+        for (int i = 0; i < length; i++) {
+            int aa = random.nextInt(AMINO_ACIDS.length);
+            AminoAcidImpl g = new AminoAcidImpl();
+            g.setPDBName(AMINO_ACIDS[aa]);
+            g.setAminoType(ONE_LETTER[aa]);
+            g.setResidueNumber(new ResidueNumber(chainId, i + 1, null));
+            seqRes.add(g);
+
+            if (i % 100 >= 95)
+                continue;
+
+            double angle = Math.toRadians(100.0 * i);
+            for (int a = 0; a < ATOM_NAMES.length; a++) {
+                AtomImpl atom = new AtomImpl();
+                atom.setName(ATOM_NAMES[a]);
+                atom.setElement(ELEMENTS[a]);
+                double phase = angle + Math.toRadians(HELIX[a][1]);
+                atom.setX(HELIX[a][0] * Math.cos(phase));
+                atom.setY(HELIX[a][0] * Math.sin(phase));
+                atom.setZ(1.5 * i + HELIX[a][2]);
+                g.addAtom(atom);
+            }
+            chain.addGroup(g);
+        }
+        chain.setSeqResGroups(seqRes);
+        return chain;
+    }
+
+    /**
+     * @param structureId
+     * @param chains      the number of chains, at most 62
+     * @param length      the number of residues of each chain
+     * @return
+     */
+    public static Structure createStructure(String structureId, int chains, int length) {
+        String ids = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789";
+        StructureImpl s = new StructureImpl();
+        s.setPDBCode(structureId);
+        for (int c = 0; c < chains; c++) {
+            s.addChain(createChain(String.valueOf(ids.charAt(c)), length, c));
+        }
+        return s;
+    }
+}
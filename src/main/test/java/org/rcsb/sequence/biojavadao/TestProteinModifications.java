@@ -0,0 +1,193 @@
+package org.rcsb.sequence.biojavadao;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import org.biojava.nbio.protmod.ProteinModificationRegistry;
+import org.biojava.nbio.protmod.structure.ModifiedCompound;
+import org.biojava.nbio.protmod.structure.StructureGroup;
+import org.biojava.nbio.structure.AminoAcidImpl;
+import org.biojava.nbio.structure.Atom;
+import org.biojava.nbio.structure.AtomImpl;
+import org.biojava.nbio.structure.Chain;
+import org.biojava.nbio.structure.Element;
+import org.biojava.nbio.structure.Group;
+import org.biojava.nbio.structure.Structure;
+import org.biojava.nbio.structure.StructureImpl;
+import org.biojava.nbio.structure.io.mmcif.ChemCompGroupFactory;
+import org.biojava.nbio.structure.io.mmcif.ReducedChemCompProvider;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * The protein modifications that {@link BioJavaSequenceCollection} shares between the chains, compared with
+ * identifying the whole structure at once and with identifying each chain on its own, as the chains did before.
+ */
+public class TestProteinModifications {
+
+    private static final double SS_BOND_LENGTH = 2.05;
+
+    @BeforeClass
+    public static void setUpChemComps() {
+        ChemCompGroupFactory.setChemCompProvider(new ReducedChemCompProvider());
+    }
+
+    @Test
+    public void testChainClusters() {
+        List<String> clusters = new ArrayList<String>();
+        for (List<Chain> cluster : BioJavaSequenceCollection.getChainClusters(createCrossLinkedStructure())) {
+            StringBuilder ids = new StringBuilder();
+            for (Chain c : cluster) {
+                ids.append(c.getChainID());
+            }
+            clusters.add(ids.toString());
+        }
+        assertEquals("[ABC, D, E]", clusters.toString());
+    }
+
+    @Test
+    public void testSameAsWholeStructure() throws Exception {
+        Structure s = createCrossLinkedStructure();
+        BioJavaSequenceCollection collection = new BioJavaSequenceCollection();
+        collection.setStructure(s);
+
+        Map<String, Set<String>> whole = describeByChain(BioJavaSequenceCollection.identify(s.getChains(),
+                ProteinModificationRegistry.allModifications()));
+        for (Chain c : s.getChains()) {
+            Set<String> expected = whole.get(c.getChainID());
+            if (expected == null)
+                expected = Collections.emptySet();
+            assertEquals(c.getChainID(), expected, describe(collection.getModifiedCompounds(c.getChainID())));
+        }
+    }
+
+    @Test
+    public void testSameAsSingleChain() throws Exception {
+        Structure s = createCrossLinkedStructure();
+        BioJavaSequenceCollection collection = new BioJavaSequenceCollection();
+        collection.setStructure(s);
+
+        for (Chain c : s.getChains()) {
+            Set<String> withinChain = new TreeSet<String>();
+            for (ModifiedCompound mc : collection.getModifiedCompounds(c.getChainID())) {
+                if (!mc.crossChains())
+                    withinChain.add(describe(mc));
+            }
+            Set<ModifiedCompound> alone = BioJavaSequenceCollection.identify(Collections.singletonList(c),
+                    ProteinModificationRegistry.allModifications());
+            assertEquals(c.getChainID(), describe(alone), withinChain);
+        }
+    }
+
+    @Test
+    public void testDisulfides() throws Exception {
+        BioJavaSequenceCollection collection = new BioJavaSequenceCollection();
+        collection.setStructure(createCrossLinkedStructure());
+
+        Set<String> a = describe(collection.getModifiedCompounds("A"));
+        assertTrue(a.toString(), a.contains("0018 [A10 CYS, A14 CYS]"));
+        assertTrue(a.toString(), a.contains("0018 [A20 CYS, B20 CYS]"));
+        assertTrue(a.toString(), a.contains("0018 [A40 CYS, B40 CYS]"));
+        assertTrue(describe(collection.getModifiedCompounds("C")).contains("0018 [B40 CYS, C40 CYS]"));
+        assertEquals("[0018 [D5 CYS, D9 CYS]]", describe(collection.getModifiedCompounds("D")).toString());
+        assertEquals(0, collection.getModifiedCompounds("E").size());
+    }
+
+    private static Map<String, Set<String>> describeByChain(Set<ModifiedCompound> modComps) {
+        Map<String, Set<String>> byChain = new TreeMap<String, Set<String>>();
+        for (ModifiedCompound mc : modComps) {
+            for (StructureGroup g : mc.getGroups(true)) {
+                Set<String> descriptions = byChain.get(g.getChainId());
+                if (descriptions == null) {
+                    descriptions = new TreeSet<String>();
+                    byChain.put(g.getChainId(), descriptions);
+                }
+                descriptions.add(describe(mc));
+            }
+        }
+        return byChain;
+    }
+
+    private static Set<String> describe(Set<ModifiedCompound> modComps) {
+        Set<String> result = new TreeSet<String>();
+        for (ModifiedCompound mc : modComps) {
+            result.add(describe(mc));
+        }
+        return result;
+    }
+
+    /**
+     * @return the modification and the groups of a compound, in an order that does not depend on the identification
+     */
+    private static String describe(ModifiedCompound mc) {
+        Set<String> groups = new TreeSet<String>();
+        for (StructureGroup g : mc.getGroups(true)) {
+            groups.add(g.getChainId() + g.getResidueNumber() + " " + g.getPDBName());
+        }
+        return mc.getModification().getId() + " " + groups;
+    }
+
+    /**
+     * Three chains side by side and two chains far from them, with a disulfide bond within chain A, one between
+     * chains A and B, a cysteine of chain B bonded to chains A and C, and a disulfide bond within chain D.
+     */
+    static Structure createCrossLinkedStructure() {
+        StructureImpl s = new StructureImpl();
+        s.setPDBCode("SSYN");
+        String[] ids = {"A", "B", "C", "D", "E"};
+        double[] offsets = {0, 8, 16, 100, 200};
+        for (int c = 0; c < ids.length; c++) {
+            Chain chain = SyntheticStructures.createChain(ids[c], 60, c);
+            for (Group g : chain.getAtomGroups()) {
+                for (Atom a : g.getAtoms()) {
+                    a.setX(a.getX() + offsets[c]);
+                }
+            }
+            s.addChain(chain);
+        }
+
+        Chain a = s.getChains().get(0), b = s.getChains().get(1), c = s.getChains().get(2), d = s.getChains().get(3);
+        crossLink(a.getAtomGroup(9), a.getAtomGroup(13));
+        crossLink(a.getAtomGroup(19), b.getAtomGroup(19));
+
+        // the sulfur of B40 between those of A40 and C40
+        double[] middle = middle(a.getAtomGroup(39), c.getAtomGroup(39));
+        addCysteineSulfur(b.getAtomGroup(39), middle);
+        addCysteineSulfur(a.getAtomGroup(39), new double[]{middle[0] - SS_BOND_LENGTH, middle[1], middle[2]});
+        addCysteineSulfur(c.getAtomGroup(39), new double[]{middle[0] + SS_BOND_LENGTH, middle[1], middle[2]});
+
+        crossLink(d.getAtomGroup(4), d.getAtomGroup(8));
+        return s;
+    }
+
+    private static void crossLink(Group g1, Group g2) {
+        double[] middle = middle(g1, g2);
+        addCysteineSulfur(g1, new double[]{middle[0] - SS_BOND_LENGTH / 2, middle[1], middle[2]});
+        addCysteineSulfur(g2, new double[]{middle[0] + SS_BOND_LENGTH / 2, middle[1], middle[2]});
+    }
+
+    private static double[] middle(Group g1, Group g2) {
+        Atom a1 = g1.getAtom("CA"), a2 = g2.getAtom("CA");
+        return new double[]{(a1.getX() + a2.getX()) / 2, (a1.getY() + a2.getY()) / 2, (a1.getZ() + a2.getZ()) / 2};
+    }
+
+    private static void addCysteineSulfur(Group g, double[] xyz) {
+        g.setPDBName("CYS");
+        ((AminoAcidImpl) g).setAminoType('C');
+        AtomImpl sg = new AtomImpl();
+        sg.setName("SG");
+        sg.setElement(Element.S);
+        sg.setX(xyz[0]);
+        sg.setY(xyz[1]);
+        sg.setZ(xyz[2]);
+        g.addAtom(sg);
+    }
+}
@@ -0,0 +1,191 @@
+package org.rcsb.sequence.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.biojava.nbio.structure.Group;
+import org.biojava.nbio.structure.io.mmcif.ChemCompGroupFactory;
+import org.biojava.nbio.structure.io.mmcif.ReducedChemCompProvider;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.rcsb.sequence.biojavadao.BioJavaChainProxy;
+import org.rcsb.sequence.biojavadao.BioJavaResidueInfoFactory;
+import org.rcsb.sequence.biojavadao.SyntheticStructures;
+import org.rcsb.sequence.model.ResidueId;
+import org.rcsb.sequence.model.ResidueNumberScheme;
+import org.rcsb.sequence.model.Sequence;
+
+/**
+ * {@link AbstractSequence#getNonContiguousResidueIds(ResidueNumberScheme, ResidueNumberScheme)} through the gap index
+ * of the chain and through the ordinals of its residues, compared with the walk over the residues that they replace.
+ */
+public class TestGapIndex {
+
+    private static final ResidueNumberScheme[] SCHEMES = {ResidueNumberScheme.SEQRES, ResidueNumberScheme.ATOM};
+
+    @BeforeClass
+    public static void setUpResidues() {
+        ChemCompGroupFactory.setChemCompProvider(new ReducedChemCompProvider());
+        ResidueProvider.setResidueInfoFactory(new BioJavaResidueInfoFactory());
+    }
+
+    @Test
+    public void testGapsInTheMiddle() {
+        // every 100 residues, the last 5 are not observed
+        assertSameAsWalk(createChain(0, 0, new int[0]));
+    }
+
+    @Test
+    public void testGapsAtStartAndEnd() {
+        assertSameAsWalk(createChain(40, 30, new int[0]));
+        assertSameAsWalk(createChain(1, 1, new int[0]));
+    }
+
+    @Test
+    public void testConsecutiveGaps() {
+        // gaps of one residue between single observed residues, and a gap right before the unobserved residues 95 to 99
+        assertSameAsWalk(createChain(3, 2, new int[]{150, 152, 154, 156, 157, 159, 193}));
+    }
+
+    private static void assertSameAsWalk(AbstractSequence chain) {
+        chain.getResidueIds(ResidueNumberScheme.ATOM);
+        assertNotNull(chain.getResidueMappingTable());
+
+        List<Sequence> sequences = new ArrayList<Sequence>();
+        sequences.add(chain);
+        for (ResidueNumberScheme rns : SCHEMES) {
+            for (int length : new int[]{7, 37, 60}) {
+                sequences.addAll(new SegmentedSequenceImpl(chain, rns, length).getSequenceSegments());
+            }
+        }
+
+        int indexed = 0, gaps = 0;
+        List<String> expected = new ArrayList<String>();
+        for (Sequence s : sequences) {
+            AbstractSequence sequence = (AbstractSequence) s;
+            for (ResidueNumberScheme seqRns : SCHEMES) {
+                for (ResidueNumberScheme gapsRns : SCHEMES) {
+                    String walk = describe(sequence, seqRns, gapsRns, 0);
+                    expected.add(walk);
+                    String context = sequence + " " + seqRns + " " + gapsRns;
+                    assertEquals(context, walk, describe(sequence, seqRns, gapsRns, 1));
+                    assertEquals(context, walk, describe(sequence, seqRns, gapsRns, 2));
+
+                    ResidueId first = sequence.getFirstResidue(seqRns);
+                    if (first != null && sequence.getNonContiguousResidueIdsFromGapIndex(first, seqRns, gapsRns) != null)
+                        indexed++;
+                    if (walk.length() > 2)
+                        gaps++;
+                }
+            }
+        }
+        assertTrue(indexed > 0);
+        assertTrue(gaps > 0);
+
+        // without the table the residues are walked as before
+        chain.releaseResidueMappingTable();
+        int i = 0;
+        for (Sequence s : sequences) {
+            for (ResidueNumberScheme seqRns : SCHEMES) {
+                for (ResidueNumberScheme gapsRns : SCHEMES) {
+                    assertEquals(expected.get(i++), describe((AbstractSequence) s, seqRns, gapsRns, 1));
+                }
+            }
+        }
+    }
+
+    /**
+     * @param path 0 for the walk over the residues, 1 for getNonContiguousResidueIds, 2 for the ordinals of the residues
+     * @return the gaps, or the exception that was thrown
+     */
+    private static String describe(AbstractSequence sequence, ResidueNumberScheme seqRns, ResidueNumberScheme gapsRns, int path) {
+        Map<ResidueId, Integer> gaps;
+        try {
+            if (path == 0) {
+                gaps = walkNonContiguousResidueIds(sequence, seqRns, gapsRns);
+            } else if (path == 1) {
+                gaps = sequence.getNonContiguousResidueIds(seqRns, gapsRns);
+            } else {
+                ResidueId first = sequence.getFirstResidue(seqRns);
+                gaps = first == null ? new LinkedHashMap<ResidueId, Integer>() : sequence.scanNonContiguousResidueIds(first, seqRns, gapsRns);
+            }
+        } catch (RuntimeException e) {
+            // a segment without residues in gapsRns throws a NullPointerException, as it did before
+            return e.getClass().getName();
+        }
+        StringBuilder result = new StringBuilder("{");
+        for (Map.Entry<ResidueId, Integer> e : gaps.entrySet()) {
+            ResidueId rid = e.getKey();
+            String key = rid.isBeginningOfChainMarker() ? "BEGINNING_OF_CHAIN" : rid.getResidueNumberScheme() + ":" + rid.getSeqIdWithInsertionCode();
+            result.append(key).append('=').append(e.getValue()).append(", ");
+        }
+        return result.append('}').toString();
+    }
+
+    /**
+     * getNonContiguousResidueIds as it was before the gap index, comparing each residue with the previous one and
+     * walking over the gaps.
+     */
+    private static Map<ResidueId, Integer> walkNonContiguousResidueIds(Sequence sequence, ResidueNumberScheme seqRns, ResidueNumberScheme gapsRns) {
+        Map<ResidueId, Integer> result = new LinkedHashMap<ResidueId, Integer>();
+        ResidueId first = sequence.getFirstResidue(seqRns);
+        if (first == null)
+            return result;
+
+        ResidueId prevRidSeqRns = first.getPrevious(), prevRidOtherRns = sequence.getFirstResidue(gapsRns).getPrevious();
+        for (ResidueId ridSeqRns : sequence.getResidueIds(seqRns)) {
+            ResidueId ridOtherRns = ridSeqRns.getEquivalentResidueId(gapsRns);
+            if (ridOtherRns == null)
+                continue;
+
+            int comparison = ridOtherRns.getPrevious().compareTo(prevRidOtherRns);
+            if (comparison > 0) {
+                int gapSize = 0;
+                if (!prevRidOtherRns.isBeginningOfChainMarker()) {
+                    while ((prevRidOtherRns = prevRidOtherRns.getNext()) != ridOtherRns) {
+                        ++gapSize;
+                    }
+                } else {
+                    ResidueId aRid = ridOtherRns;
+                    while ((aRid = aRid.getPrevious()) != prevRidOtherRns) {
+                        ++gapSize;
+                    }
+                }
+                result.put(prevRidSeqRns, gapSize);
+            } else if (comparison < 0) {
+                throw new RuntimeException("AbstractSequence: Residues may be out of order!");
+            }
+
+            prevRidSeqRns = ridSeqRns;
+            prevRidOtherRns = ridOtherRns;
+        }
+        return result;
+    }
+
+    /**
+     * @param unobservedStart the number of residues without coordinates at the start of the chain
+     * @param unobservedEnd   the number of residues without coordinates at the end of the chain
+     * @param unobserved      the positions of other residues without coordinates
+     */
+    private static BioJavaChainProxy createChain(int unobservedStart, int unobservedEnd, int[] unobserved) {
+        org.biojava.nbio.structure.Chain c = SyntheticStructures.createStructure("1GAP", 1, 300).getChains().get(0);
+        List<Group> seqRes = c.getSeqResGroups();
+        List<Group> remove = new ArrayList<Group>();
+        remove.addAll(seqRes.subList(0, unobservedStart));
+        remove.addAll(seqRes.subList(seqRes.size() - unobservedEnd, seqRes.size()));
+        for (int position : unobserved) {
+            remove.add(seqRes.get(position));
+        }
+        List<Group> atoms = c.getAtomGroups();
+        for (Group g : remove) {
+            atoms.remove(g);
+        }
+        return new BioJavaChainProxy(c);
+    }
+}
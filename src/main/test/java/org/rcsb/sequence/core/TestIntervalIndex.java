@@ -0,0 +1,116 @@
+package org.rcsb.sequence.core;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * The intervals that {@link IntervalIndex} finds for a range, compared with a scan over all intervals.
+ */
+public class TestIntervalIndex {
+
+    @Test
+    public void testNoIntervals() {
+        IntervalIndex index = new IntervalIndex(new int[0], new int[0]);
+        assertEquals(0, index.size());
+        assertEquals(0, index.overlapping(Integer.MIN_VALUE, Integer.MAX_VALUE).length);
+    }
+
+    @Test
+    public void testOneInterval() {
+        assertSameAsScan(new int[]{5}, new int[]{5}, 10);
+        assertSameAsScan(new int[]{2}, new int[]{7}, 10);
+        assertSameAsScan(new int[]{Integer.MAX_VALUE}, new int[]{-1}, 10);
+    }
+
+    @Test
+    public void testEmptyIntervals() {
+        // annotations without residues in the scheme of their group cover no position
+        int[] starts = {3, Integer.MAX_VALUE, 0, Integer.MAX_VALUE, Integer.MAX_VALUE, 8};
+        int[] ends = {4, -1, 9, -1, -1, 8};
+        assertSameAsScan(starts, ends, 12);
+
+        int size = 37;
+        int[] emptyStarts = new int[size], emptyEnds = new int[size];
+        Arrays.fill(emptyStarts, Integer.MAX_VALUE);
+        Arrays.fill(emptyEnds, -1);
+        assertSameAsScan(emptyStarts, emptyEnds, 12);
+    }
+
+    @Test
+    public void testIncompleteLastSubtree() {
+        // the last intervals are in a subtree whose right part lies beyond the array, for most of these sizes
+        for (int size = 1; size <= 300; size++) {
+            int[] starts = new int[size], ends = new int[size];
+            for (int i = 0; i < size; i++) {
+                starts[i] = i;
+                ends[i] = i;
+            }
+            assertSameAsScan(starts, ends, size);
+        }
+    }
+
+    @Test
+    public void testRandomIntervals() {
+        Random random = new Random(23);
+        for (int round = 0; round < 200; round++) {
+            // sizes around the powers of two, where the tree has an incomplete last subtree
+            int size = round < 70 ? round : random.nextInt(1000);
+            int positions = 1 + random.nextInt(round % 3 == 0 ? 20 : 3000);
+            int[] starts = new int[size], ends = new int[size];
+            for (int i = 0; i < size; i++) {
+                // empty intervals sort last, so half of the rounds have none
+                if (round % 2 == 0 && random.nextInt(10) == 0) {
+                    starts[i] = Integer.MAX_VALUE;
+                    ends[i] = -1;
+                } else {
+                    starts[i] = random.nextInt(positions);
+                    // mostly short spans, like sites and secondary structure, and a few long ones
+                    int length = random.nextInt(20) == 0 ? random.nextInt(positions) : random.nextInt(8);
+                    ends[i] = Math.min(starts[i] + length, positions - 1);
+                }
+            }
+            assertSameAsScan(starts, ends, positions);
+        }
+    }
+
+    /**
+     * Compares every single position and a sample of ranges, also ranges that begin or end outside the positions.
+     */
+    private static void assertSameAsScan(int[] starts, int[] ends, int positions) {
+        IntervalIndex index = new IntervalIndex(starts, ends);
+        assertEquals(starts.length, index.size());
+        for (int p = -1; p <= positions; p++) {
+            assertRange(index, starts, ends, p, p);
+        }
+        Random random = new Random(positions);
+        for (int i = 0; i < 200; i++) {
+            int from = random.nextInt(positions + 2) - 1;
+            int to = from + random.nextInt(random.nextBoolean() ? 5 : positions + 1);
+            assertRange(index, starts, ends, from, to);
+            assertRange(index, starts, ends, to, from);
+        }
+        assertRange(index, starts, ends, Integer.MIN_VALUE, Integer.MAX_VALUE);
+        assertRange(index, starts, ends, Integer.MIN_VALUE, -1);
+        assertRange(index, starts, ends, Integer.MAX_VALUE, Integer.MAX_VALUE);
+    }
+
+    private static void assertRange(IntervalIndex index, int[] starts, int[] ends, int from, int to) {
+        String range = starts.length + " intervals, range " + from + " to " + to;
+        assertArrayEquals(range, scan(starts, ends, from, to), index.overlapping(from, to));
+    }
+
+    private static int[] scan(int[] starts, int[] ends, int from, int to) {
+        int[] result = new int[starts.length];
+        int count = 0;
+        for (int i = 0; i < starts.length; i++) {
+            if (starts[i] <= to && ends[i] >= from && from <= to)
+                result[count++] = i;
+        }
+        return Arrays.copyOf(result, count);
+    }
+}
@@ -0,0 +1,201 @@
+package org.rcsb.sequence.core;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.biojava.nbio.structure.Group;
+import org.biojava.nbio.structure.ResidueNumber;
+import org.biojava.nbio.structure.io.mmcif.ChemCompGroupFactory;
+import org.biojava.nbio.structure.io.mmcif.ReducedChemCompProvider;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.rcsb.sequence.biojavadao.BioJavaChainProxy;
+import org.rcsb.sequence.biojavadao.BioJavaResidueInfoFactory;
+import org.rcsb.sequence.biojavadao.SyntheticStructures;
+import org.rcsb.sequence.model.ResidueId;
+import org.rcsb.sequence.model.ResidueNumberScheme;
+import org.rcsb.sequence.model.ResidueUtils;
+
+/**
+ * {@link ResidueIdImpl#compareTo(ResidueId)} and {@link ResidueUtils#areResiduesComparable(ResidueId, ResidueId)}
+ * compared with the comparisons by sequence ids and equivalent SEQRES residues that they replace, for every pair of
+ * residues of a chain.
+ */
+public class TestResidueComparison {
+
+    private static final ResidueNumberScheme[] SCHEMES = {
+            ResidueNumberScheme.SEQRES, ResidueNumberScheme.ATOM, ResidueNumberScheme._ARRAY_IDX};
+
+    @BeforeClass
+    public static void setUpResidues() {
+        ChemCompGroupFactory.setChemCompProvider(new ReducedChemCompProvider());
+        ResidueProvider.setResidueInfoFactory(new BioJavaResidueInfoFactory());
+    }
+
+    @Test
+    public void testSequentialNumbering() {
+        assertSameAsBefore(new BioJavaChainProxy(createChain(false, false)), 0);
+    }
+
+    @Test
+    public void testInsertionCodes() {
+        assertSameAsBefore(new BioJavaChainProxy(createChain(true, false)), 0);
+    }
+
+    @Test
+    public void testUnorderedNumbering() {
+        assertSameAsBefore(new BioJavaChainProxy(createChain(true, true)), 0);
+    }
+
+    @Test
+    public void testAtomResiduesWithoutSeqres() {
+        assertSameAsBefore(new ChainWithAtomOnlyResidues(createChain(false, false)), 3);
+        assertSameAsBefore(new ChainWithAtomOnlyResidues(createChain(true, false)), 3);
+        assertSameAsBefore(new ChainWithAtomOnlyResidues(createChain(true, true)), 3);
+    }
+
+    private static void assertSameAsBefore(AbstractSequence chain, int atomOnly) {
+        List<ResidueId> residues = new ArrayList<ResidueId>();
+        residues.add(ResidueIdImpl.BEGINNING_OF_CHAIN);
+        for (ResidueNumberScheme rns : SCHEMES) {
+            residues.addAll(chain.getResidueIds(rns));
+        }
+        residues.add(ResidueIdImpl.END_OF_CHAIN);
+
+        int withoutSeqres = 0;
+        for (ResidueId rid : chain.getResidueIds(ResidueNumberScheme.ATOM)) {
+            if (rid.getEquivalentResidueId(ResidueNumberScheme.SEQRES) == null)
+                withoutSeqres++;
+        }
+        assertEquals(atomOnly, withoutSeqres);
+
+        for (ResidueId a : residues) {
+            for (ResidueId b : residues) {
+                String pair = a + " " + b;
+                assertEquals(pair, oldCompareTo(a, b), compareTo(a, b));
+                assertEquals(pair, oldAreResiduesComparable(a, b), ResidueUtils.areResiduesComparable(a, b));
+            }
+        }
+    }
+
+    /**
+     * @return the sign of the comparison, or 2 if the residues can not be compared
+     */
+    private static int compareTo(ResidueId a, ResidueId b) {
+        try {
+            return Integer.signum(a.compareTo(b));
+        } catch (RuntimeException e) {
+            return 2;
+        }
+    }
+
+    /**
+     * ResidueIdImpl.compareTo before the residues had canonical positions.
+     */
+    private static int oldCompareTo(ResidueId a, ResidueId b) {
+        if (a == b) return 0;
+        if (a == ResidueIdImpl.BEGINNING_OF_CHAIN || b == ResidueIdImpl.END_OF_CHAIN) return -1;
+        if (a == ResidueIdImpl.END_OF_CHAIN || b == ResidueIdImpl.BEGINNING_OF_CHAIN) return 1;
+
+        if (a.getResidueNumberScheme() == ResidueNumberScheme.ATOM || b.getResidueNumberScheme() == ResidueNumberScheme.ATOM) {
+            ResidueId cifA = a.getEquivalentResidueId(ResidueNumberScheme.SEQRES);
+            ResidueId cifB = b.getEquivalentResidueId(ResidueNumberScheme.SEQRES);
+            if (cifA != null && cifB != null)
+                return oldCompareTo(cifA, cifB);
+        }
+
+        int comparison = a.getChain().compareTo(b.getChain());
+        if (comparison != 0) return Integer.signum(comparison);
+        comparison = a.getResidueNumberScheme().compareTo(b.getResidueNumberScheme());
+        if (comparison != 0) return Integer.signum(comparison);
+        comparison = a.getSeqId().compareTo(b.getSeqId());
+        if (comparison != 0) return Integer.signum(comparison);
+
+        Character codeA = a.getInsertionCode(), codeB = b.getInsertionCode();
+        if (codeA == null && codeB != null) return -1;
+        if (codeA != null && codeB == null) return 1;
+        if (codeA != null) {
+            comparison = codeA.compareTo(codeB);
+            if (comparison != 0) return Integer.signum(comparison);
+        }
+        return 2;
+    }
+
+    /**
+     * ResidueUtils.areResiduesComparable before residues of one chain and scheme were compared by identity.
+     */
+    private static boolean oldAreResiduesComparable(ResidueId one, ResidueId other) {
+        if (one == other) return true;
+        if (one.isBeginningOfChainMarker() || one.isEndOfChainMarker() || other.isBeginningOfChainMarker() || other.isEndOfChainMarker())
+            return true;
+        if (one.equals(other))
+            return true;
+        if (one.getResidueNumberScheme() != other.getResidueNumberScheme())
+            return false;
+        return one.getChain().getChainId().equals(other.getChain().getChainId());
+    }
+
+    /**
+     * @param insertionCodes   number residues 51 to 60 as 49A to 49J
+     * @param unorderedNumbers number residues 101 to 110 downwards from 900
+     */
+    private static org.biojava.nbio.structure.Chain createChain(boolean insertionCodes, boolean unorderedNumbers) {
+        org.biojava.nbio.structure.Chain c = SyntheticStructures.createStructure("1CMP", 1, 300).getChains().get(0);
+        List<Group> groups = c.getAtomGroups();
+        if (insertionCodes) {
+            for (int i = 50; i < 60; i++) {
+                groups.get(i).setResidueNumber(new ResidueNumber("A", 49, (char) ('A' + i - 50)));
+            }
+        }
+        if (unorderedNumbers) {
+            for (int i = 100; i < 110; i++) {
+                groups.get(i).setResidueNumber(new ResidueNumber("A", 1000 - i, null));
+            }
+        }
+        return c;
+    }
+
+    /**
+     * A chain with ATOM residues that have no SEQRES equivalent, one between residues 20 and 21 and two after the last
+     * residue, like residues that could not be aligned with the SEQRES records.
+     */
+    private static class ChainWithAtomOnlyResidues extends BioJavaChainProxy {
+
+        private static final long serialVersionUID = 1L;
+
+        private boolean added;
+
+        ChainWithAtomOnlyResidues(org.biojava.nbio.structure.Chain bj) {
+            super(bj);
+        }
+
+        @Override
+        protected void ensureResiduesInstantiated() {
+            super.ensureResiduesInstantiated();
+            if (added)
+                return;
+            added = true;
+
+            // the residues keep their own equivalents until they are linked again
+            ((AbstractSequence) this).releaseResidueMappingTable();
+            ResidueIndex atoms = getResidueIndex(ResidueNumberScheme.ATOM);
+            List<ResidueId> residues = new ArrayList<ResidueId>(atoms.values());
+            ResidueId last = residues.get(residues.size() - 1);
+            residues.add(20, atomOnly(20, 'Z'));
+            residues.add(atomOnly(last.getSeqId() + 1, null));
+            residues.add(atomOnly(last.getSeqId() + 2, null));
+
+            atoms.clear();
+            for (ResidueId rid : residues) {
+                atoms.put(rid);
+            }
+            linkResidues();
+        }
+
+        private ResidueId atomOnly(int seqId, Character insertionCode) {
+            return new ResidueIdImpl(ResidueNumberScheme.ATOM, this, seqId, insertionCode, ResidueProvider.getResidue("HOH"), null);
+        }
+    }
+}
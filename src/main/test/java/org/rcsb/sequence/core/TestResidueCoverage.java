@@ -0,0 +1,181 @@
+package org.rcsb.sequence.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.commons.collections.Bag;
+import org.apache.commons.collections.CollectionUtils;
+import org.apache.commons.collections.bag.HashBag;
+import org.biojava.nbio.structure.Structure;
+import org.biojava.nbio.structure.io.mmcif.ChemCompGroupFactory;
+import org.biojava.nbio.structure.io.mmcif.ReducedChemCompProvider;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.rcsb.sequence.biojavadao.BioJavaChainProxy;
+import org.rcsb.sequence.biojavadao.BioJavaResidueInfoFactory;
+import org.rcsb.sequence.biojavadao.SyntheticStructures;
+import org.rcsb.sequence.model.ResidueId;
+import org.rcsb.sequence.model.ResidueNumberScheme;
+import org.rcsb.sequence.model.ResidueUtils;
+
+/**
+ * The counts of {@link ResidueCoverage} compared with the bag of residue ids that it replaces.
+ */
+public class TestResidueCoverage {
+
+    private static final ResidueNumberScheme[] SCHEMES = {ResidueNumberScheme.SEQRES, ResidueNumberScheme.ATOM};
+
+    private static BioJavaChainProxy chainA;
+    private static BioJavaChainProxy chainB;
+    // another chain for the same chain of the structure, whose residue ids are equal to those of chain A
+    private static BioJavaChainProxy chainACopy;
+    // residue ids of chain A without a position in it, the second half equal to residues of chain A
+    private static List<ResidueId> unpositioned;
+
+    @BeforeClass
+    public static void setUpChains() {
+        ChemCompGroupFactory.setChemCompProvider(new ReducedChemCompProvider());
+        ResidueProvider.setResidueInfoFactory(new BioJavaResidueInfoFactory());
+        Structure s = SyntheticStructures.createStructure("1COV", 2, 300);
+        chainA = new BioJavaChainProxy(s.getChains().get(0));
+        chainB = new BioJavaChainProxy(s.getChains().get(1));
+        chainACopy = new BioJavaChainProxy(s.getChains().get(0));
+        for (ResidueNumberScheme rns : SCHEMES) {
+            chainA.getResidueIds(rns);
+            chainB.getResidueIds(rns);
+            chainACopy.getResidueIds(rns);
+        }
+
+        unpositioned = new ArrayList<ResidueId>();
+        for (int i = 0; i < 10; i++) {
+            unpositioned.add(new ResidueIdImpl(ResidueNumberScheme.ATOM, chainA, 2000 + i, null, ResidueProvider.getResidue("HOH"), null));
+        }
+        for (int i = 0; i < 10; i++) {
+            ResidueId rid = chainA.getResidueIndex(SCHEMES[i % 2]).get(20 + i);
+            unpositioned.add(new ResidueIdImpl(rid.getResidueNumberScheme(), chainA, rid.getSeqId(), rid.getInsertionCode(), rid.getResidueInfo(), null));
+        }
+        assertEquals(-1, ResidueIdImpl.ordinalOf(unpositioned.get(0)));
+        assertEquals(chainA.getResidueIndex(ResidueNumberScheme.SEQRES).get(20), unpositioned.get(10));
+    }
+
+    @Test
+    public void testRangesOfOneChain() {
+        // only the counts by position, and coversAny without the bag
+        assertSameAsBag(new Random(25), false, false);
+    }
+
+    @Test
+    public void testRangesOfTwoChains() {
+        assertSameAsBag(new Random(26), true, false);
+    }
+
+    @Test
+    public void testResiduesWithoutPosition() {
+        assertSameAsBag(new Random(27), false, true);
+        assertSameAsBag(new Random(28), true, true);
+    }
+
+    @Test
+    public void testEqualResiduesOfAnotherChain() {
+        ResidueCoverage coverage = new ResidueCoverage();
+        Bag expected = new HashBag();
+        Random random = new Random(29);
+        for (int round = 0; round < 40; round++) {
+            ResidueId[] range = randomRange(random, round % 2 == 0 ? chainA : chainACopy);
+            coverage.add(range[0], range[1]);
+            expected.addAll(ResidueUtils.getResidueIdsBetween(range[0], range[1]));
+            assertSameCounts(random, coverage, expected);
+        }
+    }
+
+    @Test
+    public void testClear() {
+        ResidueCoverage coverage = new ResidueCoverage();
+        List<ResidueId> residues = chainB.getResidueIndex(ResidueNumberScheme.SEQRES).subList(10, 20);
+        coverage.add(residues.get(0), residues.get(9));
+        coverage.addAll(unpositioned);
+        coverage.clear();
+
+        assertEquals(0, coverage.getMaxCount());
+        assertTrue(coverage.toBag().isEmpty());
+        assertEquals(0, coverage.getCount(residues.get(0)));
+        assertEquals(0, coverage.getCount(unpositioned.get(0)));
+
+        // the chain of the first residue counted after clearing is the one counted by position
+        Bag expected = new HashBag();
+        List<ResidueId> other = chainA.getResidueIndex(ResidueNumberScheme.ATOM).subList(5, 8);
+        coverage.add(other.get(0), other.get(2));
+        expected.addAll(other);
+        assertEquals(expected, coverage.toBag());
+        assertEquals(1, coverage.getCount(other.get(1)));
+        assertEquals(0, coverage.getCount(residues.get(0)));
+    }
+
+    /**
+     * Adds random ranges of residues of chain A, and optionally of chain B and unpositioned residues, comparing every
+     * count after each one.
+     */
+    private static void assertSameAsBag(Random random, boolean twoChains, boolean withUnpositioned) {
+        ResidueCoverage coverage = new ResidueCoverage();
+        Bag expected = new HashBag();
+        for (int round = 0; round < 60; round++) {
+            int kind = random.nextInt(4);
+            if (kind == 3 && withUnpositioned) {
+                Collection<ResidueId> residues = unpositioned.subList(random.nextInt(10), 10 + random.nextInt(11));
+                coverage.addAll(residues);
+                expected.addAll(residues);
+            } else {
+                BioJavaChainProxy chain = kind == 2 && twoChains ? chainB : chainA;
+                ResidueId[] range = randomRange(random, chain);
+                // ranges are added as two residues, or as the residue ids of a sequence
+                if (random.nextBoolean())
+                    coverage.add(range[0], range[1]);
+                else
+                    coverage.addAll(ResidueUtils.getResidueIdsBetween(range[0], range[1]));
+                expected.addAll(ResidueUtils.getResidueIdsBetween(range[0], range[1]));
+            }
+            assertSameCounts(random, coverage, expected);
+        }
+    }
+
+    private static void assertSameCounts(Random random, ResidueCoverage coverage, Bag expected) {
+        int max = 0;
+        for (Object rid : expected.uniqueSet()) {
+            max = Math.max(max, expected.getCount(rid));
+        }
+        assertEquals(max, coverage.getMaxCount());
+        assertEquals(expected, coverage.toBag());
+
+        List<ResidueId> residues = new ArrayList<ResidueId>(unpositioned);
+        for (ResidueNumberScheme rns : SCHEMES) {
+            residues.addAll(chainA.getResidueIds(rns));
+            residues.addAll(chainB.getResidueIds(rns));
+            residues.addAll(chainACopy.getResidueIds(rns));
+        }
+        for (ResidueId rid : residues) {
+            assertEquals(rid.toString(), expected.getCount(rid), coverage.getCount(rid));
+        }
+        assertEquals(0, coverage.getCount(null));
+
+        for (int i = 0; i < 20; i++) {
+            ResidueId[] range = randomRange(random, i % 3 == 0 ? chainB : i % 3 == 1 ? chainA : chainACopy);
+            Collection<ResidueId> between = ResidueUtils.getResidueIdsBetween(range[0], range[1]);
+            assertEquals(range[0] + " " + range[1], CollectionUtils.containsAny(between, expected), coverage.coversAny(range[0], range[1]));
+        }
+    }
+
+    /**
+     * @return the first and last residues of a range of SEQRES or ATOM residues of a chain, mostly short
+     */
+    private static ResidueId[] randomRange(Random random, BioJavaChainProxy chain) {
+        ResidueIndex index = chain.getResidueIndex(SCHEMES[random.nextInt(SCHEMES.length)]);
+        int first = random.nextInt(index.size());
+        int length = random.nextInt(10) == 0 ? random.nextInt(index.size() - first) : random.nextInt(Math.min(12, index.size() - first));
+        return new ResidueId[]{index.get(first), index.get(first + length)};
+    }
+}
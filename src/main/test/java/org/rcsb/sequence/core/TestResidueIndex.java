@@ -0,0 +1,231 @@
+package org.rcsb.sequence.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.biojava.nbio.structure.io.mmcif.ChemCompGroupFactory;
+import org.biojava.nbio.structure.io.mmcif.ReducedChemCompProvider;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.rcsb.sequence.biojavadao.BioJavaResidueInfoFactory;
+import org.rcsb.sequence.model.ResidueId;
+import org.rcsb.sequence.model.ResidueInfo;
+import org.rcsb.sequence.model.ResidueNumberScheme;
+
+/**
+ * The lookups of {@link ResidueIndex} compared with a linear search over the residues in the order they were added.
+ */
+public class TestResidueIndex {
+
+    private static ResidueInfo ala;
+    private static ResidueInfo gly;
+
+    @BeforeClass
+    public static void setUpResidues() {
+        ChemCompGroupFactory.setChemCompProvider(new ReducedChemCompProvider());
+        ResidueProvider.setResidueInfoFactory(new BioJavaResidueInfoFactory());
+        ala = ResidueProvider.getResidue("ALA");
+        gly = ResidueProvider.getResidue("GLY");
+    }
+
+    @Test
+    public void testInsertionCodes() {
+        ResidueIndex index = new ResidueIndex();
+        ResidueId r10 = atom(10, null), r10a = atom(10, 'A'), r10b = atom(10, 'B'), r11 = atom(11, null);
+        index.put(r10);
+        index.put(r10a);
+        index.put(r10b);
+        index.put(r11);
+
+        assertEquals(4, index.size());
+        assertSame(r10, index.get(10, ResidueIndex.NO_INSERTION_CODE));
+        assertSame(r10a, index.get(10, 'A'));
+        assertSame(r10b, index.get("10B"));
+        assertSame(r10, index.get("10"));
+        assertSame(r11, index.get("11"));
+        assertNull(index.get(10, 'C'));
+        assertNull(index.get("10C"));
+        assertNull(index.get("10AB"));
+        assertNull(index.get(""));
+        assertEquals(1, index.indexOf(r10a));
+        assertEquals(2, index.indexOf(atom(10, 'B')));
+        assertEquals(-1, index.indexOf(atom(10, 'C')));
+    }
+
+    @Test
+    public void testSeqIdsOutsidePackingRange() {
+        int[] seqIds = {-5, 0, -(1 << 23), -(1 << 23) - 1, (1 << 23) - 1, 1 << 23, Integer.MAX_VALUE, Integer.MIN_VALUE};
+        ResidueIndex index = new ResidueIndex(2);
+        List<ResidueId> residues = new ArrayList<ResidueId>();
+        for (int seqId : seqIds) {
+            residues.add(atom(seqId, null));
+            residues.add(atom(seqId, 'A'));
+        }
+        // an insertion code that does not fit into the packed key
+        residues.add(atom(7, '\u0100'));
+        for (ResidueId rid : residues) {
+            index.put(rid);
+        }
+
+        assertEquals(residues.size(), index.size());
+        for (int i = 0; i < residues.size(); i++) {
+            ResidueId rid = residues.get(i);
+            assertSame(rid, index.get(i));
+            assertSame(rid, index.get(rid.getSeqId(), insertionCode(rid)));
+            assertSame(rid, index.get(rid.getSeqIdWithInsertionCode()));
+            assertEquals(i, index.indexOf(rid));
+            assertEquals(i, index.indexOf(atom(rid.getSeqId(), rid.getInsertionCode())));
+        }
+        assertNull(index.get(-6, ResidueIndex.NO_INSERTION_CODE));
+        assertNull(index.get(Integer.MAX_VALUE - 1, ResidueIndex.NO_INSERTION_CODE));
+        assertNull(index.get("2147483648"));
+        assertNull(index.get("-2147483649"));
+        assertSame(residues.get(0), index.get("-5"));
+    }
+
+    @Test
+    public void testReplaceDuplicate() {
+        ResidueIndex index = new ResidueIndex();
+        ResidueId r5 = atom(5, null), r6 = atom(6, null), r7 = atom(7, null), big = atom(1 << 24, null);
+        index.put(r5);
+        index.put(r6);
+        index.put(big);
+        index.put(r7);
+
+        ResidueId r6Gly = new ResidueIdImpl(ResidueNumberScheme.ATOM, null, 6, null, gly, null);
+        ResidueId bigGly = new ResidueIdImpl(ResidueNumberScheme.ATOM, null, 1 << 24, null, gly, null);
+        index.put(r6Gly);
+        index.put(bigGly);
+
+        assertEquals(4, index.size());
+        assertSame(r5, index.get(0));
+        assertSame(r6Gly, index.get(1));
+        assertSame(bigGly, index.get(2));
+        assertSame(r7, index.get(3));
+        assertSame(r6Gly, index.get(6, ResidueIndex.NO_INSERTION_CODE));
+        assertSame(bigGly, index.get(1 << 24, ResidueIndex.NO_INSERTION_CODE));
+        assertEquals(1, index.indexOf(r6Gly));
+        // the replaced residue is not equal to the one at its position any more
+        assertEquals(-1, index.indexOf(r6));
+        assertEquals(-1, index.indexOf(big));
+    }
+
+    @Test
+    public void testIndexOfFastAndSlowPath() {
+        Random random = new Random(17);
+        int length = 500;
+        ResidueIndex chain = new ResidueIndex(length);
+        List<ResidueIdImpl> residues = new ArrayList<ResidueIdImpl>();
+        int seqId = -3;
+        for (int i = 0; i < length; i++) {
+            // insertion codes, jumps in the numbering and a few ids that can not be packed
+            seqId += random.nextInt(10) == 0 ? 1 + random.nextInt(1000) : 1;
+            Character insertionCode = random.nextInt(8) == 0 ? Character.valueOf((char) ('A' + random.nextInt(3))) : null;
+            ResidueIdImpl rid = atom(random.nextInt(50) == 0 ? seqId + (1 << 24) : seqId, insertionCode);
+            if (chain.get(rid.getSeqId(), insertionCode(rid)) != null)
+                continue;
+            rid.setOrdinal(residues.size());
+            residues.add(rid);
+            chain.put(rid);
+        }
+
+        // part of the chain, whose residues are shifted by the ordinal of its first one
+        int from = residues.size() / 3, to = 2 * residues.size() / 3;
+        ResidueIndex part = new ResidueIndex();
+        for (ResidueIdImpl rid : residues.subList(from, to)) {
+            part.put(rid);
+        }
+
+        for (ResidueIdImpl rid : residues) {
+            // the same residue through its ordinal, and an equal one that has not been linked through the hash table
+            ResidueIdImpl copy = atom(rid.getSeqId(), rid.getInsertionCode());
+            assertEquals(linearIndexOf(chain, rid), chain.indexOf(rid));
+            assertEquals(linearIndexOf(chain, copy), chain.indexOf(copy));
+            assertEquals(linearIndexOf(part, rid), part.indexOf(rid));
+            assertEquals(linearIndexOf(part, copy), part.indexOf(copy));
+
+            // an equal residue whose ordinal points at another residue
+            copy.setOrdinal((rid.getOrdinal() + 1) % residues.size());
+            assertEquals(linearIndexOf(chain, copy), chain.indexOf(copy));
+            assertEquals(linearIndexOf(part, copy), part.indexOf(copy));
+        }
+
+        for (int i = 0; i < residues.size(); i++) {
+            assertEquals(i, chain.indexOf(residues.get(i)));
+            assertEquals(i >= from && i < to ? i - from : -1, part.indexOf(residues.get(i)));
+        }
+
+        ResidueIdImpl other = new ResidueIdImpl(ResidueNumberScheme.ATOM, null, residues.get(0).getSeqId(),
+                residues.get(0).getInsertionCode(), gly, null);
+        other.setOrdinal(0);
+        assertEquals(-1, chain.indexOf(other));
+        assertEquals(-1, new ResidueIndex().indexOf(residues.get(0)));
+    }
+
+    @Test
+    public void testSubListAfterPut() {
+        ResidueIndex index = new ResidueIndex(4);
+        List<ResidueId> expected = new ArrayList<ResidueId>();
+        for (int i = 1; i <= 4; i++) {
+            ResidueId rid = atom(i, null);
+            index.put(rid);
+            expected.add(rid);
+        }
+        List<ResidueId> range = index.subList(1, 3);
+        List<ResidueId> all = (List<ResidueId>) index.values();
+
+        // appending residues grows the array behind the views
+        for (int i = 5; i <= 100; i++) {
+            ResidueId rid = atom(i, null);
+            index.put(rid);
+            expected.add(rid);
+        }
+        assertEquals(expected.subList(1, 3), range);
+        assertEquals(expected, all);
+
+        // a replaced residue shows through the views at its position
+        ResidueId r2Gly = new ResidueIdImpl(ResidueNumberScheme.ATOM, null, 2, null, gly, null);
+        index.put(r2Gly);
+        expected.set(1, r2Gly);
+        assertSame(r2Gly, range.get(0));
+        assertEquals(expected.subList(1, 3), range);
+        assertEquals(0, range.indexOf(r2Gly));
+        assertTrue(range.contains(expected.get(2)));
+        assertFalse(range.contains(expected.get(3)));
+        assertEquals(-1, range.indexOf(expected.get(0)));
+        assertEquals(expected.subList(2, 3), range.subList(1, 2));
+        assertEquals(expected, all);
+        assertEquals(50, all.indexOf(expected.get(50)));
+        assertEquals(expected.subList(10, 20), all.subList(10, 20));
+
+        try {
+            range.get(2);
+            assertTrue("the view ends where it was created", false);
+        } catch (IndexOutOfBoundsException e) {
+            // expected
+        }
+    }
+
+    private static ResidueIdImpl atom(int seqId, Character insertionCode) {
+        return new ResidueIdImpl(ResidueNumberScheme.ATOM, null, seqId, insertionCode, ala, null);
+    }
+
+    private static char insertionCode(ResidueId rid) {
+        return rid.getInsertionCode() == null ? ResidueIndex.NO_INSERTION_CODE : rid.getInsertionCode();
+    }
+
+    private static int linearIndexOf(ResidueIndex index, ResidueId rid) {
+        for (int i = 0; i < index.size(); i++) {
+            if (index.get(i).equals(rid))
+                return i;
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,152 @@
+package org.rcsb.sequence.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.biojava.nbio.structure.Group;
+import org.biojava.nbio.structure.io.mmcif.ChemCompGroupFactory;
+import org.biojava.nbio.structure.io.mmcif.ReducedChemCompProvider;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.rcsb.sequence.biojavadao.BioJavaChainProxy;
+import org.rcsb.sequence.biojavadao.BioJavaResidueInfoFactory;
+import org.rcsb.sequence.biojavadao.SyntheticStructures;
+import org.rcsb.sequence.model.ResidueId;
+import org.rcsb.sequence.model.ResidueNumberScheme;
+
+/**
+ * The equivalents that the residue ids of a chain find through its {@link ResidueMappingTable}, compared with the
+ * equivalents they shared before the chain was linked and after the table is released.
+ */
+public class TestResidueMappingTable {
+
+    private static final ResidueNumberScheme[] SCHEMES = {
+            ResidueNumberScheme.ATOM, ResidueNumberScheme.SEQRES, ResidueNumberScheme._ARRAY_IDX};
+
+    @BeforeClass
+    public static void setUpResidues() {
+        ChemCompGroupFactory.setChemCompProvider(new ReducedChemCompProvider());
+        ResidueProvider.setResidueInfoFactory(new BioJavaResidueInfoFactory());
+    }
+
+    @Test
+    public void testSameAsBeforeLinking() {
+        // every 100 residues, the last 5 are not observed
+        assertSameAsBeforeLinking(createChain(false));
+        // and unobserved residues at the start, at the end and in the middle
+        assertSameAsBeforeLinking(createChain(true));
+    }
+
+    @Test
+    public void testSameAsWithoutTable() {
+        for (boolean unobserved : new boolean[]{false, true}) {
+            BioJavaChainProxy chain = new BioJavaChainProxy(createChain(unobserved));
+            chain.getResidueIds(ResidueNumberScheme.ATOM);
+            assertNotNull(((AbstractSequence) chain).getResidueMappingTable());
+            List<ResidueId> withTable = answers(chain, true);
+
+            ((AbstractSequence) chain).releaseResidueMappingTable();
+            assertNull(((AbstractSequence) chain).getResidueMappingTable());
+            assertSameResidues(withTable, answers(chain, true));
+        }
+    }
+
+    @Test
+    public void testNewEquivalentOfLinkedResidue() {
+        BioJavaChainProxy chain = new BioJavaChainProxy(createChain(false));
+        chain.getResidueIds(ResidueNumberScheme.SEQRES);
+        ResidueIdImpl seqres = (ResidueIdImpl) chain.getResidueIndex(ResidueNumberScheme.SEQRES).get(10);
+        ResidueId atom = seqres.getEquivalentResidueId(ResidueNumberScheme.ATOM);
+        assertNotNull(((AbstractSequence) chain).getResidueMappingTable());
+
+        ResidueIdImpl dbref = new ResidueIdImpl(ResidueNumberScheme.DBREF, chain, 1011, seqres.getResidueInfo(), seqres);
+
+        assertNull(((AbstractSequence) chain).getResidueMappingTable());
+        assertSame(dbref, seqres.getEquivalentResidueId(ResidueNumberScheme.DBREF));
+        assertSame(dbref, atom.getEquivalentResidueId(ResidueNumberScheme.DBREF));
+        assertSame(atom, dbref.getEquivalentResidueId(ResidueNumberScheme.ATOM));
+        assertSame(seqres, dbref.getEquivalentResidueId(ResidueNumberScheme.SEQRES));
+        assertTrue(seqres.getEquivalentResidueIds().contains(dbref));
+    }
+
+    private static void assertSameAsBeforeLinking(org.biojava.nbio.structure.Chain bj) {
+        RecordingChain chain = new RecordingChain(bj);
+        chain.getResidueIds(ResidueNumberScheme.ATOM);
+        assertNotNull(((AbstractSequence) chain).getResidueMappingTable());
+
+        int unobserved = 0;
+        for (ResidueId rid : chain.getResidueIds(ResidueNumberScheme.SEQRES)) {
+            if (rid.getEquivalentResidueId(ResidueNumberScheme.ATOM) == null)
+                unobserved++;
+        }
+        assertEquals(chain.getResidueIds(ResidueNumberScheme.SEQRES).size(),
+                chain.getResidueIds(ResidueNumberScheme.ATOM).size() + unobserved);
+        assertTrue(unobserved > 0);
+        assertSameResidues(chain.beforeLinking, answers(chain, false));
+    }
+
+    /**
+     * @return the equivalents of every residue id of a chain in every scheme, and the next and previous ones
+     */
+    private static List<ResidueId> answers(AbstractSequence chain, boolean linked) {
+        List<ResidueId> result = new ArrayList<ResidueId>();
+        for (ResidueNumberScheme from : SCHEMES) {
+            for (ResidueId rid : chain.getResidueIndex(from).values()) {
+                for (ResidueNumberScheme to : ResidueNumberScheme.values()) {
+                    result.add(rid.getEquivalentResidueId(to));
+                    if (linked) {
+                        result.add(rid.getNextEquivalentResidueId(to));
+                        result.add(rid.getPreviousEquivalentResidueId(to));
+                    }
+                }
+                result.addAll(rid.getEquivalentResidueIds());
+            }
+        }
+        return result;
+    }
+
+    private static void assertSameResidues(List<ResidueId> expected, List<ResidueId> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertSame("answer " + i, expected.get(i), actual.get(i));
+        }
+    }
+
+    private static org.biojava.nbio.structure.Chain createChain(boolean unobservedEnds) {
+        org.biojava.nbio.structure.Chain c = SyntheticStructures.createStructure("1MAP", 1, 400).getChains().get(0);
+        if (unobservedEnds) {
+            List<Group> groups = c.getAtomGroups();
+            groups.subList(0, 40).clear();
+            groups.subList(groups.size() - 30, groups.size()).clear();
+            groups.subList(100, 150).clear();
+        }
+        return c;
+    }
+
+    /**
+     * Keeps the equivalents of its residue ids from before they are linked.
+     */
+    private static class RecordingChain extends BioJavaChainProxy {
+
+        private static final long serialVersionUID = 1L;
+
+        private List<ResidueId> beforeLinking;
+
+        RecordingChain(org.biojava.nbio.structure.Chain bj) {
+            super(bj);
+        }
+
+        @Override
+        protected void linkResidues() {
+            if (beforeLinking == null)
+                beforeLinking = answers(this, false);
+            super.linkResidues();
+        }
+    }
+}
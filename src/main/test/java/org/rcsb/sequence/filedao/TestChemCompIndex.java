@@ -0,0 +1,146 @@
+package org.rcsb.sequence.filedao;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.biojava.nbio.structure.io.mmcif.ChemCompConsumer;
+import org.biojava.nbio.structure.io.mmcif.SimpleMMcifParser;
+import org.biojava.nbio.structure.io.mmcif.model.ChemComp;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.rcsb.sequence.biojavadao.BioJavaResidueInfo;
+import org.rcsb.sequence.model.ResidueInfo;
+import org.rcsb.sequence.util.ResidueTools;
+
+/**
+ * The residues of the index written by {@link ChemCompIndexWriter} compared with the
+ * {@link org.rcsb.sequence.biojavadao.BioJavaResidueInfoFactory} residues for the same chemical components.
+ */
+public class TestChemCompIndex {
+
+    // id, type, parent, one letter code, mon_nstd_flag
+    private static final String[][] COMPONENTS = {
+            {"ALA", "L-PEPTIDE LINKING", "?", "A", "y"},
+            {"GLY", "PEPTIDE LINKING", "?", "G", "y"},
+            {"ASX", "L-PEPTIDE LINKING", "?", "B", "y"},
+            {"UNK", "L-PEPTIDE LINKING", "?", "X", "y"},
+            {"ALX", "L-PEPTIDE LINKING", "?", "?", "y"},
+            {"NUL", "L-PEPTIDE LINKING", "?", ".", "y"},
+            {"ZZA", "L-PEPTIDE LINKING", "?", "A", "n"},
+            {"MSE", "L-PEPTIDE LINKING", "MET", "M", "n"},
+            {"SEC", "L-PEPTIDE LINKING", "CYS", "U", "n"},
+            {"DAL", "D-PEPTIDE LINKING", "ALA", "A", "n"},
+            {"B3A", "L-BETA-PEPTIDE, C-GAMMA LINKING", "ALA", "A", "n"},
+            {"A", "RNA LINKING", "?", "A", "y"},
+            {"N", "RNA LINKING", "?", "N", "y"},
+            {"PSU", "RNA LINKING", "U", "U", "n"},
+            {"0C", "L-RNA LINKING", "C", "C", "n"},
+            {"DA", "DNA LINKING", "?", "A", "y"},
+            {"DN", "DNA LINKING", "?", "N", "y"},
+            {"5CM", "DNA LINKING", "DC", "C", "n"},
+            {"0DA", "L-DNA LINKING", "DA", "A", "n"},
+            {"HOH", "NON-POLYMER", "?", "?", "."},
+            {"GLC", "D-SACCHARIDE", "?", "?", "."},
+            {"XYZ", "OTHER", "?", "X", "n"},
+    };
+
+    private static MappedResidueInfoFactory index;
+
+    @BeforeClass
+    public static void writeIndex() throws IOException {
+        File dictionary = File.createTempFile("components", ".cif");
+        dictionary.deleteOnExit();
+        File indexFile = File.createTempFile("chemcomp", ".idx");
+        indexFile.deleteOnExit();
+
+        PrintWriter out = new PrintWriter(new FileWriter(dictionary));
+        try {
+            out.print(toCif(COMPONENTS));
+        } finally {
+            out.close();
+        }
+        ChemCompIndexWriter.write(dictionary, indexFile);
+        index = new MappedResidueInfoFactory(indexFile);
+    }
+
+    @Test
+    public void testSameAsBioJava() throws IOException {
+        List<ChemComp> components = readWithBioJava(toCif(COMPONENTS));
+        assertEquals(COMPONENTS.length, components.size());
+        for (ChemComp cc : components) {
+            BioJavaResidueInfo expected = new BioJavaResidueInfo();
+            expected.setChemComp(cc);
+            ResidueInfo actual = index.getResidue(cc.getId());
+
+            // BioJava keeps a missing one letter code as it is in the dictionary
+            Character oneLetterCode = expected.getOneLetterCode();
+            if (oneLetterCode == '?' || oneLetterCode == '.')
+                oneLetterCode = ResidueTools.UNKNOWN_ONE_LETTER_CODE;
+
+            assertEquals(cc.getId(), expected.isNonstandard(), actual.isNonstandard());
+            assertEquals(cc.getId(), oneLetterCode, actual.getOneLetterCode());
+        }
+    }
+
+    @Test
+    public void testNonstandard() {
+        assertFalse(index.getResidue("ALA").isNonstandard());
+        assertFalse(index.getResidue("DA").isNonstandard());
+        assertFalse(index.getResidue("A").isNonstandard());
+        // flagged as standard in the dictionary, but not by BioJava
+        assertTrue(index.getResidue("UNK").isNonstandard());
+        assertTrue(index.getResidue("DN").isNonstandard());
+        assertTrue(index.getResidue("MSE").isNonstandard());
+    }
+
+    @Test
+    public void testUnknownOneLetterCode() {
+        assertEquals(ResidueTools.UNKNOWN_ONE_LETTER_CODE, index.getResidue("HOH").getOneLetterCode());
+        assertEquals(ResidueTools.UNKNOWN_ONE_LETTER_CODE, index.getResidue("ALX").getOneLetterCode());
+        assertEquals(Character.valueOf('M'), index.getResidue("MSE").getOneLetterCode());
+    }
+
+    private static String toCif(String[][] components) {
+        StringBuilder cif = new StringBuilder();
+        for (String[] c : components) {
+            cif.append("data_").append(c[0]).append('\n');
+            cif.append("#\n");
+            cif.append("_chem_comp.id ").append(c[0]).append('\n');
+            cif.append("_chem_comp.name ").append(c[0]).append('\n');
+            cif.append("_chem_comp.type \"").append(c[1]).append("\"\n");
+            cif.append("_chem_comp.formula \"C1\"\n");
+            cif.append("_chem_comp.mon_nstd_parent_comp_id ").append(c[2]).append('\n');
+            cif.append("_chem_comp.one_letter_code ").append(c[3]).append('\n');
+            cif.append("_chem_comp.mon_nstd_flag ").append(c[4]).append('\n');
+            cif.append("_chem_comp.formula_weight 12.011\n");
+            // BioJava passes on a component when the next category starts
+            cif.append("#\nloop_\n_chem_comp_atom.comp_id\n_chem_comp_atom.atom_id\n");
+            cif.append(c[0]).append(" C1\n#\n");
+        }
+        return cif.toString();
+    }
+
+    private static List<ChemComp> readWithBioJava(String cif) throws IOException {
+        final List<ChemComp> components = new ArrayList<ChemComp>();
+        SimpleMMcifParser parser = new SimpleMMcifParser();
+        parser.addMMcifConsumer(new ChemCompConsumer() {
+            @Override
+            public void newChemComp(ChemComp c) {
+                super.newChemComp(c);
+                components.add(c);
+            }
+        });
+        parser.parse(new BufferedReader(new StringReader(cif)));
+        return components;
+    }
+}